@@ -0,0 +1,561 @@
+package mdvrp;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Adaptive Large Neighbourhood Search on the same chromosome representation as
+ * the GA. Every iteration removes some customers from a copy of the current
+ * solution with a destroy operator and inserts them again with a repair
+ * operator. The new solution is accepted by simulated annealing. The operators
+ * are chosen by roulette wheel with weights that are adapted every segment of
+ * iterations from how well they did, as in Ropke and Pisinger (2006).
+ *
+ * Only three chromosomes are kept per run, so the memory use does not depend
+ * on a population size. Several runs with their own random streams can be
+ * started in parallel, and all of them stop when one reaches the threshold.
+ */
+public class ALNSSolver {
+    // From ConfigParser
+    int iterations;
+    int runs;
+    int regretK;
+    int threadCount;
+    long seed;
+    boolean verbose;
+    double bound;
+
+    // From ProblemParser
+    int maxVehicesPerDepot;
+    ProblemModel model;
+
+    double stopThreshold;
+
+    private List<Depot> depots;
+    // The depots that can serve each customer, by dense indices
+    private int[][] candidateDepots;
+    // The nearest customers of each customer, closest first
+    private int[][] neighbours;
+    private Chromosome best;
+    private AtomicBoolean stop = new AtomicBoolean(false);
+    // Whether to print the progress line and the early stop
+    boolean printProgress = true;
+
+    private static final String[] DESTROY_OPERATORS = { "random", "worst", "shaw", "route" };
+    private static final String[] REPAIR_OPERATORS = { "greedy", "regret" };
+    private static final int RANDOM_REMOVAL = 0;
+    private static final int WORST_REMOVAL = 1;
+    private static final int SHAW_REMOVAL = 2;
+    private static final int ROUTE_REMOVAL = 3;
+    private static final int GREEDY_INSERTION = 0;
+
+    // Operator scores for a new best, a better and an accepted solution
+    private static final double SCORE_BEST = 33;
+    private static final double SCORE_BETTER = 9;
+    private static final double SCORE_ACCEPTED = 13;
+    // How much of the previous weight is replaced after each segment
+    private static final double REACTION_FACTOR = 0.1;
+    private static final int SEGMENT_LENGTH = 100;
+    // Randomness of the worst and Shaw removal, higher means more greedy
+    private static final double WORST_REMOVAL_POWER = 3;
+    private static final double SHAW_REMOVAL_POWER = 6;
+    private static final int NEIGHBOUR_COUNT = 50;
+    // The start temperature accepts a solution that is this much worse than the
+    // initial one with probability 0.5, and it cools to END_TEMPERATURE_RATIO of
+    // that over all iterations
+    private static final double START_WORSENING = 0.05;
+    private static final double END_TEMPERATURE_RATIO = 0.001;
+    // Cost of opening a route in a depot that has no vehicles left, the same as
+    // the fitness penalty
+    private static final double OVER_LIMIT_PENALTY = 1000.0;
+
+    public ALNSSolver(ConfigParser configParser, ProblemParser problemParser, double stopThreshold) {
+        this.iterations = configParser.alnsIterations;
+        this.runs = configParser.alnsRuns;
+        this.regretK = configParser.alnsRegretK;
+        this.threadCount = configParser.threadCount > 0 ? configParser.threadCount
+                : Runtime.getRuntime().availableProcessors();
+        this.seed = configParser.seed >= 0 ? configParser.seed : new SplittableRandom().nextLong() & Long.MAX_VALUE;
+        this.verbose = configParser.verbose;
+        this.bound = configParser.bound;
+        if (configParser.jfrEvents) {
+            SolverEvents.register();
+        }
+
+        this.maxVehicesPerDepot = problemParser.maxVehicesPerDepot;
+        this.model = problemParser.model;
+        this.stopThreshold = stopThreshold;
+        if (configParser.stopGap > 0) {
+            // Stopping within the gap is the same as stopping at the bound plus the gap
+            this.stopThreshold = Math.max(stopThreshold,
+                    new LowerBound(this.model).value() * (1 + configParser.stopGap));
+        }
+
+        this.depots = problemParser.depots;
+        Solver.initDepotAssignment(this.depots, problemParser.customers, this.bound);
+        this.initCandidates();
+    }
+
+    private void initCandidates() {
+        int n = this.model.customerCount;
+        this.candidateDepots = new int[n][];
+        for (int c = 0; c < n; c++) {
+            Customer customer = this.model.getCustomer(c);
+            this.candidateDepots[c] = this.depots.stream().filter(x -> x.getSwappableCustomers().contains(customer))
+                    .mapToInt(Depot::getIndex).toArray();
+        }
+
+        int neighbourCount = Math.min(NEIGHBOUR_COUNT, n - 1);
+        this.neighbours = new int[n][];
+        for (int c = 0; c < n; c++) {
+            final int from = c;
+            this.neighbours[c] = IntStream.range(0, n).filter(x -> x != from).boxed()
+                    .sorted((a, b) -> Double.compare(this.model.customerDistance(from, a),
+                            this.model.customerDistance(from, b)))
+                    .limit(neighbourCount).mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public void solve() {
+        if (this.verbose) {
+            System.out.println("ALNS runs: " + this.runs + ", iterations: " + this.iterations + ", seed: " + this.seed);
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(this.runs, this.threadCount), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Callable<Chromosome>> tasks = new ArrayList<>();
+        for (int run = 0; run < this.runs; run++) {
+            final int r = run;
+            tasks.add(() -> this.search(r));
+        }
+        try {
+            for (Future<Chromosome> future : workers.invokeAll(tasks)) {
+                Chromosome result = future.get();
+                if (this.best == null || result.fitness < this.best.fitness) {
+                    this.best = result;
+                }
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } catch (ExecutionException e) {
+            throw new Error(e.getCause());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * One ALNS trajectory.
+     *
+     * @return the best solution found, which is legal if any legal solution was
+     *         found since illegal solutions are penalized.
+     */
+    private Chromosome search(int run) {
+        SplittableRandom random = new SplittableRandom(Helper.mixSeed(this.seed, run, 0));
+        Chromosome current = this.createInitialSolution(random);
+        Chromosome candidate = new Chromosome(current);
+        Chromosome runBest = new Chromosome(current);
+
+        double[] destroyWeights = new double[DESTROY_OPERATORS.length];
+        double[] destroyScores = new double[DESTROY_OPERATORS.length];
+        int[] destroyUses = new int[DESTROY_OPERATORS.length];
+        double[] repairWeights = new double[REPAIR_OPERATORS.length];
+        double[] repairScores = new double[REPAIR_OPERATORS.length];
+        int[] repairUses = new int[REPAIR_OPERATORS.length];
+        Arrays.fill(destroyWeights, 1.0);
+        Arrays.fill(repairWeights, 1.0);
+
+        double temperature = -START_WORSENING * current.fitness / Math.log(0.5);
+        final double cooling = Math.pow(END_TEMPERATURE_RATIO, 1.0 / this.iterations);
+        int[] removed = new int[this.model.customerCount];
+
+        for (int iteration = 1; iteration <= this.iterations && !this.stop.get(); iteration++) {
+            candidate.copyFrom(current);
+            int destroy = rouletteWheel(destroyWeights, random);
+            int repair = rouletteWheel(repairWeights, random);
+
+            SolverEvents.OperatorEvent destroyEvent = new SolverEvents.OperatorEvent();
+            destroyEvent.begin();
+            int removedCount = this.destroy(destroy, candidate, removed, random);
+            if (destroyEvent.shouldCommit()) {
+                destroyEvent.operator = DESTROY_OPERATORS[destroy] + " removal";
+                destroyEvent.commit();
+            }
+            SolverEvents.OperatorEvent repairEvent = new SolverEvents.OperatorEvent();
+            repairEvent.begin();
+            this.repair(repair, candidate, removed, removedCount, random);
+            if (repairEvent.shouldCommit()) {
+                repairEvent.operator = REPAIR_OPERATORS[repair] + " insertion";
+                // The insertions scan every depot that can serve the removed customers
+                for (Depot depot : candidate.depots) {
+                    repairEvent.insertionScanSize += SolverEvents.insertionPositions(depot);
+                }
+                repairEvent.commit();
+            }
+            candidate.getLegality(this.maxVehicesPerDepot);
+            candidate.updateFitnessByTotalDistanceWithPenalty(iteration);
+
+            double score = 0;
+            boolean accept = false;
+            if (candidate.fitness < runBest.fitness) {
+                runBest.copyFrom(candidate);
+                score = SCORE_BEST;
+                accept = true;
+            } else if (candidate.fitness < current.fitness) {
+                score = SCORE_BETTER;
+                accept = true;
+            } else if (random.nextDouble() < Math.exp((current.fitness - candidate.fitness) / temperature)) {
+                score = SCORE_ACCEPTED;
+                accept = true;
+            }
+            if (accept) {
+                Chromosome previous = current;
+                current = candidate;
+                candidate = previous;
+            }
+            destroyScores[destroy] += score;
+            destroyUses[destroy]++;
+            repairScores[repair] += score;
+            repairUses[repair]++;
+
+            if (iteration % SEGMENT_LENGTH == 0) {
+                updateWeights(destroyWeights, destroyScores, destroyUses);
+                updateWeights(repairWeights, repairScores, repairUses);
+            }
+            temperature *= cooling;
+
+            if (runBest.tooManyRoutes == 0 && runBest.fitness <= this.stopThreshold) {
+                if (this.stop.compareAndSet(false, true) && this.printProgress) {
+                    System.out.println(ConsoleColors.GREEN + "\nEarly stopped at iteration: " + iteration
+                            + " of run " + run + ConsoleColors.RESET);
+                }
+            }
+            if (iteration % 10000 == 0 && this.printProgress) {
+                this.reportProgress(run, iteration, runBest, current, temperature);
+            }
+        }
+
+        if (this.verbose) {
+            System.out.println("\nRun " + run + " operator weights, destroy: "
+                    + weightsToString(DESTROY_OPERATORS, destroyWeights) + ", repair: "
+                    + weightsToString(REPAIR_OPERATORS, repairWeights));
+        }
+        return runBest;
+    }
+
+    private void reportProgress(int run, int iteration, Chromosome runBest, Chromosome current,
+            double temperature) {
+        String progress = "Run: " + run + ", iteration: " + iteration + ", Best fitness: "
+                + Helper.roundDouble(runBest.fitness) + ", current fitness: " + Helper.roundDouble(current.fitness)
+                + ", temperature: " + Helper.roundDouble(temperature);
+        if (this.verbose) {
+            System.out.println(progress);
+        } else {
+            System.out.print("\r" + progress);
+        }
+    }
+
+    /**
+     * Orders the customers of each depot as a nearest-neighbour giant tour and
+     * splits it into routes, the same as the nearest_neighbour seeding of the GA.
+     */
+    private Chromosome createInitialSolution(SplittableRandom random) {
+        List<Depot> depotsCopy = new ArrayList<>();
+        for (Depot depot : this.depots) {
+            Depot depotToAdd = new Depot(depot);
+            depotToAdd.orderCustomersByNearestNeighbour(random);
+            depotsCopy.add(depotToAdd);
+        }
+        Chromosome chromosome = new Chromosome(depotsCopy);
+        chromosome.routeSchedulingFirstPart();
+        chromosome.routeSchedulingSecondPart();
+        chromosome.getLegality(this.maxVehicesPerDepot);
+        chromosome.updateFitnessByTotalDistanceWithPenalty(0);
+        return chromosome;
+    }
+
+    private static int rouletteWheel(double[] weights, SplittableRandom random) {
+        double r = random.nextDouble() * Arrays.stream(weights).sum();
+        for (int i = 0; i < weights.length - 1; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static void updateWeights(double[] weights, double[] scores, int[] uses) {
+        for (int i = 0; i < weights.length; i++) {
+            if (uses[i] > 0) {
+                weights[i] = (1 - REACTION_FACTOR) * weights[i] + REACTION_FACTOR * scores[i] / uses[i];
+                // Keep every operator in play
+                weights[i] = Math.max(weights[i], 0.1);
+            }
+            scores[i] = 0;
+            uses[i] = 0;
+        }
+    }
+
+    private static String weightsToString(String[] names, double[] weights) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            result.append(i == 0 ? "" : ", ").append(names[i]).append(" ").append(Helper.roundDouble(weights[i]));
+        }
+        return result.toString();
+    }
+
+    // Destroy operators
+
+    /**
+     * Removes between 5% and 20% of the customers, at most 50, with the given
+     * destroy operator.
+     *
+     * @return the number of customers written to removed.
+     */
+    private int destroy(int operator, Chromosome chromosome, int[] removed, SplittableRandom random) {
+        int n = this.model.customerCount;
+        int minCount = Math.max(1, n / 20);
+        int maxCount = Math.max(minCount, Math.min(n / 5, 50));
+        int count = minCount + random.nextInt(maxCount - minCount + 1);
+        switch (operator) {
+        case RANDOM_REMOVAL:
+            return this.randomRemoval(chromosome, count, removed, random);
+        case WORST_REMOVAL:
+            return this.worstRemoval(chromosome, count, removed, random);
+        case SHAW_REMOVAL:
+            return this.shawRemoval(chromosome, count, removed, random);
+        case ROUTE_REMOVAL:
+            return this.routeRemoval(chromosome, removed, random);
+        default:
+            throw new Error();
+        }
+    }
+
+    private int randomRemoval(Chromosome chromosome, int count, int[] removed, SplittableRandom random) {
+        int removedCount = 0;
+        while (removedCount < count) {
+            int customer = random.nextInt(this.model.customerCount);
+            if (chromosome.depotOf(customer) != null) {
+                chromosome.removeCustomer(customer);
+                removed[removedCount++] = customer;
+            }
+        }
+        return removedCount;
+    }
+
+    /**
+     * Removes customers that save much distance when removed. The savings are
+     * computed once, and the customers are drawn from the ranking with a bias
+     * towards the largest savings.
+     */
+    private int worstRemoval(Chromosome chromosome, int count, int[] removed, SplittableRandom random) {
+        int n = this.model.customerCount;
+        double[] gain = new double[n];
+        List<Integer> ranking = new ArrayList<>(n);
+        for (int c = 0; c < n; c++) {
+            Depot depot = chromosome.depotOf(c);
+            gain[c] = depot.removalGain(chromosome.locations.routeOf[c], chromosome.locations.positionOf[c]);
+            ranking.add(c);
+        }
+        ranking.sort((a, b) -> Double.compare(gain[b], gain[a]));
+
+        for (int i = 0; i < count; i++) {
+            int rank = (int) (Math.pow(random.nextDouble(), WORST_REMOVAL_POWER) * ranking.size());
+            int customer = ranking.remove(rank);
+            chromosome.removeCustomer(customer);
+            removed[i] = customer;
+        }
+        return count;
+    }
+
+    /**
+     * Removes customers that are close to each other, starting from a random
+     * customer and repeatedly picking a near neighbour of a removed customer.
+     * Relatedness is the distance only, from precomputed neighbour lists.
+     */
+    private int shawRemoval(Chromosome chromosome, int count, int[] removed, SplittableRandom random) {
+        int first = random.nextInt(this.model.customerCount);
+        chromosome.removeCustomer(first);
+        removed[0] = first;
+        int removedCount = 1;
+        int attempts = 0;
+        while (removedCount < count && attempts++ < 10 * count) {
+            int[] near = this.neighbours[removed[random.nextInt(removedCount)]];
+            int rank = (int) (Math.pow(random.nextDouble(), SHAW_REMOVAL_POWER) * near.length);
+            for (int i = rank; i < near.length; i++) {
+                if (chromosome.depotOf(near[i]) != null) {
+                    chromosome.removeCustomer(near[i]);
+                    removed[removedCount++] = near[i];
+                    break;
+                }
+            }
+        }
+        return removedCount;
+    }
+
+    private int routeRemoval(Chromosome chromosome, int[] removed, SplittableRandom random) {
+        List<Depot> depotsWithRoutes = new ArrayList<>();
+        for (Depot depot : chromosome.depots) {
+            if (!depot.routes.isEmpty()) {
+                depotsWithRoutes.add(depot);
+            }
+        }
+        Depot depot = Helper.getRandomElementFromList(depotsWithRoutes, random);
+        int[] customers = Helper.getRandomElementFromList(depot.routes, random).toArray();
+        for (int i = 0; i < customers.length; i++) {
+            chromosome.removeCustomer(customers[i]);
+            removed[i] = customers[i];
+        }
+        return customers.length;
+    }
+
+    // Repair operators
+
+    private void repair(int operator, Chromosome chromosome, int[] removed, int removedCount,
+            SplittableRandom random) {
+        // Random order, so ties are broken differently every time
+        for (int i = removedCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = removed[i];
+            removed[i] = removed[j];
+            removed[j] = temp;
+        }
+        this.regretInsertion(chromosome, removed, removedCount, operator == GREEDY_INSERTION ? 1 : this.regretK);
+    }
+
+    /**
+     * Inserts the customers one at a time. With k = 1 the customer with the
+     * cheapest insertion is inserted first (greedy). Otherwise the customer with
+     * the largest regret, the sum of how much more its 2nd to kth best routes
+     * cost than its best route, is inserted first, so that customers with few
+     * good options are placed before those options are taken.
+     */
+    private void regretInsertion(Chromosome chromosome, int[] customers, int count, int k) {
+        double[] costs = new double[k];
+        while (count > 0) {
+            int bestIndex = -1;
+            double bestRegret = Double.NEGATIVE_INFINITY;
+            double bestCost = Double.POSITIVE_INFINITY;
+            long bestLocation = 0;
+            for (int i = 0; i < count; i++) {
+                int customer = customers[i];
+                long location = this.cheapestInsertions(chromosome, customer, costs);
+                double regret;
+                if (k == 1) {
+                    regret = -costs[0];
+                } else {
+                    regret = 0;
+                    for (int j = 1; j < k; j++) {
+                        regret += costs[j] - costs[0];
+                    }
+                }
+                if (regret > bestRegret || (regret == bestRegret && costs[0] < bestCost)) {
+                    bestIndex = i;
+                    bestRegret = regret;
+                    bestCost = costs[0];
+                    bestLocation = location;
+                }
+            }
+
+            int customer = customers[bestIndex];
+            this.insert(chromosome, customer, bestLocation);
+            customers[bestIndex] = customers[--count];
+            customers[count] = customer;
+        }
+    }
+
+    /**
+     * Fills costs with the k cheapest insertion costs of the customer, at most one
+     * per route. Opening a new route in a candidate depot is one option, and
+     * costs a penalty if the depot has no vehicles left. Missing options cost
+     * Double.MAX_VALUE.
+     *
+     * @return the location of the cheapest insertion, as the depot index in the
+     *         upper 16 bits, the route index in the next 24 bits and the position
+     *         in the lower 24 bits. A route index of the route count means a new
+     *         route.
+     */
+    private long cheapestInsertions(Chromosome chromosome, int customer, double[] costs) {
+        Arrays.fill(costs, Double.MAX_VALUE);
+        long location = -1;
+        for (int d : this.candidateDepots[customer]) {
+            Depot depot = chromosome.depots.get(d);
+            for (int r = 0; r < depot.routes.size(); r++) {
+                int position = depot.findBestInsertionInRoute(customer, r);
+                if (position != -1 && addCost(costs, depot.insertionDelta(customer, r, position))) {
+                    location = encodeLocation(d, r, position);
+                }
+            }
+            double newRouteCost = 2 * this.model.depotDistance(d, customer);
+            if (depot.routes.size() >= this.maxVehicesPerDepot) {
+                newRouteCost += OVER_LIMIT_PENALTY;
+            }
+            if (addCost(costs, newRouteCost)) {
+                location = encodeLocation(d, depot.routes.size(), 0);
+            }
+        }
+        return location;
+    }
+
+    /**
+     * Adds the cost to the sorted array of the cheapest costs if it is among
+     * them.
+     *
+     * @return true if the cost is the new cheapest.
+     */
+    private static boolean addCost(double[] costs, double cost) {
+        int i = costs.length - 1;
+        if (cost >= costs[i]) {
+            return false;
+        }
+        while (i > 0 && costs[i - 1] > cost) {
+            costs[i] = costs[i - 1];
+            i--;
+        }
+        costs[i] = cost;
+        return i == 0;
+    }
+
+    private static long encodeLocation(int depot, int route, int position) {
+        return ((long) depot << 48) | ((long) route << 24) | position;
+    }
+
+    private void insert(Chromosome chromosome, int customer, long location) {
+        Depot depot = chromosome.depots.get((int) (location >>> 48));
+        int route = (int) (location >>> 24) & 0xffffff;
+        int position = (int) location & 0xffffff;
+        if (route == depot.routes.size()) {
+            chromosome.insertCustomerInNewRoute(depot, customer);
+        } else {
+            chromosome.insertCustomer(depot, route, position, customer);
+        }
+    }
+
+    public void saveBest() {
+        if (this.best == null || this.best.tooManyRoutes > 0) {
+            return;
+        }
+        Solver.writeSolution(this.best.depots, Paths.get("solutions", "solution.res"));
+    }
+
+    Chromosome getBest() {
+        return this.best;
+    }
+
+    public double bestFitness() {
+        return this.best.fitness;
+    }
+}
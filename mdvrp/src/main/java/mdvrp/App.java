@@ -1,18 +1,17 @@
 package mdvrp;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class App {
 
-    private static Map<String, Double> stopThreshold = new HashMap<>(32);
+    // Target fitness of the Cordeau instances, see getThreshold()
+    static final Map<String, Double> stopThreshold = new HashMap<>(32);
 
-    private static void printHelp() {
-        System.out.println(
-                "Run the given file in config.yaml with --run-file or -r, or run all tests with --run-tests or -t");
-    }
-
-    public static void main(String[] args) {
+    static {
         stopThreshold.put("p01", 611.1);
         stopThreshold.put("p02", 519.75);
         stopThreshold.put("p03", 756.0);
@@ -36,7 +35,24 @@ public class App {
         stopThreshold.put("p21", 6426.0);
         stopThreshold.put("p22", 6230.7);
         stopThreshold.put("p23", 6520.5);
+    }
 
+    private static void printHelp() {
+        System.out.println(
+                "Run the given file in config.yaml with --run-file or -r, or run all tests with --run-tests or -t");
+        System.out.println("Generate an instance in test_data with --generate or -g, followed by the file name and "
+                + "optionally the customer count, depot count, layout (uniform or clustered), capacity tightness, "
+                + "distance tightness and seed");
+        System.out.println("Compare the time to reach the target fitness to a baseline with --time-to-target or -tt, "
+                + "followed by --runs, --seconds, --significance, --baseline, --update-baseline and the instances");
+        System.out.println("Tune the GA parameters in config.yaml with F-race with --tune or -tu, followed by "
+                + "--candidates, --first-test, --blocks, --generations, --threads, --significance, --seed, --output "
+                + "and the instances");
+        System.out.println("Write the solutions in generations/trace.bin to the generations folder for the visualizers "
+                + "with --export-trace or -e");
+    }
+
+    public static void main(String[] args) {
         if (args.length == 0) {
             printHelp();
             return;
@@ -49,12 +65,33 @@ public class App {
             runSingle();
         } else if (argument.equals("--run-tests") || argument.equals("-t")) {
             runAll();
+        } else if ((argument.equals("--generate") || argument.equals("-g")) && args.length > 1) {
+            InstanceGenerator generator = InstanceGenerator.fromArguments(Arrays.copyOfRange(args, 2, args.length));
+            generator.write(Paths.get("test_data", args[1]));
+        } else if (argument.equals("--tune") || argument.equals("-tu")) {
+            ConfigTuner.fromArguments(Arrays.copyOfRange(args, 1, args.length)).run();
+        } else if (argument.equals("--export-trace") || argument.equals("-e")) {
+            exportTrace();
+        } else if (argument.equals("--time-to-target") || argument.equals("-tt")) {
+            TimeToTarget harness = TimeToTarget.fromArguments(Arrays.copyOfRange(args, 1, args.length));
+            if (harness.run() > 0) {
+                System.exit(1);
+            }
         } else {
             printHelp();
         }
     }
 
-    private static double getThreshold(String fileName, double default_threshold) {
+    private static void exportTrace() {
+        try {
+            int frames = GenerationTrace.export(Paths.get("generations", "trace.bin"), Paths.get("generations"));
+            System.out.println("Wrote " + frames + " solutions to the generations folder");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static double getThreshold(String fileName, double default_threshold) {
         if (stopThreshold.containsKey(fileName)) {
             return stopThreshold.get(fileName);
         }
@@ -69,7 +106,77 @@ public class App {
         ProblemParser problemParser = new ProblemParser();
         problemParser.parseFile(configParser.inputFile);
 
+        solve(configParser, problemParser);
+    }
+
+    private static void solve(ConfigParser configParser, ProblemParser problemParser) {
         long start = System.currentTimeMillis();
+        if (configParser.distributedRole.equals("coordinator")) {
+            try {
+                IslandCoordinator coordinator = new IslandCoordinator(configParser, problemParser,
+                        getThreshold(configParser.inputFile, configParser.stopThreshold));
+                coordinator.run();
+                System.out.println("Elapsed training time: "
+                        + Helper.roundDouble((System.currentTimeMillis() - start) / 1000.0) + " s");
+
+                coordinator.saveBest();
+                System.out.println("Best final fitness: " + coordinator.bestFitness());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (configParser.distributedRole.equals("island")) {
+            try {
+                Island island = new Island(configParser, problemParser,
+                        getThreshold(configParser.inputFile, configParser.stopThreshold));
+                island.run();
+                System.out.println("Elapsed training time: "
+                        + Helper.roundDouble((System.currentTimeMillis() - start) / 1000.0) + " s");
+                System.out.println("Best final fitness of the island: " + island.solver.bestFitness());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (configParser.decompositionPartitions > 1) {
+            DecompositionSolver solver = new DecompositionSolver(configParser, problemParser,
+                    getThreshold(configParser.inputFile, configParser.stopThreshold));
+            solver.solve();
+            System.out.println("Elapsed training time: "
+                    + Helper.roundDouble((System.currentTimeMillis() - start) / 1000.0) + " s");
+
+            solver.saveBest();
+            System.out.println("Best final fitness: " + solver.bestFitness());
+            return;
+        }
+
+        if (configParser.solver.equals("alns")) {
+            ALNSSolver solver = new ALNSSolver(configParser, problemParser,
+                    getThreshold(configParser.inputFile, configParser.stopThreshold));
+            solver.solve();
+            System.out.println("Elapsed training time: "
+                    + Helper.roundDouble((System.currentTimeMillis() - start) / 1000.0) + " s");
+
+            solver.saveBest();
+            System.out.println("Best final fitness: " + solver.bestFitness());
+            return;
+        }
+
+        if (configParser.racers > 1) {
+            RacingSolver solver = new RacingSolver(configParser, problemParser,
+                    getThreshold(configParser.inputFile, configParser.stopThreshold));
+            solver.solve();
+            System.out.println("Elapsed training time: "
+                    + Helper.roundDouble((System.currentTimeMillis() - start) / 1000.0) + " s");
+
+            solver.saveBest();
+            System.out.println("Best final fitness: " + solver.bestFitness());
+            return;
+        }
+
         Solver solver = new Solver(configParser, problemParser,
                 getThreshold(configParser.inputFile, configParser.stopThreshold));
         solver.runGA();
@@ -96,15 +203,7 @@ public class App {
             ProblemParser problemParser = new ProblemParser();
             problemParser.parseFile(configParser.inputFile);
 
-            long start = System.currentTimeMillis();
-            Solver solver = new Solver(configParser, problemParser,
-                    getThreshold(configParser.inputFile, configParser.stopThreshold));
-            solver.runGA();
-            System.out.println("Elapsed training time: "
-                    + Helper.roundDouble((System.currentTimeMillis() - start) / 1000.0) + " s");
-
-            solver.saveBest();
-            System.out.println("Best final fitness: " + solver.bestFitness());
+            solve(configParser, problemParser);
             System.out.println("");
         }
     }
@@ -50,6 +50,10 @@ class AtomicCounter {
         c.decrementAndGet();
     }
 
+    public int getAndIncrement() {
+        return c.getAndIncrement();
+    }
+
     public int value() {
         return c.get();
     }
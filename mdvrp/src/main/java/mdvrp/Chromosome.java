@@ -6,11 +6,37 @@ import java.util.List;
 public class Chromosome {
 
     List<Depot> depots;
+    CustomerLocations locations;
     double fitness; // Less fitness is better, this is a minimization problem
     int tooManyRoutes;
 
     public Chromosome(List<Depot> depots) {
         this.depots = depots;
+        this.locations = new CustomerLocations(depots.get(0).model.customerCount);
+        this.locations.indexAll(depots);
+    }
+
+    /**
+     * Builds a chromosome with the given routes, as customer indices for each
+     * depot in the same order as the given depots. The depots are copied, so
+     * any routes they have are ignored.
+     */
+    static Chromosome fromRoutes(List<Depot> depots, int[][][] routes) {
+        List<Depot> depotsCopy = new ArrayList<>();
+        for (int d = 0; d < depots.size(); d++) {
+            Depot depot = new Depot(depots.get(d));
+            depot.routes.clear();
+            for (int[] customers : routes[d]) {
+                Route route = new Route();
+                for (int customer : customers) {
+                    route.add(customer);
+                }
+                depot.recalculateUsedRouteLengthAndCapacity(route);
+                depot.routes.add(route);
+            }
+            depotsCopy.add(depot);
+        }
+        return new Chromosome(depotsCopy);
     }
 
     public Chromosome(Chromosome chromosomeToCopy) {
@@ -18,7 +44,22 @@ public class Chromosome {
         for (Depot depot : chromosomeToCopy.depots) {
             this.depots.add(new Depot(depot));
         }
+        this.locations = new CustomerLocations(chromosomeToCopy.locations);
         this.fitness = chromosomeToCopy.fitness;
+        this.tooManyRoutes = chromosomeToCopy.tooManyRoutes;
+    }
+
+    /**
+     * Makes this chromosome equal to another chromosome of the same problem
+     * without allocating new depots or routes.
+     */
+    public void copyFrom(Chromosome chromosomeToCopy) {
+        for (int i = 0; i < this.depots.size(); i++) {
+            this.depots.get(i).copyFrom(chromosomeToCopy.depots.get(i));
+        }
+        this.locations.copyFrom(chromosomeToCopy.locations);
+        this.fitness = chromosomeToCopy.fitness;
+        this.tooManyRoutes = chromosomeToCopy.tooManyRoutes;
     }
 
     public void routeSchedulingFirstPart() {
@@ -31,13 +72,88 @@ public class Chromosome {
         for (Depot depot : this.depots) {
             depot.routeSchedulingSecondPart();
         }
+        this.locations.indexAll(this.depots);
+    }
+
+    /**
+     * @return the depot that currently serves the customer, or null if the
+     *         customer is not in any route.
+     */
+    public Depot depotOf(int customer) {
+        int depotIndex = this.locations.depotOf[customer];
+        return depotIndex == -1 ? null : this.depots.get(depotIndex);
+    }
+
+    /**
+     * Removes the customer from its route in constant time with the location
+     * index. The route is removed if it becomes empty, otherwise its length and
+     * capacity is recalculated.
+     *
+     * @return the depot the customer was removed from.
+     */
+    public Depot removeCustomer(int customer) {
+        Depot depot = this.depotOf(customer);
+        int routeIndex = this.locations.routeOf[customer];
+        int position = this.locations.positionOf[customer];
+        Route route = depot.routes.get(routeIndex);
+        route.removeAt(position);
+        this.locations.forget(customer);
+        if (route.isEmpty()) {
+            depot.recycleRoute(depot.routes.remove(routeIndex));
+            this.locations.indexDepot(depot, routeIndex);
+        } else {
+            depot.recalculateUsedRouteLengthAndCapacity(route);
+            this.locations.indexRoute(depot, routeIndex, position);
+        }
+        return depot;
+    }
+
+    /**
+     * Inserts the customer into an existing route of the depot and updates the
+     * route length, capacity and the location index.
+     */
+    public void insertCustomer(Depot depot, int routeIndex, int position, int customer) {
+        Route route = depot.routes.get(routeIndex);
+        route.add(position, customer);
+        depot.recalculateUsedRouteLengthAndCapacity(route);
+        this.locations.indexRoute(depot, routeIndex, position);
+    }
+
+    /**
+     * Creates a new route in the depot with the customer as its only stop.
+     */
+    public void insertCustomerInNewRoute(Depot depot, int customer) {
+        Route route = depot.newRoute();
+        route.add(customer);
+        depot.routes.add(route);
+        depot.recalculateUsedRouteLengthAndCapacity(route);
+        this.locations.indexRoute(depot, depot.routes.size() - 1, 0);
+    }
+
+    /**
+     * Structural hash of the chromosome from the incrementally updated route
+     * hashes. Chromosomes with the same routes in the same depots get the same
+     * hash, independent of the order of the routes within a depot.
+     */
+    public long hash() {
+        long hash = 0;
+        for (Depot depot : this.depots) {
+            long depotHash = 0;
+            for (Route route : depot.routes) {
+                depotHash ^= route.hash;
+            }
+            hash += Helper.mix64(depotHash + depot.getIndex() * 0x9e3779b97f4a7c15L);
+        }
+        return hash;
     }
 
     // Dynamic
     public void updateFitnessByTotalDistanceWithPenalty(int generation) {
         double fitness = 0.0;
         for (Depot depot : this.depots) {
-            fitness += depot.routes.stream().map(x -> x.routeLength).reduce(0.0, Double::sum);
+            for (Route route : depot.routes) {
+                fitness += route.routeLength;
+            }
         }
         // Distance-based penalty
         double penaltyWeight = 1000.0;
@@ -53,6 +169,12 @@ public class Chromosome {
     }
 
     public void getLegality(int maxVehicesPerDepot) {
-        this.tooManyRoutes = (int) this.depots.stream().filter(x -> x.routes.size() > maxVehicesPerDepot).count();
+        int tooManyRoutes = 0;
+        for (Depot depot : this.depots) {
+            if (depot.routes.size() > maxVehicesPerDepot) {
+                tooManyRoutes++;
+            }
+        }
+        this.tooManyRoutes = tooManyRoutes;
     }
 }
@@ -14,6 +14,8 @@ public class ConfigParser {
     int populationSize;
     int maxGeneration;
     double stopThreshold;
+    boolean lowerBound;
+    double stopGap;
     double eliteRatio;
     double crossoverChance;
     double bound;
@@ -24,9 +26,77 @@ public class ConfigParser {
     int apprate;
     boolean verbose;
     int saveInterval;
+    int traceInterval;
+    boolean jfrEvents;
+    int decompositionPartitions;
+    int partitionMaxGeneration;
+    boolean reusePopulationBuffers;
+    boolean offHeapPopulation;
+    boolean steadyState;
+    boolean replaceDuplicates;
+    boolean adaptiveOperators;
+    boolean feasibilityRepair;
+    String solver;
+    int alnsIterations;
+    int alnsRuns;
+    int alnsRegretK;
+    int racers;
+    String distributedRole;
+    String coordinatorHost;
+    int coordinatorPort;
+    int migrationInterval;
+    int migrationSize;
+    int threadCount;
+    String seeding;
+    long seed;
 
     Yaml yaml = new Yaml();
 
+    public ConfigParser() {
+    }
+
+    public ConfigParser(ConfigParser configToCopy) {
+        this.inputFile = configToCopy.inputFile;
+        this.populationSize = configToCopy.populationSize;
+        this.maxGeneration = configToCopy.maxGeneration;
+        this.stopThreshold = configToCopy.stopThreshold;
+        this.lowerBound = configToCopy.lowerBound;
+        this.stopGap = configToCopy.stopGap;
+        this.eliteRatio = configToCopy.eliteRatio;
+        this.crossoverChance = configToCopy.crossoverChance;
+        this.bound = configToCopy.bound;
+        this.tournamentSelectionNumber = configToCopy.tournamentSelectionNumber;
+        this.crossoverInsertionNumber = configToCopy.crossoverInsertionNumber;
+        this.intraDepotMutationRate = configToCopy.intraDepotMutationRate;
+        this.interDepotMutationRate = configToCopy.interDepotMutationRate;
+        this.apprate = configToCopy.apprate;
+        this.verbose = configToCopy.verbose;
+        this.saveInterval = configToCopy.saveInterval;
+        this.traceInterval = configToCopy.traceInterval;
+        this.jfrEvents = configToCopy.jfrEvents;
+        this.decompositionPartitions = configToCopy.decompositionPartitions;
+        this.partitionMaxGeneration = configToCopy.partitionMaxGeneration;
+        this.reusePopulationBuffers = configToCopy.reusePopulationBuffers;
+        this.offHeapPopulation = configToCopy.offHeapPopulation;
+        this.steadyState = configToCopy.steadyState;
+        this.replaceDuplicates = configToCopy.replaceDuplicates;
+        this.adaptiveOperators = configToCopy.adaptiveOperators;
+        this.feasibilityRepair = configToCopy.feasibilityRepair;
+        this.solver = configToCopy.solver;
+        this.alnsIterations = configToCopy.alnsIterations;
+        this.alnsRuns = configToCopy.alnsRuns;
+        this.alnsRegretK = configToCopy.alnsRegretK;
+        this.racers = configToCopy.racers;
+        this.distributedRole = configToCopy.distributedRole;
+        this.coordinatorHost = configToCopy.coordinatorHost;
+        this.coordinatorPort = configToCopy.coordinatorPort;
+        this.migrationInterval = configToCopy.migrationInterval;
+        this.migrationSize = configToCopy.migrationSize;
+        this.threadCount = configToCopy.threadCount;
+        this.seeding = configToCopy.seeding;
+        this.seed = configToCopy.seed;
+    }
+
     public void parseConfig() {
         try {
             InputStream inputStream = new FileInputStream(new File("config.yaml"));
@@ -35,6 +105,8 @@ public class ConfigParser {
             this.populationSize = (int) obj.get("population_size");
             this.maxGeneration = (int) obj.get("max_generation");
             this.stopThreshold = (double) obj.get("stop_threshold");
+            this.lowerBound = (boolean) obj.get("lower_bound");
+            this.stopGap = (double) obj.get("stop_gap");
             this.eliteRatio = (double) obj.get("elite_ratio");
             this.crossoverChance = (double) obj.get("crossover_chance");
             this.bound = (double) obj.get("bound");
@@ -45,6 +117,29 @@ public class ConfigParser {
             this.apprate = (int) obj.get("APPRATE");
             this.verbose = (boolean) obj.get("verbose");
             this.saveInterval = (int) obj.get("save_interval");
+            this.traceInterval = (int) obj.get("trace_interval");
+            this.jfrEvents = (boolean) obj.get("jfr_events");
+            this.decompositionPartitions = (int) obj.get("decomposition_partitions");
+            this.partitionMaxGeneration = (int) obj.get("partition_max_generation");
+            this.reusePopulationBuffers = (boolean) obj.get("reuse_population_buffers");
+            this.offHeapPopulation = (boolean) obj.get("off_heap_population");
+            this.steadyState = (boolean) obj.get("steady_state");
+            this.replaceDuplicates = (boolean) obj.get("replace_duplicates");
+            this.adaptiveOperators = (boolean) obj.get("adaptive_operators");
+            this.feasibilityRepair = (boolean) obj.get("feasibility_repair");
+            this.solver = obj.get("solver").toString();
+            this.alnsIterations = (int) obj.get("alns_iterations");
+            this.alnsRuns = (int) obj.get("alns_runs");
+            this.alnsRegretK = (int) obj.get("alns_regret_k");
+            this.racers = (int) obj.get("racers");
+            this.distributedRole = obj.get("distributed_role").toString();
+            this.coordinatorHost = obj.get("coordinator_host").toString();
+            this.coordinatorPort = (int) obj.get("coordinator_port");
+            this.migrationInterval = (int) obj.get("migration_interval");
+            this.migrationSize = (int) obj.get("migration_size");
+            this.threadCount = (int) obj.get("thread_count");
+            this.seeding = obj.get("seeding").toString();
+            this.seed = ((Number) obj.get("seed")).longValue();
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
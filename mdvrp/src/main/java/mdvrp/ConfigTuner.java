@@ -0,0 +1,290 @@
+package mdvrp;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the GA parameters in config.yaml with F-race. The first candidate
+ * configuration is config.yaml itself and the others are sampled uniformly from
+ * the ranges in PARAMETERS. Every candidate that is still in the race is run on
+ * one block at a time, a block being an instance and a seed, with the runs of a
+ * block in parallel on one thread each. From the firstTest'th block on, a
+ * Friedman test on the best fitness of the runs checks whether the candidates
+ * differ, and if so every candidate that is significantly worse than the best
+ * one by the post-hoc test is dropped. The race ends when one candidate is
+ * left or after maxBlocks blocks, and config.yaml with the parameters of the
+ * candidate with the best mean rank is written to the output file.
+ *
+ * Every run has the population size of config.yaml and a fixed number of
+ * generations, so all runs of a block cost about the same.
+ */
+public class ConfigTuner {
+    // Name in config.yaml, lower and upper bound, and whether it is an integer
+    private static final Object[][] PARAMETERS = { { "elite_ratio", 0.0, 0.05, false },
+            { "crossover_chance", 0.4, 1.0, false }, { "bound", 1.2, 3.0, false },
+            { "tournament_selection_number", 0.5, 1.0, false }, { "crossover_insertion_number", 0.5, 1.0, false },
+            { "intra_depot_mutation_rate", 0.0, 0.6, false }, { "inter_depot_mutation_rate", 0.0, 0.6, false },
+            { "APPRATE", 2, 20, true } };
+
+    int candidateCount = 16;
+    int firstTest = 5;
+    int maxBlocks = 40;
+    int generations = 500;
+    int threads = Runtime.getRuntime().availableProcessors();
+    double significance = 0.05;
+    long seed = 1;
+    Path outputFile = Paths.get("config.tuned.yaml");
+    List<String> instances = new ArrayList<>();
+
+    /**
+     * Parses the options --candidates, --first-test, --blocks, --generations,
+     * --threads, --significance, --seed and --output, followed by the instances
+     * to race on, which default to p01 to p10.
+     */
+    static ConfigTuner fromArguments(String[] arguments) {
+        ConfigTuner tuner = new ConfigTuner();
+        for (int i = 0; i < arguments.length; i++) {
+            switch (arguments[i]) {
+            case "--candidates":
+                tuner.candidateCount = Integer.parseInt(arguments[++i]);
+                break;
+            case "--first-test":
+                tuner.firstTest = Integer.parseInt(arguments[++i]);
+                break;
+            case "--blocks":
+                tuner.maxBlocks = Integer.parseInt(arguments[++i]);
+                break;
+            case "--generations":
+                tuner.generations = Integer.parseInt(arguments[++i]);
+                break;
+            case "--threads":
+                tuner.threads = Integer.parseInt(arguments[++i]);
+                break;
+            case "--significance":
+                tuner.significance = Double.parseDouble(arguments[++i]);
+                break;
+            case "--seed":
+                tuner.seed = Long.parseLong(arguments[++i]);
+                break;
+            case "--output":
+                tuner.outputFile = Paths.get(arguments[++i]);
+                break;
+            default:
+                tuner.instances.add(arguments[i]);
+            }
+        }
+        if (tuner.instances.isEmpty()) {
+            for (int i = 1; i <= 10; i++) {
+                tuner.instances.add(i < 10 ? "p0" + i : "p" + i);
+            }
+        }
+        return tuner;
+    }
+
+    /**
+     * Runs the race and writes the configuration of the winner.
+     *
+     * @return the values of PARAMETERS of the winner.
+     */
+    double[] run() {
+        ConfigParser base = new ConfigParser();
+        base.parseConfig();
+        List<double[]> candidates = this.sampleCandidates(base);
+        List<Integer> alive = new ArrayList<>();
+        for (int c = 0; c < candidates.size(); c++) {
+            alive.add(c);
+        }
+        // The best fitness of every candidate in every block, NaN once dropped
+        List<double[]> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.println("Racing " + candidates.size() + " configurations on " + this.instances.size()
+                + " instances with " + this.threads + " threads");
+        try {
+            for (int block = 0; block < this.maxBlocks && alive.size() > 1; block++) {
+                String instance = this.instances.get(block % this.instances.size());
+                long runSeed = block / this.instances.size() + 1;
+                results.add(this.runBlock(pool, base, candidates, alive, instance, runSeed));
+
+                String line = "Block " + (block + 1) + " (" + instance + ", seed " + runSeed + "): ";
+                if (block + 1 >= this.firstTest) {
+                    double[][] blocks = this.aliveResults(results, alive);
+                    double p = Statistics.friedman(blocks);
+                    line += "Friedman p-value " + String.format("%.4f", p);
+                    if (p < this.significance) {
+                        double[] pValues = Statistics.friedmanVersusBest(blocks);
+                        List<Integer> survivors = new ArrayList<>();
+                        for (int j = 0; j < alive.size(); j++) {
+                            if (pValues[j] >= this.significance) {
+                                survivors.add(alive.get(j));
+                            }
+                        }
+                        line += ", dropped " + (alive.size() - survivors.size());
+                        alive = survivors;
+                    }
+                    line += ", ";
+                }
+                System.out.println(line + alive.size() + " left");
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        double[][] blocks = this.aliveResults(results, alive);
+        double[] meanRanks = new double[alive.size()];
+        for (double[] block : blocks) {
+            double[] ranks = Statistics.ranks(block);
+            for (int j = 0; j < alive.size(); j++) {
+                meanRanks[j] += ranks[j] / blocks.length;
+            }
+        }
+        int winner = 0;
+        for (int j = 1; j < alive.size(); j++) {
+            winner = meanRanks[j] < meanRanks[winner] ? j : winner;
+        }
+        double[] best = candidates.get(alive.get(winner));
+        System.out.println("Best configuration (candidate " + alive.get(winner) + ", mean rank "
+                + Helper.roundDouble(meanRanks[winner]) + " of " + alive.size() + "):");
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            System.out.println("  " + PARAMETERS[i][0] + ": " + format(i, best[i]));
+        }
+        this.writeConfig(best);
+        return best;
+    }
+
+    private List<double[]> sampleCandidates(ConfigParser base) {
+        List<double[]> candidates = new ArrayList<>();
+        candidates.add(new double[] { base.eliteRatio, base.crossoverChance, base.bound,
+                base.tournamentSelectionNumber, base.crossoverInsertionNumber, base.intraDepotMutationRate,
+                base.interDepotMutationRate, base.apprate });
+        SplittableRandom random = new SplittableRandom(this.seed);
+        for (int c = 1; c < this.candidateCount; c++) {
+            double[] values = new double[PARAMETERS.length];
+            for (int i = 0; i < PARAMETERS.length; i++) {
+                double lower = ((Number) PARAMETERS[i][1]).doubleValue();
+                double upper = ((Number) PARAMETERS[i][2]).doubleValue();
+                values[i] = (boolean) PARAMETERS[i][3] ? random.nextInt((int) lower, (int) upper + 1)
+                        : Math.round((lower + random.nextDouble() * (upper - lower)) * 100) / 100.0;
+            }
+            candidates.add(values);
+        }
+        return candidates;
+    }
+
+    /**
+     * Runs every candidate that is still in the race on the instance with the
+     * seed, in parallel.
+     *
+     * @return the best fitness of each candidate, NaN for dropped candidates.
+     */
+    private double[] runBlock(ExecutorService pool, ConfigParser base, List<double[]> candidates,
+            List<Integer> alive, String instance, long runSeed) {
+        List<Future<Double>> runs = new ArrayList<>();
+        for (int c : alive) {
+            ConfigParser configParser = this.configFor(base, candidates.get(c));
+            configParser.inputFile = instance;
+            configParser.seed = runSeed;
+            runs.add(pool.submit(() -> {
+                // Every run assigns the customers to the depots of its own problem
+                ProblemParser problemParser = new ProblemParser();
+                problemParser.parseFile(instance);
+                // A fitness of 0 is never reached, so every run has all generations
+                Solver solver = new Solver(configParser, problemParser, 0.0);
+                solver.printProgress = false;
+                solver.runGA();
+                return solver.bestFitness();
+            }));
+        }
+        double[] fitness = new double[candidates.size()];
+        Arrays.fill(fitness, Double.NaN);
+        try {
+            for (int j = 0; j < alive.size(); j++) {
+                fitness[alive.get(j)] = runs.get(j).get();
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } catch (ExecutionException e) {
+            throw new Error(e.getCause());
+        }
+        return fitness;
+    }
+
+    private ConfigParser configFor(ConfigParser base, double[] values) {
+        ConfigParser configParser = new ConfigParser(base);
+        configParser.eliteRatio = values[0];
+        configParser.crossoverChance = values[1];
+        configParser.bound = values[2];
+        configParser.tournamentSelectionNumber = values[3];
+        configParser.crossoverInsertionNumber = values[4];
+        configParser.intraDepotMutationRate = values[5];
+        configParser.interDepotMutationRate = values[6];
+        configParser.apprate = (int) values[7];
+        configParser.maxGeneration = this.generations;
+        // Every run must have all generations, and the gap is not printed
+        configParser.stopGap = 0.0;
+        configParser.lowerBound = false;
+        configParser.threadCount = 1;
+        configParser.verbose = false;
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.traceInterval = 0;
+        configParser.steadyState = false;
+        configParser.offHeapPopulation = false;
+        return configParser;
+    }
+
+    /**
+     * @return the results of the candidates in alive, one row per block.
+     */
+    private double[][] aliveResults(List<double[]> results, List<Integer> alive) {
+        double[][] blocks = new double[results.size()][alive.size()];
+        for (int b = 0; b < results.size(); b++) {
+            for (int j = 0; j < alive.size(); j++) {
+                blocks[b][j] = results.get(b)[alive.get(j)];
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Writes config.yaml with the tuned parameters replaced, keeping the comments
+     * and the other settings.
+     */
+    private void writeConfig(double[] values) {
+        try {
+            List<String> lines = Files.readAllLines(Paths.get("config.yaml"));
+            for (int l = 0; l < lines.size(); l++) {
+                for (int i = 0; i < PARAMETERS.length; i++) {
+                    if (lines.get(l).startsWith(PARAMETERS[i][0] + ":")) {
+                        lines.set(l, PARAMETERS[i][0] + ": " + format(i, values[i]));
+                    }
+                }
+            }
+            FileWriter writer = new FileWriter(this.outputFile.toString());
+            for (String line : lines) {
+                writer.write(line + "\n");
+            }
+            writer.close();
+            System.out.println("Wrote the configuration to " + this.outputFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String format(int parameter, double value) {
+        return (boolean) PARAMETERS[parameter][3] ? Integer.toString((int) value) : Double.toString(value);
+    }
+}
@@ -6,6 +6,7 @@ public class Customer {
     private int x;
     private int y;
     private int demand; // Demand means how much capacity this customer requires in a vehicle/route
+    private int index; // Dense index into the arrays of the ProblemModel
 
     public Customer(int id, int x, int y, int demand) {
         this.id = id;
@@ -35,4 +36,12 @@ public class Customer {
         return this.demand;
     }
 
+    public int getIndex() {
+        return this.index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
 }
@@ -0,0 +1,76 @@
+package mdvrp;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index from each customer to the depot, route and position it has in a
+ * chromosome, so that finding and removing a customer does not need to scan
+ * every route. All arrays are indexed by the dense customer index of the
+ * ProblemModel, and the depot is stored by its dense index, which is also its
+ * position in Chromosome.depots.
+ *
+ * The index must be updated by every operation that moves customers.
+ */
+public class CustomerLocations {
+    final int[] depotOf;
+    final int[] routeOf;
+    final int[] positionOf;
+
+    public CustomerLocations(int customerCount) {
+        this.depotOf = new int[customerCount];
+        this.routeOf = new int[customerCount];
+        this.positionOf = new int[customerCount];
+        Arrays.fill(this.depotOf, -1);
+    }
+
+    public CustomerLocations(CustomerLocations locationsToCopy) {
+        this.depotOf = Arrays.copyOf(locationsToCopy.depotOf, locationsToCopy.depotOf.length);
+        this.routeOf = Arrays.copyOf(locationsToCopy.routeOf, locationsToCopy.routeOf.length);
+        this.positionOf = Arrays.copyOf(locationsToCopy.positionOf, locationsToCopy.positionOf.length);
+    }
+
+    public void copyFrom(CustomerLocations locationsToCopy) {
+        System.arraycopy(locationsToCopy.depotOf, 0, this.depotOf, 0, this.depotOf.length);
+        System.arraycopy(locationsToCopy.routeOf, 0, this.routeOf, 0, this.routeOf.length);
+        System.arraycopy(locationsToCopy.positionOf, 0, this.positionOf, 0, this.positionOf.length);
+    }
+
+    public void indexAll(List<Depot> depots) {
+        Arrays.fill(this.depotOf, -1);
+        for (Depot depot : depots) {
+            this.indexDepot(depot, 0);
+        }
+    }
+
+    /**
+     * Updates the location of every customer in the routes of the depot, starting
+     * with the route at fromRoute. Must be called when routes are added to or
+     * removed from the depot.
+     */
+    public void indexDepot(Depot depot, int fromRoute) {
+        for (int r = fromRoute; r < depot.routes.size(); r++) {
+            this.indexRoute(depot, r, 0);
+        }
+    }
+
+    /**
+     * Updates the location of the customers in a route, starting at the given
+     * position. Must be called when customers are added to, removed from or
+     * reordered within the route.
+     */
+    public void indexRoute(Depot depot, int routeIndex, int fromPosition) {
+        Route route = depot.routes.get(routeIndex);
+        int depotIndex = depot.getIndex();
+        for (int i = fromPosition; i < route.size(); i++) {
+            int customer = route.get(i);
+            this.depotOf[customer] = depotIndex;
+            this.routeOf[customer] = routeIndex;
+            this.positionOf[customer] = i;
+        }
+    }
+
+    public void forget(int customer) {
+        this.depotOf[customer] = -1;
+    }
+}
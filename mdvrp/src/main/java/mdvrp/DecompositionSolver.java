@@ -0,0 +1,405 @@
+package mdvrp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Solves very large instances by splitting the depots into spatial partitions.
+ * Each customer belongs to the partition of its nearest depot, which is the
+ * same assignment as Solver.initDepotAssignment() uses. Every partition is
+ * solved in parallel by its own Solver, all on one shared worker pool, so the
+ * machine is not oversubscribed with a pool per partition. The partial
+ * solutions are stitched
+ * together and improved by a boundary-repair pass that moves swappable
+ * customers across partitions.
+ *
+ * The partitions have their own customer indices, so they are not traced. With
+ * trace_interval set, the trace only gets the stitched solution.
+ *
+ * The distance of a partition is only part of the total, so the partitions run
+ * their full generation budget, and the stop threshold is only checked against
+ * the stitched solution.
+ */
+public class DecompositionSolver {
+    int partitionCount;
+    int maxVehicesPerDepot;
+    int threadCount;
+    int traceInterval;
+    int partitionMaxGeneration;
+    double bound;
+    double stopThreshold;
+    Path tracePath = Paths.get("generations", "trace.bin");
+
+    private ConfigParser partitionConfig;
+    private List<Depot> depots;
+    private List<Customer> customers;
+    private List<Solver> solvers = new ArrayList<>();
+    private ExecutorService workers;
+    private List<int[]> globalIndexOfLocal = new ArrayList<>();
+    private Map<Integer, Integer> partitionOfDepotId = new HashMap<>();
+
+    private Chromosome best;
+
+    public DecompositionSolver(ConfigParser configParser, ProblemParser problemParser, double stopThreshold) {
+        this.partitionCount = Math.min(configParser.decompositionPartitions, problemParser.depots.size());
+        this.maxVehicesPerDepot = problemParser.maxVehicesPerDepot;
+        this.bound = configParser.bound;
+        this.stopThreshold = stopThreshold;
+        this.traceInterval = configParser.traceInterval;
+        this.partitionMaxGeneration = configParser.partitionMaxGeneration;
+        this.depots = problemParser.depots;
+        this.customers = problemParser.customers;
+        this.threadCount = configParser.threadCount > 0 ? configParser.threadCount
+                : Runtime.getRuntime().availableProcessors();
+        this.workers = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Each partition gets its own generation budget, and must not write to the
+        // shared solution file while running
+        this.partitionConfig = new ConfigParser(configParser);
+        this.partitionConfig.maxGeneration = configParser.partitionMaxGeneration;
+        this.partitionConfig.saveInterval = Integer.MAX_VALUE;
+        this.partitionConfig.verbose = false;
+        this.partitionConfig.traceInterval = 0;
+
+        List<List<Depot>> depotPartitions = this.partitionDepots();
+        for (int p = 0; p < depotPartitions.size(); p++) {
+            for (Depot depot : depotPartitions.get(p)) {
+                this.partitionOfDepotId.put(depot.getId(), p);
+            }
+        }
+
+        List<List<Customer>> customerPartitions = new ArrayList<>();
+        for (int p = 0; p < depotPartitions.size(); p++) {
+            customerPartitions.add(new ArrayList<>());
+        }
+        for (Customer customer : this.customers) {
+            customerPartitions.get(this.partitionOfDepotId.get(this.nearestDepot(customer).getId())).add(customer);
+        }
+
+        for (int p = 0; p < depotPartitions.size(); p++) {
+            if (customerPartitions.get(p).isEmpty()) {
+                continue;
+            }
+            ProblemParser subProblem = new ProblemParser();
+            subProblem.maxVehicesPerDepot = this.maxVehicesPerDepot;
+            for (Depot depot : depotPartitions.get(p)) {
+                // The solver assigns customers to the depots it is given, so each partition
+                // needs its own copies
+                subProblem.depots.add(new Depot(depot));
+            }
+            // Each partition gets its own model with dense indices, so that the per
+            // chromosome arrays only grow with the size of the partition
+            int[] globalIndices = new int[customerPartitions.get(p).size()];
+            for (int i = 0; i < globalIndices.length; i++) {
+                Customer customer = customerPartitions.get(p).get(i);
+                globalIndices[i] = customer.getIndex();
+                subProblem.customers
+                        .add(new Customer(customer.getId(), customer.getX(), customer.getY(), customer.getDemand()));
+            }
+            subProblem.model = new ProblemModel(subProblem.depots, subProblem.customers);
+            // Solvers on a shared pool expect the customers to be assigned already
+            Solver.initDepotAssignment(subProblem.depots, subProblem.customers, this.bound);
+            this.globalIndexOfLocal.add(globalIndices);
+            ConfigParser solverConfig = this.partitionConfig;
+            if (configParser.seed >= 0) {
+                // Give every partition its own reproducible random streams
+                solverConfig = new ConfigParser(this.partitionConfig);
+                solverConfig.seed = Helper.mixSeed(configParser.seed, p, 0) & Long.MAX_VALUE;
+            }
+            this.solvers.add(new Solver(solverConfig, subProblem, Double.NEGATIVE_INFINITY, this.workers,
+                    new AtomicBoolean(false)));
+        }
+    }
+
+    /**
+     * Groups the depots into partitionCount clusters with k-means on the depot
+     * coordinates. The centroids are initialized by farthest-point selection so
+     * the result is deterministic.
+     */
+    private List<List<Depot>> partitionDepots() {
+        int k = this.partitionCount;
+        double[] centroidX = new double[k];
+        double[] centroidY = new double[k];
+        centroidX[0] = this.depots.get(0).getX();
+        centroidY[0] = this.depots.get(0).getY();
+        for (int c = 1; c < k; c++) {
+            Depot farthest = null;
+            double farthestDistance = -1.0;
+            for (Depot depot : this.depots) {
+                double distance = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < c; i++) {
+                    distance = Math.min(distance, Math.hypot(depot.getX() - centroidX[i], depot.getY() - centroidY[i]));
+                }
+                if (distance > farthestDistance) {
+                    farthestDistance = distance;
+                    farthest = depot;
+                }
+            }
+            centroidX[c] = farthest.getX();
+            centroidY[c] = farthest.getY();
+        }
+
+        int[] assignment = new int[this.depots.size()];
+        boolean changed = true;
+        for (int iteration = 0; iteration < 100 && changed; iteration++) {
+            changed = false;
+            for (int d = 0; d < this.depots.size(); d++) {
+                Depot depot = this.depots.get(d);
+                int closest = 0;
+                double closestDistance = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < k; c++) {
+                    double distance = Math.hypot(depot.getX() - centroidX[c], depot.getY() - centroidY[c]);
+                    if (distance < closestDistance) {
+                        closestDistance = distance;
+                        closest = c;
+                    }
+                }
+                if (iteration == 0 || assignment[d] != closest) {
+                    assignment[d] = closest;
+                    changed = true;
+                }
+            }
+
+            double[] sumX = new double[k];
+            double[] sumY = new double[k];
+            int[] count = new int[k];
+            for (int d = 0; d < this.depots.size(); d++) {
+                sumX[assignment[d]] += this.depots.get(d).getX();
+                sumY[assignment[d]] += this.depots.get(d).getY();
+                count[assignment[d]]++;
+            }
+            for (int c = 0; c < k; c++) {
+                // Empty clusters keep their old centroid
+                if (count[c] > 0) {
+                    centroidX[c] = sumX[c] / count[c];
+                    centroidY[c] = sumY[c] / count[c];
+                }
+            }
+        }
+
+        List<List<Depot>> partitions = new ArrayList<>();
+        for (int c = 0; c < k; c++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int d = 0; d < this.depots.size(); d++) {
+            partitions.get(assignment[d]).add(this.depots.get(d));
+        }
+        partitions.removeIf(List::isEmpty);
+        return partitions;
+    }
+
+    private Depot nearestDepot(Customer customer) {
+        double lowestDistance = Double.POSITIVE_INFINITY;
+        Depot bestDepot = null;
+        for (Depot depot : this.depots) {
+            double distance = Helper.euclidianDistance(depot.getX(), depot.getY(), customer.getX(), customer.getY());
+            if (distance < lowestDistance) {
+                lowestDistance = distance;
+                bestDepot = depot;
+            }
+        }
+        return bestDepot;
+    }
+
+    public void solve() {
+        System.out.println("Solving " + this.solvers.size() + " partitions in parallel");
+        for (Solver solver : this.solvers) {
+            solver.start();
+        }
+        try {
+            for (Solver solver : this.solvers) {
+                solver.join();
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } finally {
+            this.workers.shutdown();
+        }
+        System.out.println();
+
+        this.best = this.stitch();
+        int moves = this.boundaryRepair(this.best);
+        this.best.locations.indexAll(this.best.depots);
+        this.best.getLegality(this.maxVehicesPerDepot);
+        this.best.updateFitnessByTotalDistanceWithPenalty(0);
+        System.out.println("Boundary repair moved " + moves + " customers across partitions");
+        if (this.best.tooManyRoutes == 0 && this.best.fitness <= this.stopThreshold) {
+            System.out.println(ConsoleColors.GREEN + "Stitched solution reached the stop threshold: "
+                    + this.stopThreshold + ConsoleColors.RESET);
+        }
+        if (this.traceInterval > 0) {
+            this.traceBest();
+        }
+    }
+
+    private void traceBest() {
+        try {
+            GenerationTrace trace = new GenerationTrace(this.tracePath, this.best.depots);
+            trace.record(this.partitionMaxGeneration, this.best);
+            trace.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Combines the best chromosome of each partition into a single chromosome with
+     * the depots in the same order as in the problem file.
+     */
+    private Chromosome stitch() {
+        Map<Integer, Depot> solvedDepots = new HashMap<>();
+        Map<Integer, int[]> globalIndicesOfDepot = new HashMap<>();
+        for (int p = 0; p < this.solvers.size(); p++) {
+            for (Depot depot : this.solvers.get(p).bestChromosome().depots) {
+                solvedDepots.put(depot.getId(), depot);
+                globalIndicesOfDepot.put(depot.getId(), this.globalIndexOfLocal.get(p));
+            }
+        }
+        List<Depot> stitchedDepots = new ArrayList<>();
+        for (Depot depot : this.depots) {
+            Depot stitchedDepot = new Depot(depot);
+            Depot solvedDepot = solvedDepots.get(depot.getId());
+            // Depots that got no customers were left out of the partitions
+            if (solvedDepot != null) {
+                int[] globalIndices = globalIndicesOfDepot.get(depot.getId());
+                for (Route solvedRoute : solvedDepot.routes) {
+                    Route route = new Route();
+                    for (int i = 0; i < solvedRoute.size(); i++) {
+                        route.add(globalIndices[solvedRoute.get(i)]);
+                    }
+                    stitchedDepot.recalculateUsedRouteLengthAndCapacity(route);
+                    stitchedDepot.routes.add(route);
+                }
+            }
+            stitchedDepots.add(stitchedDepot);
+        }
+        return new Chromosome(stitchedDepots);
+    }
+
+    /**
+     * Moves customers to depots in other partitions when they are within the
+     * swapping bound of that depot and the move shortens the total distance
+     * without breaking the route length, load or vehicle limits.
+     *
+     * @return the number of customers moved.
+     */
+    private int boundaryRepair(Chromosome chromosome) {
+        int moves = 0;
+        boolean improved = true;
+        for (int pass = 0; pass < 10 && improved; pass++) {
+            improved = false;
+            for (Depot fromDepot : chromosome.depots) {
+                for (int r = 0; r < fromDepot.routes.size(); r++) {
+                    Route fromRoute = fromDepot.routes.get(r);
+                    for (int i = 0; i < fromRoute.size(); i++) {
+                        if (this.tryMoveAcrossPartitions(chromosome, fromDepot, r, i)) {
+                            moves++;
+                            improved = true;
+                            if (fromRoute.isEmpty()) {
+                                fromDepot.pruneEmtpyRoutes();
+                                r--;
+                                break;
+                            }
+                            i--;
+                        }
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    private boolean tryMoveAcrossPartitions(Chromosome chromosome, Depot fromDepot, int routeIndex, int index) {
+        ProblemModel model = fromDepot.model;
+        Route fromRoute = fromDepot.routes.get(routeIndex);
+        int customer = fromRoute.get(index);
+        int demand = model.customerDemand[customer];
+        double min = Double.POSITIVE_INFINITY;
+        for (Depot depot : chromosome.depots) {
+            min = Math.min(min, model.depotDistance(depot.getIndex(), customer));
+        }
+
+        double removalGain = fromDepot.removalGain(routeIndex, index);
+
+        Depot bestDepot = null;
+        Route bestRoute = null;
+        int bestPosition = 0;
+        double bestDelta = removalGain;
+        for (Depot depot : chromosome.depots) {
+            if (depot == fromDepot || this.samePartition(depot, fromDepot)) {
+                continue;
+            }
+            double distance = model.depotDistance(depot.getIndex(), customer);
+            if ((distance - min) / min > this.bound) {
+                continue;
+            }
+            for (int r = 0; r < depot.routes.size(); r++) {
+                Route route = depot.routes.get(r);
+                if (route.usedCapacity + demand > depot.getMaxVehicleLoad()) {
+                    continue;
+                }
+                for (int k = 0; k <= route.size(); k++) {
+                    double delta = depot.insertionDelta(customer, r, k);
+                    if (delta < bestDelta && route.routeLength + delta <= depot.getMaxRouteDistance()) {
+                        bestDelta = delta;
+                        bestDepot = depot;
+                        bestRoute = route;
+                        bestPosition = k;
+                    }
+                }
+            }
+            if (depot.routes.size() < this.maxVehicesPerDepot && 2 * distance < bestDelta
+                    && 2 * distance <= depot.getMaxRouteDistance()) {
+                // A new route from the other depot is also a valid option
+                bestDelta = 2 * distance;
+                bestDepot = depot;
+                bestRoute = null;
+            }
+        }
+        if (bestDepot == null) {
+            return false;
+        }
+
+        fromRoute.removeAt(index);
+        fromDepot.recalculateUsedRouteLengthAndCapacity(fromRoute);
+        if (bestRoute == null) {
+            bestRoute = new Route();
+            bestDepot.routes.add(bestRoute);
+            bestPosition = 0;
+        }
+        bestRoute.add(bestPosition, customer);
+        bestDepot.recalculateUsedRouteLengthAndCapacity(bestRoute);
+        return true;
+    }
+
+    private boolean samePartition(Depot a, Depot b) {
+        return this.partitionOfDepotId.get(a.getId()).equals(this.partitionOfDepotId.get(b.getId()));
+    }
+
+    public void saveBest() {
+        if (this.best == null || this.best.tooManyRoutes > 0) {
+            return;
+        }
+        Solver.writeSolution(this.best.depots, Paths.get("solutions", "solution.res"));
+    }
+
+    public double bestFitness() {
+        return this.best.fitness;
+    }
+
+    Chromosome bestChromosome() {
+        return this.best;
+    }
+}
@@ -1,10 +1,11 @@
 package mdvrp;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 
 public class Depot {
@@ -13,11 +14,17 @@ public class Depot {
     private int maxVehicleLoad;
     private int x;
     private int y;
+    private int index; // Dense index into the arrays of the ProblemModel
+    ProblemModel model;
 
     private List<Customer> customers;
     private Set<Customer> swappableCustomers;
 
+    // Scratch space for insertion deltas, see insertionDeltas()
+    private static final ThreadLocal<double[]> DELTAS = ThreadLocal.withInitial(() -> new double[64]);
+
     List<Route> routes = new ArrayList<>();
+    private List<Route> spareRoutes = new ArrayList<>(); // Removed routes kept for reuse
 
     public Depot(int maxRouteDistance, int maxVehicleLoad) {
         // Ignore maxRouteDistance for 0
@@ -28,7 +35,8 @@ public class Depot {
         }
         this.maxVehicleLoad = maxVehicleLoad;
         this.customers = new ArrayList<>();
-        this.swappableCustomers = new HashSet<>();
+        // Insertion ordered, so that the iteration order is the same in every run
+        this.swappableCustomers = new LinkedHashSet<>();
     }
 
     public void initDepotSecond(int id, int x, int y) {
@@ -39,8 +47,15 @@ public class Depot {
         this.y = y;
     }
 
+    void setModel(ProblemModel model, int index) {
+        this.model = model;
+        this.index = index;
+    }
+
     public Depot(Depot depotToCopy) {
         this.id = depotToCopy.id;
+        this.index = depotToCopy.index;
+        this.model = depotToCopy.model;
         this.maxRouteDistance = depotToCopy.maxRouteDistance;
         this.maxVehicleLoad = depotToCopy.maxVehicleLoad;
         this.x = depotToCopy.x;
@@ -48,15 +63,248 @@ public class Depot {
         if (depotToCopy.customers != null) {
             this.customers = new ArrayList<>(depotToCopy.customers);
         }
-        this.swappableCustomers = new HashSet<>(depotToCopy.swappableCustomers);
+        // The swappable customers are only added before the first copy is made, so all
+        // copies can share the same set
+        this.swappableCustomers = depotToCopy.swappableCustomers;
         this.routes = new ArrayList<>();
         for (Route route : depotToCopy.routes) {
             this.routes.add(new Route(route));
         }
     }
 
-    public void shuffleCustomers() {
-        Collections.shuffle(this.customers);
+    /**
+     * Makes the routes of this depot equal to the routes of the same depot in
+     * another chromosome. Route objects and their customer arrays are reused, so
+     * this does not allocate once the depot has seen enough routes.
+     */
+    public void copyFrom(Depot depotToCopy) {
+        while (this.routes.size() > depotToCopy.routes.size()) {
+            this.recycleRoute(this.routes.remove(this.routes.size() - 1));
+        }
+        while (this.routes.size() < depotToCopy.routes.size()) {
+            this.routes.add(this.newRoute());
+        }
+        for (int i = 0; i < depotToCopy.routes.size(); i++) {
+            this.routes.get(i).copyFrom(depotToCopy.routes.get(i));
+        }
+    }
+
+    /**
+     * @return an empty route, which is reused from a previously removed route if
+     *         there is one. The route is not added to the depot.
+     */
+    public Route newRoute() {
+        if (this.spareRoutes.isEmpty()) {
+            return new Route();
+        }
+        Route route = this.spareRoutes.remove(this.spareRoutes.size() - 1);
+        route.clear();
+        return route;
+    }
+
+    /**
+     * Keeps a route that has been removed from the depot so it can be reused by
+     * newRoute().
+     */
+    public void recycleRoute(Route route) {
+        this.spareRoutes.add(route);
+    }
+
+    /**
+     * Finds the feasible insertion position of the customer that gives the
+     * shortest resulting route, where feasible means that the route length and
+     * vehicle load limits are kept.
+     *
+     * @return the route index in the upper 32 bits and the position in the lower
+     *         32 bits, or -1 if there is no feasible position.
+     */
+    public long findBestInsertion(int customer) {
+        final int demand = this.model.customerDemand[customer];
+        final double toDepot = this.model.depotDistance(this.index, customer);
+        double bestRouteLength = Double.POSITIVE_INFINITY;
+        long best = -1;
+        for (int r = 0; r < this.routes.size(); r++) {
+            Route route = this.routes.get(r);
+            if (route.usedCapacity + demand > this.maxVehicleLoad) {
+                continue;
+            }
+            // Long routes are evaluated at once by the route kernel, short routes
+            // are faster with the positions evaluated one by one
+            if (route.size() >= RouteKernel.INSTANCE.minBatchSize()) {
+                double[] deltas = this.insertionDeltas(route, customer);
+                for (int k = 0; k <= route.size(); k++) {
+                    double routeLength = route.routeLength + deltas[k];
+                    if (routeLength <= this.maxRouteDistance && routeLength < bestRouteLength) {
+                        bestRouteLength = routeLength;
+                        best = ((long) r << 32) | k;
+                    }
+                }
+                continue;
+            }
+            int prev = -1;
+            double prevToCustomer = toDepot;
+            for (int k = 0; k <= route.size(); k++) {
+                int next = k == route.size() ? -1 : route.get(k);
+                double customerToNext = next == -1 ? toDepot : this.model.customerDistance(customer, next);
+                double prevToNext;
+                if (prev == -1 && next == -1) {
+                    prevToNext = 0.0;
+                } else if (prev == -1) {
+                    prevToNext = this.model.depotDistance(this.index, next);
+                } else if (next == -1) {
+                    prevToNext = this.model.depotDistance(this.index, prev);
+                } else {
+                    prevToNext = this.model.customerDistance(prev, next);
+                }
+                double routeLength = route.routeLength + prevToCustomer + customerToNext - prevToNext;
+                if (routeLength <= this.maxRouteDistance && routeLength < bestRouteLength) {
+                    bestRouteLength = routeLength;
+                    best = ((long) r << 32) | k;
+                }
+                prev = next;
+                prevToCustomer = customerToNext;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the insertion delta of the customer at every position of the route,
+     *         in a buffer of the calling thread that is overwritten by the next
+     *         call.
+     */
+    private double[] insertionDeltas(Route route, int customer) {
+        double[] deltas = DELTAS.get();
+        if (deltas.length < route.size() + 2) {
+            deltas = new double[2 * (route.size() + 2)];
+            DELTAS.set(deltas);
+        }
+        RouteKernel.INSTANCE.insertionDeltas(this.model.customerX, this.model.customerY, route.customers,
+                route.size(), this.model.depotX[this.index], this.model.depotY[this.index], customer, deltas);
+        return deltas;
+    }
+
+    /**
+     * @return how much longer the route gets by inserting the customer at the
+     *         position, for example a position found by findBestInsertion().
+     */
+    public double insertionDelta(int customer, int routeIndex, int position) {
+        Route route = this.routes.get(routeIndex);
+        int prev = position == 0 ? -1 : route.get(position - 1);
+        int next = position == route.size() ? -1 : route.get(position);
+        return this.distance(prev, customer) + this.distance(customer, next) - this.distance(prev, next);
+    }
+
+    /**
+     * Finds the feasible position in one route with the smallest insertion
+     * delta, with the same feasibility rules as findBestInsertion().
+     *
+     * @return the position, or -1 if the customer does not fit in the route.
+     */
+    public int findBestInsertionInRoute(int customer, int routeIndex) {
+        Route route = this.routes.get(routeIndex);
+        if (route.usedCapacity + this.model.customerDemand[customer] > this.maxVehicleLoad) {
+            return -1;
+        }
+        double[] deltas = this.insertionDeltas(route, customer);
+        int best = -1;
+        double bestDelta = Double.POSITIVE_INFINITY;
+        for (int k = 0; k <= route.size(); k++) {
+            if (route.routeLength + deltas[k] <= this.maxRouteDistance && deltas[k] < bestDelta) {
+                bestDelta = deltas[k];
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return how much shorter the route gets by removing the customer at the
+     *         position.
+     */
+    public double removalGain(int routeIndex, int position) {
+        Route route = this.routes.get(routeIndex);
+        int prev = position == 0 ? -1 : route.get(position - 1);
+        int customer = route.get(position);
+        int next = position == route.size() - 1 ? -1 : route.get(position + 1);
+        return this.distance(prev, customer) + this.distance(customer, next) - this.distance(prev, next);
+    }
+
+    /**
+     * Distance between two customers, where -1 is this depot.
+     */
+    private double distance(int from, int to) {
+        if (from == -1 && to == -1) {
+            return 0.0;
+        } else if (from == -1) {
+            return this.model.depotDistance(this.index, to);
+        } else if (to == -1) {
+            return this.model.depotDistance(this.index, from);
+        }
+        return this.model.customerDistance(from, to);
+    }
+
+    public void shuffleCustomers(SplittableRandom random) {
+        Helper.shuffle(this.customers, random);
+    }
+
+    /**
+     * Orders the customers as a nearest-neighbour giant tour, starting with a
+     * random customer so that different chromosomes get different tours.
+     */
+    public void orderCustomersByNearestNeighbour(SplittableRandom random) {
+        int n = this.customers.size();
+        if (n < 2) {
+            return;
+        }
+        List<Customer> unvisited = new ArrayList<>(this.customers);
+        List<Customer> tour = new ArrayList<>(n);
+        Customer current = unvisited.remove(random.nextInt(n));
+        tour.add(current);
+        while (!unvisited.isEmpty()) {
+            int nearest = 0;
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < unvisited.size(); i++) {
+                double distance = this.model.customerDistance(current.getIndex(), unvisited.get(i).getIndex());
+                if (distance < nearestDistance) {
+                    nearestDistance = distance;
+                    nearest = i;
+                }
+            }
+            // Swap-remove, the order of the unvisited customers does not matter
+            current = unvisited.get(nearest);
+            unvisited.set(nearest, unvisited.get(unvisited.size() - 1));
+            unvisited.remove(unvisited.size() - 1);
+            tour.add(current);
+        }
+        this.customers = tour;
+    }
+
+    /**
+     * Orders the customers by their polar angle around the depot, starting at a
+     * random angle and sweeping in a random direction.
+     */
+    public void orderCustomersBySweep(SplittableRandom random) {
+        double startAngle = random.nextDouble() * 2 * Math.PI;
+        double direction = random.nextBoolean() ? 1.0 : -1.0;
+        double depotX = this.model.depotX[this.index];
+        double depotY = this.model.depotY[this.index];
+        int n = this.customers.size();
+        double[] sweepAngle = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            int customer = this.customers.get(i).getIndex();
+            double angle = direction * (Math.atan2(this.model.customerY[customer] - depotY,
+                    this.model.customerX[customer] - depotX) - startAngle);
+            sweepAngle[i] = ((angle % (2 * Math.PI)) + 2 * Math.PI) % (2 * Math.PI);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(sweepAngle[a], sweepAngle[b]));
+        List<Customer> tour = new ArrayList<>(n);
+        for (int i : order) {
+            tour.add(this.customers.get(i));
+        }
+        this.customers = tour;
     }
 
     /**
@@ -69,29 +317,28 @@ public class Depot {
         this.routes.clear();
 
         Route route = new Route();
-        int fromX = this.getX();
-        int fromY = this.getY();
-        Customer prevCustomer = null;
+        int prevCustomer = -1;
         double prevCustomersDistanceHome = 0.0;
-        for (Customer customer : this.customers) {
-            double distance = Helper.euclidianDistance(fromX, fromY, customer.getX(), customer.getY());
-            double distanceHome = Helper.euclidianDistance(customer.getX(), customer.getY(), this.getX(), this.getY());
-            if (this.getMaxVehicleLoad() >= route.usedCapacity + customer.getDemand()
+        for (Customer c : this.customers) {
+            int customer = c.getIndex();
+            double distance = prevCustomer == -1 ? this.model.depotDistance(this.index, customer)
+                    : this.model.customerDistance(prevCustomer, customer);
+            double distanceHome = this.model.depotDistance(this.index, customer);
+            int demand = this.model.customerDemand[customer];
+            if (this.getMaxVehicleLoad() >= route.usedCapacity + demand
                     && this.getMaxRouteDistance() >= route.routeLength + distance + distanceHome) {
                 // Successfully adds the customer to the current route
-                route.customers.add(customer);
+                route.add(customer);
                 route.routeLength += distance;
-                route.usedCapacity += customer.getDemand();
-                fromX = customer.getX();
-                fromY = customer.getY();
+                route.usedCapacity += demand;
                 prevCustomer = customer;
                 prevCustomersDistanceHome = distanceHome;
             } else {
-                if (prevCustomer == null) {
+                if (prevCustomer == -1) {
                     // This happens if the first customer is too far out or too heavy
-                    route.customers.add(customer);
+                    route.add(customer);
                     route.routeLength = distanceHome * 2;
-                    route.usedCapacity = customer.getDemand();
+                    route.usedCapacity = demand;
                     this.routes.add(route);
 
                     route = new Route();
@@ -101,14 +348,11 @@ public class Depot {
                     this.routes.add(route);
 
                     route = new Route();
-                    route.customers.add(customer);
-                    distance = Helper.euclidianDistance(this.getX(), this.getY(), customer.getX(), customer.getY());
-                    route.routeLength = distance;
-                    route.usedCapacity = customer.getDemand();
-                    fromX = customer.getX();
-                    fromY = customer.getY();
+                    route.add(customer);
+                    route.routeLength = distanceHome;
+                    route.usedCapacity = demand;
                     prevCustomer = customer;
-                    prevCustomersDistanceHome = distance;
+                    prevCustomersDistanceHome = distanceHome;
                 }
 
                 // // * Skip sanity check for performance gain
@@ -118,7 +362,7 @@ public class Depot {
                 // }
             }
         }
-        if (route.customers.isEmpty()) {
+        if (route.isEmpty()) {
             // This happens if the first customer is illegal and it is the only customer,
             // then we do not want to add an empty route
             return;
@@ -147,7 +391,7 @@ public class Depot {
 
             Route nextRoute = this.routes.get(next_i);
             double cost = route.routeLength + nextRoute.routeLength;
-            Customer customer = route.customers.get(route.customers.size() - 1);
+            int customer = route.last();
 
             // Cache stuff
             double routeLength = route.routeLength;
@@ -155,8 +399,8 @@ public class Depot {
             double nextRouteLength = nextRoute.routeLength;
             double nextRouteCapacity = nextRoute.usedCapacity;
 
-            route.customers.remove(customer);
-            nextRoute.customers.add(0, customer);
+            route.removeAt(route.size() - 1);
+            nextRoute.add(0, customer);
             this.recalculateUsedRouteLengthAndCapacity(route);
             this.recalculateUsedRouteLengthAndCapacity(nextRoute);
             double newCost = route.routeLength + nextRoute.routeLength;
@@ -166,8 +410,8 @@ public class Depot {
                 continue;
             } else {
                 // Not feasible or not better --> roll back
-                route.customers.add(customer);
-                nextRoute.customers.remove(0);
+                route.add(customer);
+                nextRoute.removeAt(0);
                 route.routeLength = routeLength;
                 route.usedCapacity = routeCapacity;
                 nextRoute.routeLength = nextRouteLength;
@@ -176,32 +420,32 @@ public class Depot {
         }
 
         // Remove all routes that lost all customers
-        this.routes = this.routes.stream().filter(x -> !x.customers.isEmpty()).collect(Collectors.toList());
+        this.routes = this.routes.stream().filter(x -> !x.isEmpty()).collect(Collectors.toList());
 
         // We do not need customers after route scheduling is done
         this.customers = null;
     }
 
     public void pruneEmtpyRoutes() {
-        this.routes = this.routes.stream().filter(x -> x.customers.size() > 0).collect(Collectors.toList());
+        this.routes = this.routes.stream().filter(x -> x.size() > 0).collect(Collectors.toList());
     }
 
     public void recalculateUsedRouteLengthAndCapacity(Route route) {
-        int fromX = this.getX();
-        int fromY = this.getY();
-        double routeLength = 0.0;
+        final int[] customerDemand = this.model.customerDemand;
+        final int[] customers = route.customers;
         double usedCapacity = 0.0;
-        for (Customer customer : route.customers) {
-            routeLength += Helper.euclidianDistance(fromX, fromY, customer.getX(), customer.getY());
-            usedCapacity += customer.getDemand();
-            fromX = customer.getX();
-            fromY = customer.getY();
-        }
-        routeLength += Helper.euclidianDistance(fromX, fromY, this.getX(), this.getY());
-        route.routeLength = routeLength;
+        for (int i = 0; i < route.size; i++) {
+            usedCapacity += customerDemand[customers[i]];
+        }
+        route.routeLength = RouteKernel.INSTANCE.routeLength(this.model.customerX, this.model.customerY, customers,
+                route.size, this.model.depotX[this.index], this.model.depotY[this.index]);
         route.usedCapacity = usedCapacity;
     }
 
+    public int getIndex() {
+        return this.index;
+    }
+
     public int getId() {
         return this.id;
     }
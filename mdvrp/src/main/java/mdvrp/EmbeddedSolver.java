@@ -0,0 +1,76 @@
+package mdvrp;
+
+/**
+ * Entry point for using the solvers from another application. Unlike App, it
+ * reads neither config.yaml nor ./test_data, prints nothing unless verbose is
+ * set and never writes files by itself.
+ */
+public class EmbeddedSolver {
+
+    private EmbeddedSolver() {
+    }
+
+    public static SolverResult solve(Problem problem, SolverOptions options) {
+        return solve(problem, options, null);
+    }
+
+    /**
+     * Solves the problem and blocks until the stop threshold or the iteration
+     * limit is reached. With a cache directory in the options, a problem that
+     * was solved before with the same options returns the cached solution at
+     * once, and the genetic algorithm starts from the cached solution of the
+     * most similar problem with the same depots.
+     *
+     * @param listener notified of every improvement, may be null. It is only
+     *                 called by the genetic algorithm.
+     */
+    public static SolverResult solve(Problem problem, SolverOptions options, ProgressListener listener) {
+        long start = System.nanoTime();
+        ConfigParser configParser = options.toConfigParser();
+        ProblemParser problemParser = problem.toProblemParser();
+
+        SolutionCache cache = null;
+        long key = 0;
+        if (options.cacheDirectory != null) {
+            cache = new SolutionCache(options.cacheDirectory, options.cacheMaxBytes);
+            key = SolutionCache.keyOf(problem, options);
+            SolutionCache.Entry hit = cache.get(key);
+            if (hit != null) {
+                Chromosome chromosome = Chromosome.fromRoutes(problemParser.depots, hit.routes);
+                chromosome.getLegality(problemParser.maxVehicesPerDepot);
+                chromosome.updateFitnessByTotalDistanceWithPenalty(0);
+                return new SolverResult(chromosome, hit.seed, (System.nanoTime() - start) / 1e9);
+            }
+        }
+
+        Chromosome best;
+        long seed;
+        if (configParser.solver.equals("alns")) {
+            ALNSSolver solver = new ALNSSolver(configParser, problemParser, configParser.stopThreshold);
+            solver.printProgress = configParser.verbose;
+            solver.solve();
+            best = solver.getBest();
+            seed = solver.seed;
+        } else if (configParser.solver.equals("ga")) {
+            Solver solver = new Solver(configParser, problemParser, configParser.stopThreshold);
+            solver.printProgress = configParser.verbose;
+            solver.progressListener = listener;
+            if (cache != null) {
+                SolutionCache.Entry nearest = cache.nearest(problem);
+                if (nearest != null) {
+                    solver.seedPopulation(nearest.routesFor(problem));
+                }
+            }
+            solver.runGA();
+            best = solver.bestChromosome();
+            seed = solver.seed;
+        } else {
+            throw new Error("Unknown solver: " + configParser.solver);
+        }
+
+        if (cache != null && best.tooManyRoutes == 0) {
+            cache.put(key, problem, best, seed);
+        }
+        return new SolverResult(best, seed, (System.nanoTime() - start) / 1e9);
+    }
+}
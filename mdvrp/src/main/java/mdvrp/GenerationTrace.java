@@ -0,0 +1,307 @@
+package mdvrp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Append-only binary trace of the best chromosome of every few generations,
+ * for the visualizer and the GIF maker. The GA thread only copies the routes
+ * into a snapshot and queues it. A background thread encodes the snapshots and
+ * writes them through a buffered file channel.
+ *
+ * The file starts with a header with the magic number, the version, and the
+ * ID, coordinates and limits of every depot and the ID, coordinates and demand
+ * of every customer. Then follows one frame per snapshot: its length in bytes,
+ * the generation, the fitness and the routes of each depot. A route that is
+ * equal to a route of the same depot in the previous frame is stored as a
+ * reference to that route, so frames of a slowly changing best chromosome are
+ * small. All integers except the magic number, the version and the fitness are
+ * unsigned LEB128 varints.
+ *
+ * export() turns a trace into one text solution file per frame, named after
+ * the generation, which is the format visualizer.py and gif_maker.py read.
+ */
+public class GenerationTrace {
+    private static final int MAGIC = 0x4d445654; // "MDVT"
+    private static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int QUEUE_CAPACITY = 64;
+    // Queued by close() to stop the writer
+    private static final Snapshot END = new Snapshot(-1, 0.0, null);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final BlockingQueue<Snapshot> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private volatile IOException failure;
+
+    private static class Snapshot {
+        final int generation;
+        final double fitness;
+        final int[][][] routes; // Customer indices of each route of each depot
+
+        Snapshot(int generation, double fitness, int[][][] routes) {
+            this.generation = generation;
+            this.fitness = fitness;
+            this.routes = routes;
+        }
+    }
+
+    /**
+     * Creates the trace file, replacing an existing one, and writes the header.
+     */
+    public GenerationTrace(Path path, List<Depot> depots) throws IOException {
+        Path directory = path.getParent();
+        if (directory != null && !Files.exists(directory)) {
+            Files.createDirectories(directory);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ProblemModel model = depots.get(0).model;
+        this.buffer.putInt(MAGIC);
+        this.buffer.putInt(VERSION);
+        this.putVarint(depots.size());
+        for (Depot depot : depots) {
+            this.putVarint(depot.getId());
+            this.putVarint(depot.getX());
+            this.putVarint(depot.getY());
+            double maxRouteDistance = depot.getMaxRouteDistance();
+            this.putVarint(maxRouteDistance == Double.POSITIVE_INFINITY ? 0 : (int) maxRouteDistance);
+            this.putVarint(depot.getMaxVehicleLoad());
+        }
+        this.putVarint(model.customerCount);
+        for (Customer customer : model.customers) {
+            this.putVarint(customer.getId());
+            this.putVarint(customer.getX());
+            this.putVarint(customer.getY());
+            this.putVarint(customer.getDemand());
+        }
+        this.writer = new Thread(this::writeSnapshots, "generation-trace");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a snapshot of the chromosome. Only waits for the writer if it is
+     * QUEUE_CAPACITY snapshots behind.
+     */
+    public void record(int generation, Chromosome chromosome) {
+        int[][][] routes = new int[chromosome.depots.size()][][];
+        for (int d = 0; d < routes.length; d++) {
+            List<Route> depotRoutes = chromosome.depots.get(d).routes;
+            routes[d] = new int[depotRoutes.size()][];
+            for (int r = 0; r < depotRoutes.size(); r++) {
+                routes[d][r] = depotRoutes.get(r).toArray();
+            }
+        }
+        try {
+            this.queue.put(new Snapshot(generation, chromosome.fitness, routes));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the queued snapshots and closes the file.
+     */
+    public void close() throws IOException {
+        try {
+            this.queue.put(END);
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    private void writeSnapshots() {
+        try {
+            Snapshot previous = null;
+            ByteBuffer frame = ByteBuffer.allocate(BUFFER_BYTES);
+            for (Snapshot snapshot = this.queue.take(); snapshot != END; snapshot = this.queue.take()) {
+                frame = encodeFrame(snapshot, previous, frame);
+                this.putVarint(frame.remaining());
+                while (frame.hasRemaining()) {
+                    if (!this.buffer.hasRemaining()) {
+                        this.flush();
+                    }
+                    int length = Math.min(frame.remaining(), this.buffer.remaining());
+                    ByteBuffer slice = frame.slice();
+                    slice.limit(length);
+                    this.buffer.put(slice);
+                    frame.position(frame.position() + length);
+                }
+                previous = snapshot;
+            }
+            this.flush();
+            this.channel.close();
+        } catch (IOException e) {
+            this.failure = e;
+            // Keep taking snapshots, so the GA is never blocked by a full queue
+            try {
+                while (this.queue.take() != END) {
+                }
+                this.channel.close();
+            } catch (InterruptedException | IOException ignored) {
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encodes the snapshot into the frame buffer, or a larger one if it does not
+     * fit.
+     *
+     * @return the buffer, flipped for reading.
+     */
+    private static ByteBuffer encodeFrame(Snapshot snapshot, Snapshot previous, ByteBuffer frame) {
+        int maxBytes = 32;
+        for (int[][] depotRoutes : snapshot.routes) {
+            maxBytes += 5;
+            for (int[] route : depotRoutes) {
+                maxBytes += 10 + 5 * route.length;
+            }
+        }
+        if (frame.capacity() < maxBytes) {
+            frame = ByteBuffer.allocate(maxBytes);
+        }
+        frame.clear();
+        putVarint(frame, snapshot.generation);
+        frame.putDouble(snapshot.fitness);
+        for (int d = 0; d < snapshot.routes.length; d++) {
+            int[][] previousRoutes = previous == null ? new int[0][] : previous.routes[d];
+            putVarint(frame, snapshot.routes[d].length);
+            for (int[] route : snapshot.routes[d]) {
+                // 0 for a new route, otherwise 1 + the index of the equal route in the
+                // previous frame
+                int reference = 0;
+                for (int r = 0; r < previousRoutes.length; r++) {
+                    if (Arrays.equals(route, previousRoutes[r])) {
+                        reference = r + 1;
+                        break;
+                    }
+                }
+                putVarint(frame, reference);
+                if (reference == 0) {
+                    putVarint(frame, route.length);
+                    for (int customer : route) {
+                        putVarint(frame, customer);
+                    }
+                }
+            }
+        }
+        frame.flip();
+        return frame;
+    }
+
+    private void putVarint(int value) throws IOException {
+        if (this.buffer.remaining() < 5) {
+            this.flush();
+        }
+        putVarint(this.buffer, value);
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Writes every frame of the trace as a text solution file named
+     * generation.res in the directory.
+     *
+     * @return the number of files written.
+     */
+    public static int export(Path trace, Path directory) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(trace));
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new Error(trace + " is not a generation trace");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new Error("Unsupported generation trace version " + version);
+        }
+        List<Depot> depots = new ArrayList<>();
+        int depotCount = getVarint(buffer);
+        for (int d = 0; d < depotCount; d++) {
+            int id = getVarint(buffer);
+            int x = getVarint(buffer);
+            int y = getVarint(buffer);
+            Depot depot = new Depot(getVarint(buffer), getVarint(buffer));
+            depot.initDepotSecond(id, x, y);
+            depots.add(depot);
+        }
+        List<Customer> customers = new ArrayList<>();
+        int customerCount = getVarint(buffer);
+        for (int i = 0; i < customerCount; i++) {
+            customers.add(new Customer(getVarint(buffer), getVarint(buffer), getVarint(buffer), getVarint(buffer)));
+        }
+        new ProblemModel(depots, customers);
+
+        int frames = 0;
+        int[][][] previous = new int[depotCount][0][];
+        while (buffer.hasRemaining()) {
+            int end = getVarint(buffer);
+            end += buffer.position();
+            int generation = getVarint(buffer);
+            buffer.getDouble(); // The fitness, which is recalculated from the routes
+            int[][][] routes = new int[depotCount][][];
+            for (int d = 0; d < depotCount; d++) {
+                routes[d] = new int[getVarint(buffer)][];
+                for (int r = 0; r < routes[d].length; r++) {
+                    int reference = getVarint(buffer);
+                    if (reference > 0) {
+                        routes[d][r] = previous[d][reference - 1];
+                        continue;
+                    }
+                    routes[d][r] = new int[getVarint(buffer)];
+                    for (int k = 0; k < routes[d][r].length; k++) {
+                        routes[d][r][k] = getVarint(buffer);
+                    }
+                }
+            }
+            if (buffer.position() != end) {
+                throw new Error("Corrupt frame at generation " + generation + " in " + trace);
+            }
+            Chromosome chromosome = Chromosome.fromRoutes(depots, routes);
+            Solver.writeSolution(chromosome.depots, directory.resolve(generation + ".res"));
+            previous = routes;
+            frames++;
+        }
+        return frames;
+    }
+}
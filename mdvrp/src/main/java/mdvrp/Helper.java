@@ -1,11 +1,10 @@
 package mdvrp;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.SplittableRandom;
 
 // From
 // https://stackoverflow.com/questions/1526826/printing-all-variables-value-from-a-class
@@ -17,18 +16,49 @@ public class Helper {
         return Math.sqrt(Math.pow((x1 - x2), 2) + Math.pow((y1 - y2), 2));
     }
 
-    static <T> T getRandomElementFromList(List<T> list) {
-        return list.get(ThreadLocalRandom.current().nextInt(list.size()));
+    static <T> T getRandomElementFromList(List<T> list, SplittableRandom random) {
+        return list.get(random.nextInt(list.size()));
     }
 
-    static <T> T getRandomElementFromList(T[] array) {
-        return array[ThreadLocalRandom.current().nextInt(array.length)];
+    static <T> T getRandomElementFromList(T[] array, SplittableRandom random) {
+        return array[random.nextInt(array.length)];
     }
 
-    static <T> List<T> getNRandomElementsFromList(List<T> list, int n) {
-        List<T> listCopy = new ArrayList<>(list);
-        Collections.shuffle(listCopy);
-        return listCopy.subList(0, n);
+    /**
+     * Fisher-Yates shuffle with the given random source, so that threads with
+     * their own random sources do not contend on a shared one.
+     */
+    static <T> void shuffle(List<T> list, SplittableRandom random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            Collections.swap(list, i, random.nextInt(i + 1));
+        }
+    }
+
+    /**
+     * Derives a well distributed seed from a base seed and two stream
+     * coordinates with the SplitMix64 finalizer, so that neighbouring
+     * coordinates give unrelated random streams.
+     */
+    static long mixSeed(long seed, long a, long b) {
+        long h = mix64(seed + GOLDEN_GAMMA);
+        h = mix64(h + a * GOLDEN_GAMMA);
+        return mix64(h + b * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Adds a value to a running hash, for fingerprints that must be the same in
+     * every run.
+     */
+    static long combineHash(long hash, long value) {
+        return mix64(hash + value * GOLDEN_GAMMA);
+    }
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 
     static String roundDouble(double number) {
@@ -1,9 +0,0 @@
-package mdvrp;
-
-import java.util.ArrayList;
-import java.util.List;
-
-public class InsertionCostAndFeasibility {
-    List<List<Double>> insertionCost = new ArrayList<>();
-    List<List<Boolean>> maintainsFeasibility = new ArrayList<>();
-}
@@ -0,0 +1,199 @@
+package mdvrp;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates random instances in the format of the files in ./test_data, for
+ * testing how the solvers scale beyond the few hundred customers of the
+ * Cordeau instances. The same settings and seed always give the same instance.
+ *
+ * The area grows with the square root of the customer count, so the customer
+ * density stays about the same as in the Cordeau instances. Customers are
+ * spread uniformly, or in Gaussian clusters around random centres, and the
+ * depots are placed uniformly inside the area.
+ */
+public class InstanceGenerator {
+    public int customerCount = 1000;
+    public int depotCount = 4;
+    // 0 picks enough vehicles for routes of about ten customers
+    public int vehiclesPerDepot = 0;
+    // uniform or clustered
+    public String layout = "uniform";
+    // 0 picks one cluster per 200 customers
+    public int clusterCount = 0;
+    // Total demand divided by the total vehicle capacity, from just above 0
+    // (loose) to 1 (every vehicle is full)
+    public double capacityTightness = 0.8;
+    // The length of an average route divided by the route length limit, where 0
+    // means no limit. The limit is never shorter than the round trip to the
+    // customer farthest from its nearest depot
+    public double distanceTightness = 0.0;
+    public long seed = 1;
+
+    private static final int MAX_DEMAND = 25;
+
+    /**
+     * Parses the settings from the command line arguments customers, depots,
+     * layout, capacity tightness, distance tightness and seed, where the last
+     * ones can be left out.
+     */
+    static InstanceGenerator fromArguments(String[] arguments) {
+        InstanceGenerator generator = new InstanceGenerator();
+        if (arguments.length > 0) {
+            generator.customerCount = Integer.parseInt(arguments[0]);
+        }
+        if (arguments.length > 1) {
+            generator.depotCount = Integer.parseInt(arguments[1]);
+        }
+        if (arguments.length > 2) {
+            generator.layout = arguments[2];
+        }
+        if (arguments.length > 3) {
+            generator.capacityTightness = Double.parseDouble(arguments[3]);
+        }
+        if (arguments.length > 4) {
+            generator.distanceTightness = Double.parseDouble(arguments[4]);
+        }
+        if (arguments.length > 5) {
+            generator.seed = Long.parseLong(arguments[5]);
+        }
+        return generator;
+    }
+
+    /**
+     * Writes the instance to the path, creating the parent directories.
+     */
+    public void write(Path path) {
+        if (this.customerCount < 1 || this.depotCount < 1) {
+            throw new Error("An instance needs at least one customer and one depot");
+        }
+        if (this.capacityTightness <= 0.0 || this.capacityTightness > 1.0) {
+            throw new Error("The capacity tightness must be above 0 and at most 1");
+        }
+        if (this.distanceTightness < 0.0) {
+            throw new Error("The distance tightness can not be negative");
+        }
+        SplittableRandom random = new SplittableRandom(this.seed);
+        int side = Math.max(100, (int) Math.round(10 * Math.sqrt(this.customerCount)));
+
+        int[] customerX = new int[this.customerCount];
+        int[] customerY = new int[this.customerCount];
+        int[] demand = new int[this.customerCount];
+        this.placeCustomers(side, customerX, customerY, random);
+        long totalDemand = 0;
+        for (int i = 0; i < this.customerCount; i++) {
+            demand[i] = 1 + random.nextInt(MAX_DEMAND);
+            totalDemand += demand[i];
+        }
+
+        // Keep the depots off the border of the area
+        int[] depotX = new int[this.depotCount];
+        int[] depotY = new int[this.depotCount];
+        for (int d = 0; d < this.depotCount; d++) {
+            depotX[d] = side / 10 + random.nextInt(side - side / 5 + 1);
+            depotY[d] = side / 10 + random.nextInt(side - side / 5 + 1);
+        }
+
+        int vehicles = this.vehiclesPerDepot > 0 ? this.vehiclesPerDepot
+                : (int) Math.ceil(this.customerCount / (this.depotCount * 10.0));
+        int maxVehicleLoad = (int) Math.max(MAX_DEMAND,
+                Math.ceil(totalDemand / ((double) this.depotCount * vehicles * this.capacityTightness)));
+        int maxRouteDistance = this.distanceTightness == 0.0 ? 0
+                : this.maxRouteDistance(side, vehicles, customerX, customerY, depotX, depotY);
+
+        try {
+            Path directory = path.getParent();
+            if (directory != null && !Files.exists(directory)) {
+                Files.createDirectories(directory);
+            }
+            FileWriter writer = new FileWriter(path.toString());
+            writer.write(vehicles + " " + this.customerCount + " " + this.depotCount + "\n");
+            for (int d = 0; d < this.depotCount; d++) {
+                writer.write(maxRouteDistance + " " + maxVehicleLoad + "\n");
+            }
+            // The service duration and the visit combinations are not used by the
+            // solvers, so they are written as a single fixed combination
+            for (int i = 0; i < this.customerCount; i++) {
+                writer.write((i + 1) + " " + customerX[i] + " " + customerY[i] + " 0 " + demand[i] + " 1 1 1\n");
+            }
+            for (int d = 0; d < this.depotCount; d++) {
+                writer.write((this.customerCount + d + 1) + " " + depotX[d] + " " + depotY[d] + " 0 0 0 0\n");
+            }
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new Error("Cannot write the instance to " + path);
+        }
+    }
+
+    private void placeCustomers(int side, int[] customerX, int[] customerY, SplittableRandom random) {
+        switch (this.layout) {
+        case "uniform":
+            for (int i = 0; i < this.customerCount; i++) {
+                customerX[i] = random.nextInt(side + 1);
+                customerY[i] = random.nextInt(side + 1);
+            }
+            break;
+        case "clustered":
+            int clusters = this.clusterCount > 0 ? this.clusterCount : Math.max(1, this.customerCount / 200);
+            double[] centreX = new double[clusters];
+            double[] centreY = new double[clusters];
+            for (int c = 0; c < clusters; c++) {
+                centreX[c] = side * (0.1 + 0.8 * random.nextDouble());
+                centreY[c] = side * (0.1 + 0.8 * random.nextDouble());
+            }
+            // Clusters together cover about a quarter of the area
+            double spread = side / (4.0 * Math.sqrt(clusters));
+            for (int i = 0; i < this.customerCount; i++) {
+                int c = random.nextInt(clusters);
+                customerX[i] = clamp((int) Math.round(centreX[c] + spread * nextGaussian(random)), side);
+                customerY[i] = clamp((int) Math.round(centreY[c] + spread * nextGaussian(random)), side);
+            }
+            break;
+        default:
+            throw new Error("Unknown layout: " + this.layout);
+        }
+    }
+
+    /**
+     * @return the route length limit for the distance tightness, from the
+     *         length of a route with the average number of customers: the trip
+     *         from and back to the depot plus the gaps between the customers.
+     */
+    private int maxRouteDistance(int side, int vehicles, int[] customerX, int[] customerY, int[] depotX,
+            int[] depotY) {
+        double totalNearest = 0.0;
+        double farthestNearest = 0.0;
+        for (int i = 0; i < this.customerCount; i++) {
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int d = 0; d < this.depotCount; d++) {
+                nearest = Math.min(nearest, Helper.euclidianDistance(depotX[d], depotY[d], customerX[i], customerY[i]));
+            }
+            totalNearest += nearest;
+            farthestNearest = Math.max(farthestNearest, nearest);
+        }
+        double customersPerRoute = (double) this.customerCount / (this.depotCount * vehicles);
+        // The expected distance to the nearest of n uniform points in a square of
+        // area A is about 0.5 * sqrt(A / n)
+        double gap = 0.5 * side / Math.sqrt(this.customerCount);
+        double averageRoute = 2.0 * totalNearest / this.customerCount + customersPerRoute * gap;
+        return (int) Math.ceil(Math.max(2.0 * farthestNearest, averageRoute / this.distanceTightness));
+    }
+
+    private static int clamp(int value, int side) {
+        return Math.max(0, Math.min(side, value));
+    }
+
+    /**
+     * Standard normal value by the Box-Muller transform, as SplittableRandom has
+     * no nextGaussian() before Java 17.
+     */
+    private static double nextGaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble(); // In (0, 1], so the log is finite
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * random.nextDouble());
+    }
+}
@@ -0,0 +1,213 @@
+package mdvrp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One GA island of a distributed run, see IslandCoordinator. The island
+ * connects to the coordinator before its solver is created, since the seed of
+ * the solver is derived from the index the coordinator gives it. The
+ * coordinator rejects the island if it solves another instance.
+ *
+ * The GA thread never waits for the network. Outgoing migrants are snapshots
+ * of the routes that a writer thread sends, and are dropped while the writer is
+ * MAX_QUEUED messages behind. Incoming migrants are queued by a reader thread
+ * and taken by the solver at its next migration, and are dropped if the solver
+ * has not taken the last MAX_QUEUED yet.
+ */
+public class Island {
+    private static final int MAX_QUEUED = 64;
+    // Queued by finish() to stop the writer
+    private static final Message END = new Message(IslandCoordinator.STOP, 0.0, null);
+
+    final int index;
+    final Solver solver;
+
+    private final Socket socket;
+    private final DataOutputStream output;
+    private final DataInputStream input;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final BlockingQueue<Message> outgoing = new LinkedBlockingQueue<>();
+    private final BlockingQueue<int[][][]> incoming = new ArrayBlockingQueue<>(MAX_QUEUED);
+    private final Thread writer;
+    private final Thread reader;
+    private double reportedFitness = Double.POSITIVE_INFINITY;
+    private long migrantsSent;
+    private long migrantsReceived;
+    // Dropped by the GA thread when sending and by the reader when receiving
+    private final AtomicLong migrantsDropped = new AtomicLong();
+
+    private static class Message {
+        final byte type;
+        final double fitness;
+        final int[][][] routes;
+
+        Message(byte type, double fitness, int[][][] routes) {
+            this.type = type;
+            this.fitness = fitness;
+            this.routes = routes;
+        }
+    }
+
+    /**
+     * Connects to the coordinator in the config and creates the solver of this
+     * island. A non-negative seed in the config is mixed with the island index,
+     * so every island runs a different search.
+     */
+    public Island(ConfigParser configParser, ProblemParser problemParser, double stopThreshold) throws IOException {
+        if (configParser.steadyState || configParser.offHeapPopulation) {
+            throw new Error("Distributed islands do not work with steady_state or off_heap_population");
+        }
+        this.socket = new Socket(configParser.coordinatorHost, configParser.coordinatorPort);
+        this.socket.setTcpNoDelay(true);
+        this.output = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+        this.input = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+        this.output.writeLong(problemParser.fingerprint());
+        this.output.flush();
+        byte type = this.input.readByte();
+        if (type != IslandCoordinator.WELCOME) {
+            this.socket.close();
+            throw new IOException(type == IslandCoordinator.REJECT ? "The coordinator solves another instance"
+                    : "Expected a welcome message from the coordinator");
+        }
+        this.index = this.input.readInt();
+
+        ConfigParser islandConfig = new ConfigParser(configParser);
+        if (configParser.seed >= 0) {
+            islandConfig.seed = Helper.mixSeed(configParser.seed, this.index, 0) & Long.MAX_VALUE;
+        }
+        this.solver = new Solver(islandConfig, problemParser, stopThreshold, null, this.cancelled);
+        this.solver.island = this;
+        // Islands on the same machine would otherwise write the same trace
+        this.solver.tracePath = Paths.get("generations", "trace-" + this.index + ".bin");
+
+        this.writer = new Thread(this::writeMessages, "island-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.reader = new Thread(this::readMessages, "island-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Runs the GA until it finishes, reaches the threshold or is stopped by the
+     * coordinator, and reports the best legal solution.
+     */
+    public void run() {
+        System.out.println("Island " + this.index + " with seed " + this.solver.seed);
+        this.solver.runGA();
+        this.reportBest(this.solver.bestLegalChromosome());
+        this.outgoing.add(END);
+        try {
+            this.writer.join();
+            this.reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("\nIsland " + this.index + " sent " + this.migrantsSent + " migrants, received "
+                + this.migrantsReceived + " and dropped " + this.migrantsDropped.get());
+    }
+
+    /**
+     * Queues a copy of the chromosome for the next island, or drops it if the
+     * writer is behind.
+     */
+    void emigrate(Chromosome chromosome) {
+        if (this.outgoing.size() >= MAX_QUEUED) {
+            this.migrantsDropped.incrementAndGet();
+            return;
+        }
+        this.outgoing.add(
+                new Message(IslandCoordinator.MIGRANT, chromosome.fitness, IslandCoordinator.routesOf(chromosome)));
+        this.migrantsSent++;
+    }
+
+    /**
+     * @return the routes of the oldest migrant that has arrived, or null if there
+     *         is none.
+     */
+    int[][][] immigrate() {
+        int[][][] routes = this.incoming.poll();
+        if (routes != null) {
+            this.migrantsReceived++;
+        }
+        return routes;
+    }
+
+    /**
+     * Reports the chromosome to the coordinator if it is better than the last
+     * one reported. Does nothing for null.
+     */
+    void reportBest(Chromosome chromosome) {
+        if (chromosome == null || chromosome.fitness >= this.reportedFitness) {
+            return;
+        }
+        this.reportedFitness = chromosome.fitness;
+        this.outgoing.add(
+                new Message(IslandCoordinator.BEST, chromosome.fitness, IslandCoordinator.routesOf(chromosome)));
+    }
+
+    private void writeMessages() {
+        try {
+            for (Message message = this.outgoing.take(); message != END; message = this.outgoing.take()) {
+                this.output.writeByte(message.type);
+                this.output.writeDouble(message.fitness);
+                IslandCoordinator.writeRoutes(this.output, message.routes);
+                if (this.outgoing.isEmpty()) {
+                    this.output.flush();
+                }
+            }
+            this.output.flush();
+            // The coordinator closes the connection when it has read everything
+            this.socket.shutdownOutput();
+        } catch (IOException e) {
+            // The coordinator is gone, so the run cannot be coordinated anymore
+            e.printStackTrace();
+            this.cancelled.set(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readMessages() {
+        try {
+            while (true) {
+                byte type = this.input.readByte();
+                if (type == IslandCoordinator.STOP) {
+                    this.cancelled.set(true);
+                } else if (type == IslandCoordinator.MIGRANT) {
+                    this.input.readDouble();
+                    int[][][] routes = IslandCoordinator.readRoutes(this.input, this.solver.model.depotCount,
+                            this.solver.model.customerCount);
+                    if (!this.incoming.offer(routes)) {
+                        this.migrantsDropped.incrementAndGet();
+                    }
+                } else {
+                    throw new IOException("Unknown message type " + type);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // The coordinator closed the connection
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package mdvrp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coordinator of a distributed run, where every island is a GA in its own
+ * process, possibly on another machine. The islands connect over TCP and send
+ * the fingerprint of their instance, and an island with another instance than
+ * the coordinator is rejected. Every other island gets an index that decides
+ * its seed. Migrants from an island are relayed
+ * to the next island in a ring. The islands also report their best legal
+ * solution, and when one of them reaches the stop threshold every island is
+ * told to stop. The coordinator finishes when all islands have disconnected.
+ *
+ * Messages start with a type byte. Routes are sent as the depot count, and for
+ * every depot the route count and for every route its size and customer
+ * indices, which are checked against the instance when they are read.
+ */
+public class IslandCoordinator {
+    // Coordinator to island: the index of the island
+    static final byte WELCOME = 0;
+    // Both ways: fitness and routes of an elite chromosome
+    static final byte MIGRANT = 1;
+    // Island to coordinator: fitness and routes of the best legal solution
+    static final byte BEST = 2;
+    // Coordinator to island: stop at the end of the current generation
+    static final byte STOP = 3;
+    // Coordinator to island: the island solves another instance
+    static final byte REJECT = 4;
+
+    double stopThreshold;
+
+    private final ServerSocket serverSocket;
+    private final List<Depot> depots;
+    private final int customerCount;
+    private final long fingerprint;
+    private final List<Connection> islands = new ArrayList<>();
+    private int connected;
+    private boolean stopped;
+    private double bestFitness = Double.POSITIVE_INFINITY;
+    private int[][][] bestRoutes;
+    private long migrantsRelayed;
+
+    private static class Connection {
+        final int index;
+        final Socket socket;
+        final DataOutputStream output;
+
+        Connection(int index, Socket socket) throws IOException {
+            this.index = index;
+            this.socket = socket;
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+    }
+
+    /**
+     * Opens the server socket on the coordinator port of the config, where 0
+     * picks a free port.
+     */
+    public IslandCoordinator(ConfigParser configParser, ProblemParser problemParser, double stopThreshold)
+            throws IOException {
+        this.stopThreshold = stopThreshold;
+        this.depots = problemParser.depots;
+        this.customerCount = problemParser.model.customerCount;
+        this.fingerprint = problemParser.fingerprint();
+        this.serverSocket = new ServerSocket(configParser.coordinatorPort);
+    }
+
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts islands until every island that connected has disconnected again.
+     */
+    public void run() {
+        System.out.println("Coordinator listening on port " + this.getPort());
+        while (true) {
+            Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (IOException e) {
+                // Closed by the last island that disconnected
+                break;
+            }
+            Thread reader = new Thread(() -> this.serve(socket), "island-connection");
+            reader.setDaemon(true);
+            reader.start();
+        }
+        System.out.println("All " + this.connected + " islands finished, " + this.migrantsRelayed
+                + " migrants relayed, best fitness " + Helper.roundDouble(this.bestFitness));
+    }
+
+    private void serve(Socket socket) {
+        DataInputStream input;
+        Connection island;
+        try {
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            long fingerprint = input.readLong();
+            if (fingerprint != this.fingerprint) {
+                System.out.println(ConsoleColors.RED + "Rejected an island from " + socket.getInetAddress()
+                        + " that solves another instance" + ConsoleColors.RESET);
+                socket.getOutputStream().write(REJECT);
+                socket.close();
+                return;
+            }
+            island = this.register(socket);
+        } catch (IOException e) {
+            e.printStackTrace();
+            try {
+                socket.close();
+            } catch (IOException closeException) {
+                closeException.printStackTrace();
+            }
+            return;
+        }
+
+        try {
+            while (true) {
+                byte type = input.readByte();
+                double fitness = input.readDouble();
+                int[][][] routes = readRoutes(input, this.depots.size(), this.customerCount);
+                if (type == MIGRANT) {
+                    this.relay(island, fitness, routes);
+                } else if (type == BEST) {
+                    this.updateBest(fitness, routes);
+                } else {
+                    throw new IOException("Unknown message type " + type);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // The island has finished
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            this.disconnect(island);
+        }
+    }
+
+    private synchronized Connection register(Socket socket) throws IOException {
+        Connection island = new Connection(this.connected++, socket);
+        this.islands.add(island);
+        send(island, WELCOME, island.index, null);
+        if (this.stopped) {
+            send(island, STOP, 0, null);
+        }
+        return island;
+    }
+
+    /**
+     * Sends the migrant to the island after the sender in the ring of connected
+     * islands.
+     */
+    private synchronized void relay(Connection from, double fitness, int[][][] routes) {
+        if (this.islands.size() < 2) {
+            return;
+        }
+        Connection to = this.islands.get((this.islands.indexOf(from) + 1) % this.islands.size());
+        try {
+            send(to, MIGRANT, fitness, routes);
+            this.migrantsRelayed++;
+        } catch (IOException e) {
+            // The island is disconnecting, and its reader removes it
+        }
+    }
+
+    private synchronized void updateBest(double fitness, int[][][] routes) {
+        if (fitness < this.bestFitness) {
+            this.bestFitness = fitness;
+            this.bestRoutes = routes;
+        }
+        if (this.bestFitness <= this.stopThreshold && !this.stopped) {
+            this.stopped = true;
+            System.out.println(ConsoleColors.GREEN + "Island reached the threshold, stopping all islands"
+                    + ConsoleColors.RESET);
+            for (Connection island : this.islands) {
+                try {
+                    send(island, STOP, 0, null);
+                } catch (IOException e) {
+                    // Already disconnecting
+                }
+            }
+        }
+    }
+
+    private synchronized void disconnect(Connection island) {
+        this.islands.remove(island);
+        try {
+            island.socket.close();
+            if (this.islands.isEmpty()) {
+                this.serverSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void send(Connection island, byte type, double value, int[][][] routes) throws IOException {
+        island.output.writeByte(type);
+        if (type == WELCOME) {
+            island.output.writeInt((int) value);
+        } else if (type == MIGRANT) {
+            island.output.writeDouble(value);
+            writeRoutes(island.output, routes);
+        }
+        island.output.flush();
+    }
+
+    static void writeRoutes(DataOutputStream output, int[][][] routes) throws IOException {
+        output.writeInt(routes.length);
+        for (int[][] depotRoutes : routes) {
+            output.writeInt(depotRoutes.length);
+            for (int[] route : depotRoutes) {
+                output.writeInt(route.length);
+                for (int customer : route) {
+                    output.writeInt(customer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads routes written by writeRoutes(), and checks that they fit an
+     * instance with the given number of depots and customers.
+     */
+    static int[][][] readRoutes(DataInputStream input, int depotCount, int customerCount) throws IOException {
+        if (input.readInt() != depotCount) {
+            throw new IOException("Routes for another number of depots");
+        }
+        int[][][] routes = new int[depotCount][][];
+        for (int d = 0; d < routes.length; d++) {
+            int routeCount = input.readInt();
+            if (routeCount < 0 || routeCount > customerCount) {
+                throw new IOException("Route count out of range");
+            }
+            routes[d] = new int[routeCount][];
+            for (int r = 0; r < routes[d].length; r++) {
+                int size = input.readInt();
+                if (size < 0 || size > customerCount) {
+                    throw new IOException("Route size out of range");
+                }
+                routes[d][r] = new int[size];
+                for (int k = 0; k < routes[d][r].length; k++) {
+                    routes[d][r][k] = input.readInt();
+                    if (routes[d][r][k] < 0 || routes[d][r][k] >= customerCount) {
+                        throw new IOException("Customer index out of range");
+                    }
+                }
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * @return the routes of each depot of a chromosome, as customer indices.
+     */
+    static int[][][] routesOf(Chromosome chromosome) {
+        int[][][] routes = new int[chromosome.depots.size()][][];
+        for (int d = 0; d < routes.length; d++) {
+            List<Route> depotRoutes = chromosome.depots.get(d).routes;
+            routes[d] = new int[depotRoutes.size()][];
+            for (int r = 0; r < depotRoutes.size(); r++) {
+                routes[d][r] = depotRoutes.get(r).toArray();
+            }
+        }
+        return routes;
+    }
+
+    public synchronized void saveBest() {
+        if (this.bestRoutes != null) {
+            Solver.writeSolution(Chromosome.fromRoutes(this.depots, this.bestRoutes).depots,
+                    Paths.get("solutions", "solution.res"));
+        }
+    }
+
+    public synchronized double bestFitness() {
+        return this.bestFitness;
+    }
+
+    synchronized long migrantsRelayed() {
+        return this.migrantsRelayed;
+    }
+}
@@ -0,0 +1,97 @@
+package mdvrp;
+
+/**
+ * Lower bounds on the total distance of any solution of an instance, computed
+ * once per model. Both bounds only assume that every customer is visited once
+ * by a route that starts and ends at a depot, so they also hold for solutions
+ * that break the capacity, distance or vehicle limits.
+ *
+ * The degree bound counts half of the two shortest edges at every customer,
+ * since every customer has two edges in its route. An edge to the nearest depot
+ * can be both, for a route with one customer. The spanning tree bound merges
+ * all depots into one node, where every route becomes a cycle through that node,
+ * and the routes together connect all customers to it. They are therefore at
+ * least as long as the minimum spanning tree of the customers and the merged
+ * depot, where the edge from a customer to the merged depot is the distance to
+ * its nearest depot.
+ *
+ * Both bounds come from one run of Prim's algorithm over the complete graph,
+ * which evaluates every customer pair once, in O(n^2) time and O(n) memory.
+ */
+public class LowerBound {
+    final double degreeBound;
+    final double spanningTreeBound;
+
+    LowerBound(ProblemModel model) {
+        int n = model.customerCount;
+        // The two shortest edges at each customer so far
+        double[] shortest = new double[n];
+        double[] secondShortest = new double[n];
+        // The shortest edge from each customer to the tree, which starts as the
+        // merged depot
+        double[] key = new double[n];
+        boolean[] inTree = new boolean[n];
+        int next = -1;
+        for (int c = 0; c < n; c++) {
+            double nearestDepot = Double.POSITIVE_INFINITY;
+            for (int d = 0; d < model.depotCount; d++) {
+                nearestDepot = Math.min(nearestDepot, model.depotDistance(d, c));
+            }
+            shortest[c] = nearestDepot;
+            secondShortest[c] = nearestDepot;
+            key[c] = nearestDepot;
+            next = next == -1 || key[c] < key[next] ? c : next;
+        }
+
+        double tree = 0.0;
+        for (int step = 0; step < n; step++) {
+            int added = next;
+            inTree[added] = true;
+            tree += key[added];
+            next = -1;
+            for (int c = 0; c < n; c++) {
+                if (inTree[c]) {
+                    continue;
+                }
+                double distance = model.customerDistance(added, c);
+                if (distance < key[c]) {
+                    key[c] = distance;
+                }
+                if (next == -1 || key[c] < key[next]) {
+                    next = c;
+                }
+                // Every pair is evaluated here exactly once, when the first of the
+                // two customers joins the tree
+                if (distance < secondShortest[added]) {
+                    secondShortest[added] = Math.max(distance, shortest[added]);
+                    shortest[added] = Math.min(distance, shortest[added]);
+                }
+                if (distance < secondShortest[c]) {
+                    secondShortest[c] = Math.max(distance, shortest[c]);
+                    shortest[c] = Math.min(distance, shortest[c]);
+                }
+            }
+        }
+
+        double degree = 0.0;
+        for (int c = 0; c < n; c++) {
+            degree += (shortest[c] + secondShortest[c]) / 2.0;
+        }
+        this.degreeBound = degree;
+        this.spanningTreeBound = tree;
+    }
+
+    /**
+     * @return the stronger of the two bounds.
+     */
+    double value() {
+        return Math.max(this.degreeBound, this.spanningTreeBound);
+    }
+
+    /**
+     * @return how far the fitness is above the bound, as a fraction of the bound.
+     */
+    double gap(double fitness) {
+        return (fitness - this.value()) / this.value();
+    }
+}
@@ -0,0 +1,164 @@
+package mdvrp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A population of chromosomes stored outside the Java heap, as fixed-stride
+ * records in direct byte buffers. The GC never sees the chromosomes, so its
+ * work does not grow with the population size. Chromosomes are decoded into
+ * reusable Chromosome objects to be changed by the genetic operators, and
+ * encoded back into a record afterwards.
+ *
+ * Every record has the same layout:
+ *
+ * fitness (double), structural hash (long), tooManyRoutes (int), the number of
+ * customers served by each depot (int per depot), and the customers of all
+ * depots in route order (int per customer). The first customer of every route
+ * is stored as its bitwise complement, which marks where the routes start.
+ *
+ * Records are split over buffers of at most 1 GiB, since a single buffer is
+ * limited to 2 GiB. Records of different chromosomes can be read and written by
+ * different threads at the same time.
+ */
+public class OffHeapPopulation {
+    private static final int FITNESS = 0;
+    private static final int HASH = 8;
+    private static final int TOO_MANY_ROUTES = 16;
+    private static final int DEPOT_SIZES = 20;
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    private final int size;
+    private final int depotCount;
+    private final int customerCount;
+    private final int customersOffset;
+    private final int stride;
+    private final int recordsPerChunk;
+    private final ByteBuffer[] chunks;
+
+    public OffHeapPopulation(int size, int depotCount, int customerCount) {
+        this.size = size;
+        this.depotCount = depotCount;
+        this.customerCount = customerCount;
+        this.customersOffset = DEPOT_SIZES + 4 * depotCount;
+        // Rounded up to whole longs so that records can be copied a long at a time
+        this.stride = (this.customersOffset + 4 * customerCount + 7) & ~7;
+        this.recordsPerChunk = Math.max(1, MAX_CHUNK_BYTES / this.stride);
+        int chunkCount = (size + this.recordsPerChunk - 1) / this.recordsPerChunk;
+        this.chunks = new ByteBuffer[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            int records = Math.min(this.recordsPerChunk, size - c * this.recordsPerChunk);
+            this.chunks[c] = ByteBuffer.allocateDirect(records * this.stride).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of off-heap bytes used by the records.
+     */
+    public long bytes() {
+        return (long) this.size * this.stride;
+    }
+
+    private ByteBuffer chunk(int index) {
+        return this.chunks[index / this.recordsPerChunk];
+    }
+
+    private int offset(int index) {
+        return (index % this.recordsPerChunk) * this.stride;
+    }
+
+    public double fitness(int index) {
+        return this.chunk(index).getDouble(this.offset(index) + FITNESS);
+    }
+
+    public long hash(int index) {
+        return this.chunk(index).getLong(this.offset(index) + HASH);
+    }
+
+    public int tooManyRoutes(int index) {
+        return this.chunk(index).getInt(this.offset(index) + TOO_MANY_ROUTES);
+    }
+
+    /**
+     * Encodes the chromosome into the record at the index.
+     */
+    public void write(int index, Chromosome chromosome) {
+        ByteBuffer chunk = this.chunk(index);
+        int offset = this.offset(index);
+        chunk.putDouble(offset + FITNESS, chromosome.fitness);
+        chunk.putLong(offset + HASH, chromosome.hash());
+        chunk.putInt(offset + TOO_MANY_ROUTES, chromosome.tooManyRoutes);
+        int position = offset + this.customersOffset;
+        for (int d = 0; d < this.depotCount; d++) {
+            Depot depot = chromosome.depots.get(d);
+            int depotSize = 0;
+            for (Route route : depot.routes) {
+                for (int i = 0; i < route.size(); i++) {
+                    chunk.putInt(position, i == 0 ? ~route.get(i) : route.get(i));
+                    position += 4;
+                }
+                depotSize += route.size();
+            }
+            chunk.putInt(offset + DEPOT_SIZES + 4 * d, depotSize);
+        }
+        if (position != offset + this.customersOffset + 4 * this.customerCount) {
+            throw new Error("The chromosome does not have every customer in exactly one route");
+        }
+    }
+
+    /**
+     * Decodes the record at the index into the chromosome, which must be a
+     * chromosome of the same problem. The routes of the chromosome are reused,
+     * and their lengths and loads are recalculated.
+     */
+    public void read(int index, Chromosome chromosome) {
+        ByteBuffer chunk = this.chunk(index);
+        int offset = this.offset(index);
+        int position = offset + this.customersOffset;
+        for (int d = 0; d < this.depotCount; d++) {
+            Depot depot = chromosome.depots.get(d);
+            while (!depot.routes.isEmpty()) {
+                depot.recycleRoute(depot.routes.remove(depot.routes.size() - 1));
+            }
+            int depotSize = chunk.getInt(offset + DEPOT_SIZES + 4 * d);
+            Route route = null;
+            for (int i = 0; i < depotSize; i++) {
+                int customer = chunk.getInt(position);
+                position += 4;
+                if (customer < 0) {
+                    if (route != null) {
+                        depot.recalculateUsedRouteLengthAndCapacity(route);
+                    }
+                    route = depot.newRoute();
+                    depot.routes.add(route);
+                    customer = ~customer;
+                }
+                route.add(customer);
+            }
+            if (route != null) {
+                depot.recalculateUsedRouteLengthAndCapacity(route);
+            }
+        }
+        chromosome.locations.indexAll(chromosome.depots);
+        chromosome.fitness = chunk.getDouble(offset + FITNESS);
+        chromosome.tooManyRoutes = chunk.getInt(offset + TOO_MANY_ROUTES);
+    }
+
+    /**
+     * Copies the record at the index to a record of another population of the
+     * same problem.
+     */
+    public void copy(int index, OffHeapPopulation target, int targetIndex) {
+        ByteBuffer from = this.chunk(index);
+        ByteBuffer to = target.chunk(targetIndex);
+        int fromOffset = this.offset(index);
+        int toOffset = target.offset(targetIndex);
+        for (int i = 0; i < this.stride; i += 8) {
+            to.putLong(toOffset + i, from.getLong(fromOffset + i));
+        }
+    }
+}
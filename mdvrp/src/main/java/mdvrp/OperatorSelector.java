@@ -0,0 +1,128 @@
+package mdvrp;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-armed bandit that chooses the mutation operator. Every application
+ * records the fitness improvement and the time it took, and once per
+ * generation the selection probabilities are moved towards the operators with
+ * the most improvement per nanosecond (probability matching with a minimum
+ * probability so that no operator stops being explored).
+ *
+ * The workers only read the probabilities and add to the counters, so they can
+ * select and record concurrently.
+ */
+public class OperatorSelector {
+    static final int REVERSAL = 0;
+    static final int REROUTING = 1;
+    static final int SWAPPING = 2;
+    static final int INTER_DEPOT = 3;
+    static final String[] NAMES = { "reversal", "rerouting", "swapping", "inter-depot" };
+
+    private static final double MIN_PROBABILITY = 0.1;
+    // Weight of the last generation in the moving average of the reward
+    private static final double ADAPTATION_RATE = 0.3;
+
+    private final int operatorCount = NAMES.length;
+    private volatile double[] probabilities;
+    private final double[] reward;
+
+    // Since the last update
+    private final LongAdder[] uses = new LongAdder[operatorCount];
+    private final DoubleAdder[] gain = new DoubleAdder[operatorCount];
+    private final LongAdder[] nanos = new LongAdder[operatorCount];
+    private final LongAdder[] improvements = new LongAdder[operatorCount];
+
+    // For the whole run
+    private final long[] totalUses = new long[operatorCount];
+    private final double[] totalGain = new double[operatorCount];
+    private final long[] totalNanos = new long[operatorCount];
+    private final long[] totalImprovements = new long[operatorCount];
+
+    public OperatorSelector() {
+        this.probabilities = new double[operatorCount];
+        Arrays.fill(this.probabilities, 1.0 / operatorCount);
+        this.reward = new double[operatorCount];
+        for (int i = 0; i < operatorCount; i++) {
+            this.uses[i] = new LongAdder();
+            this.gain[i] = new DoubleAdder();
+            this.nanos[i] = new LongAdder();
+            this.improvements[i] = new LongAdder();
+        }
+    }
+
+    public int select(SplittableRandom random) {
+        double[] probabilities = this.probabilities;
+        double r = random.nextDouble();
+        for (int i = 0; i < operatorCount - 1; i++) {
+            r -= probabilities[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return operatorCount - 1;
+    }
+
+    /**
+     * @param fitnessGain the fitness before minus the fitness after the operator,
+     *                    negative if the operator made the chromosome worse.
+     */
+    public void record(int operator, double fitnessGain, long elapsedNanos) {
+        this.uses[operator].increment();
+        this.nanos[operator].add(elapsedNanos);
+        if (fitnessGain > 0) {
+            // Only improvements are rewarded, worse offsprings are removed by selection
+            this.gain[operator].add(fitnessGain);
+            this.improvements[operator].increment();
+        }
+    }
+
+    /**
+     * Moves the probabilities towards the improvement per nanosecond of each
+     * operator since the last update.
+     */
+    public synchronized void update() {
+        for (int i = 0; i < operatorCount; i++) {
+            long uses = this.uses[i].sumThenReset();
+            double gain = this.gain[i].sumThenReset();
+            long nanos = this.nanos[i].sumThenReset();
+            long improvements = this.improvements[i].sumThenReset();
+            this.totalUses[i] += uses;
+            this.totalGain[i] += gain;
+            this.totalNanos[i] += nanos;
+            this.totalImprovements[i] += improvements;
+            if (uses > 0) {
+                this.reward[i] += ADAPTATION_RATE * (gain / Math.max(nanos, 1) - this.reward[i]);
+            }
+        }
+
+        double rewardSum = Arrays.stream(this.reward).sum();
+        double[] probabilities = new double[operatorCount];
+        for (int i = 0; i < operatorCount; i++) {
+            double share = rewardSum > 0 ? this.reward[i] / rewardSum : 1.0 / operatorCount;
+            probabilities[i] = MIN_PROBABILITY + (1 - operatorCount * MIN_PROBABILITY) * share;
+        }
+        this.probabilities = probabilities;
+    }
+
+    /**
+     * @return one line per operator with the current probability and the
+     *         statistics for the whole run.
+     */
+    public synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        double[] probabilities = this.probabilities;
+        for (int i = 0; i < operatorCount; i++) {
+            double micros = this.totalNanos[i] / 1000.0;
+            report.append(String.format("  %-12s p=%s uses=%d improved=%s%% gain/us=%s avg us=%s%n", NAMES[i],
+                    Helper.roundDouble(probabilities[i]), this.totalUses[i],
+                    Helper.roundDouble(100.0 * this.totalImprovements[i] / Math.max(this.totalUses[i], 1)),
+                    Helper.roundDouble(this.totalGain[i] / Math.max(micros, 1e-9)),
+                    Helper.roundDouble(micros / Math.max(this.totalUses[i], 1))));
+        }
+        return report.toString();
+    }
+}
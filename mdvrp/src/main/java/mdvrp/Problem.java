@@ -0,0 +1,140 @@
+package mdvrp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A problem instance built in memory, for embedding the solvers without the
+ * files in ./test_data. Depots and customers are referred to by the order they
+ * were added in, starting at 0.
+ *
+ * The instance only stores the input values, and every solve builds its own
+ * depots and customers from them, so a problem can be solved many times and
+ * from several threads at once.
+ */
+public class Problem {
+    private final int maxVehiclesPerDepot;
+    private final List<int[]> depots = new ArrayList<>(); // x, y, max route distance, max vehicle load
+    private final List<int[]> customers = new ArrayList<>(); // x, y, demand
+
+    /**
+     * @param maxVehiclesPerDepot the number of routes each depot may have in a
+     *                            legal solution.
+     */
+    public Problem(int maxVehiclesPerDepot) {
+        if (maxVehiclesPerDepot < 1) {
+            throw new Error("A depot needs at least one vehicle");
+        }
+        this.maxVehiclesPerDepot = maxVehiclesPerDepot;
+    }
+
+    /**
+     * Builds a problem from parallel arrays with one element per depot and per
+     * customer.
+     */
+    public Problem(int maxVehiclesPerDepot, int[] depotX, int[] depotY, int[] maxRouteDistance,
+            int[] maxVehicleLoad, int[] customerX, int[] customerY, int[] demand) {
+        this(maxVehiclesPerDepot);
+        if (depotY.length != depotX.length || maxRouteDistance.length != depotX.length
+                || maxVehicleLoad.length != depotX.length) {
+            throw new Error("The depot arrays must have the same length");
+        }
+        if (customerY.length != customerX.length || demand.length != customerX.length) {
+            throw new Error("The customer arrays must have the same length");
+        }
+        for (int i = 0; i < depotX.length; i++) {
+            this.addDepot(depotX[i], depotY[i], maxRouteDistance[i], maxVehicleLoad[i]);
+        }
+        for (int i = 0; i < customerX.length; i++) {
+            this.addCustomer(customerX[i], customerY[i], demand[i]);
+        }
+    }
+
+    /**
+     * @param maxRouteDistance the maximum length of each route, 0 for no limit.
+     * @return the index of the depot.
+     */
+    public int addDepot(int x, int y, int maxRouteDistance, int maxVehicleLoad) {
+        this.depots.add(new int[] { x, y, maxRouteDistance, maxVehicleLoad });
+        return this.depots.size() - 1;
+    }
+
+    /**
+     * @return the index of the customer.
+     */
+    public int addCustomer(int x, int y, int demand) {
+        this.customers.add(new int[] { x, y, demand });
+        return this.customers.size() - 1;
+    }
+
+    public int getDepotCount() {
+        return this.depots.size();
+    }
+
+    public int getCustomerCount() {
+        return this.customers.size();
+    }
+
+    /**
+     * Canonical hash of the depots, the customers and the vehicle limit. Equal
+     * problems have the same fingerprint in every run.
+     */
+    long fingerprint() {
+        long hash = this.depotFingerprint();
+        hash = Helper.combineHash(hash, this.customers.size());
+        for (int i = 0; i < this.customers.size(); i++) {
+            hash = Helper.combineHash(hash, this.customerKey(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of the depots and the vehicle limit only, which problems must share
+     * for one of them to seed the other.
+     */
+    long depotFingerprint() {
+        long hash = Helper.combineHash(0, this.maxVehiclesPerDepot);
+        hash = Helper.combineHash(hash, this.depots.size());
+        for (int[] depot : this.depots) {
+            for (int value : depot) {
+                hash = Helper.combineHash(hash, value);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of the location and demand of a customer, which identifies the same
+     * customer in another problem.
+     */
+    long customerKey(int index) {
+        int[] customer = this.customers.get(index);
+        long hash = Helper.combineHash(0, customer[0]);
+        hash = Helper.combineHash(hash, customer[1]);
+        return Helper.combineHash(hash, customer[2]);
+    }
+
+    /**
+     * Creates new depots and customers in the same form as ProblemParser reads
+     * them from a file, with IDs counted from 1 in the order they were added.
+     */
+    ProblemParser toProblemParser() {
+        if (this.depots.isEmpty()) {
+            throw new Error("The problem has no depots");
+        }
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.maxVehicesPerDepot = this.maxVehiclesPerDepot;
+        for (int i = 0; i < this.customers.size(); i++) {
+            int[] customer = this.customers.get(i);
+            problemParser.customers.add(new Customer(i + 1, customer[0], customer[1], customer[2]));
+        }
+        for (int i = 0; i < this.depots.size(); i++) {
+            int[] values = this.depots.get(i);
+            Depot depot = new Depot(values[2], values[3]);
+            depot.initDepotSecond(i + 1, values[0], values[1]);
+            problemParser.depots.add(depot);
+        }
+        problemParser.model = new ProblemModel(problemParser.depots, problemParser.customers);
+        return problemParser;
+    }
+}
@@ -0,0 +1,77 @@
+package mdvrp;
+
+import java.util.List;
+
+/**
+ * Immutable view of a problem instance where the customer and depot data is
+ * stored in contiguous primitive arrays indexed by a dense index. Routes store
+ * these indices instead of Customer references, so evaluating a route is a
+ * sequential walk over primitive arrays.
+ *
+ * A model is shared by every chromosome (and every solver) working on the same
+ * instance, also when the instance is split into partitions.
+ */
+public class ProblemModel {
+    final int customerCount;
+    final int depotCount;
+
+    final Customer[] customers;
+    final int[] customerIds;
+    final double[] customerX;
+    final double[] customerY;
+    final int[] customerDemand;
+
+    final int[] depotIds;
+    final double[] depotX;
+    final double[] depotY;
+
+    /**
+     * Builds the model and assigns the dense index of each customer and depot.
+     */
+    public ProblemModel(List<Depot> depots, List<Customer> customers) {
+        this.customerCount = customers.size();
+        this.depotCount = depots.size();
+
+        this.customers = new Customer[this.customerCount];
+        this.customerIds = new int[this.customerCount];
+        this.customerX = new double[this.customerCount];
+        this.customerY = new double[this.customerCount];
+        this.customerDemand = new int[this.customerCount];
+        for (int i = 0; i < this.customerCount; i++) {
+            Customer customer = customers.get(i);
+            customer.setIndex(i);
+            this.customers[i] = customer;
+            this.customerIds[i] = customer.getId();
+            this.customerX[i] = customer.getX();
+            this.customerY[i] = customer.getY();
+            this.customerDemand[i] = customer.getDemand();
+        }
+
+        this.depotIds = new int[this.depotCount];
+        this.depotX = new double[this.depotCount];
+        this.depotY = new double[this.depotCount];
+        for (int i = 0; i < this.depotCount; i++) {
+            Depot depot = depots.get(i);
+            depot.setModel(this, i);
+            this.depotIds[i] = depot.getId();
+            this.depotX[i] = depot.getX();
+            this.depotY[i] = depot.getY();
+        }
+    }
+
+    double customerDistance(int from, int to) {
+        double dx = this.customerX[from] - this.customerX[to];
+        double dy = this.customerY[from] - this.customerY[to];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    double depotDistance(int depot, int customer) {
+        double dx = this.depotX[depot] - this.customerX[customer];
+        double dy = this.depotY[depot] - this.customerY[customer];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    Customer getCustomer(int index) {
+        return this.customers[index];
+    }
+}
@@ -14,6 +14,30 @@ public class ProblemParser {
     int maxVehicesPerDepot;
     List<Depot> depots = new ArrayList<>();
     List<Customer> customers = new ArrayList<>();
+    ProblemModel model;
+
+    /**
+     * Canonical hash of the depots, the customers and the vehicle limit, the
+     * same as Problem.fingerprint() of a problem with the same values.
+     */
+    long fingerprint() {
+        long hash = Helper.combineHash(0, this.maxVehicesPerDepot);
+        hash = Helper.combineHash(hash, this.depots.size());
+        for (Depot depot : this.depots) {
+            double maxRouteDistance = depot.getMaxRouteDistance();
+            hash = Helper.combineHash(hash, depot.getX());
+            hash = Helper.combineHash(hash, depot.getY());
+            hash = Helper.combineHash(hash, maxRouteDistance == Double.POSITIVE_INFINITY ? 0 : (int) maxRouteDistance);
+            hash = Helper.combineHash(hash, depot.getMaxVehicleLoad());
+        }
+        hash = Helper.combineHash(hash, this.customers.size());
+        for (Customer customer : this.customers) {
+            long key = Helper.combineHash(0, customer.getX());
+            key = Helper.combineHash(key, customer.getY());
+            hash = Helper.combineHash(hash, Helper.combineHash(key, customer.getDemand()));
+        }
+        return hash;
+    }
 
     private List<Integer> stringToInts(String line) {
         line = line.trim().replaceAll(" +", " ");
@@ -21,8 +45,14 @@ public class ProblemParser {
     }
 
     public void parseFile(String fileName) {
+        this.parseFile(Paths.get("test_data", fileName));
+    }
+
+    /**
+     * Same as parseFile() for a file in ./test_data, but for a file anywhere.
+     */
+    public void parseFile(Path path) {
         try {
-            Path path = Paths.get("test_data", fileName);
             File myObj = new File(path.toString());
             Scanner scanner = new Scanner(myObj);
 
@@ -49,9 +79,10 @@ public class ProblemParser {
                 lineCounter++;
             }
             scanner.close();
+            this.model = new ProblemModel(this.depots, this.customers);
         } catch (FileNotFoundException e) {
             e.printStackTrace();
-            throw new Error("Cannot read the given file: " + fileName);
+            throw new Error("Cannot read the given file: " + path);
         }
     }
 }
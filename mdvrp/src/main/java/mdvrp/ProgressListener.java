@@ -0,0 +1,10 @@
+package mdvrp;
+
+/**
+ * Receives the progress of an embedded genetic algorithm solve. It is called
+ * from a solver thread every time the best legal fitness improves, so it
+ * should return quickly.
+ */
+public interface ProgressListener {
+    void onImprovement(int generation, double seconds, double bestFitness);
+}
@@ -0,0 +1,166 @@
+package mdvrp;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Races several GA solvers with different seeds against each other. The racers
+ * share the problem model, the depots with their customer assignment and one
+ * worker pool, so only the populations are allocated per racer. The first racer
+ * that reaches the stop threshold sets a shared flag, and the others stop at the
+ * end of their current generation.
+ *
+ * With trace_interval set, every racer records its own trace, and only the
+ * trace of the winner is kept as trace.bin.
+ */
+public class RacingSolver {
+    int racerCount;
+    int threadCount;
+    int traceInterval;
+    long seed;
+    Path traceDirectory = Paths.get("generations");
+    Path convergencePath = Paths.get("solutions", "convergence.csv");
+
+    private List<Solver> racers = new ArrayList<>();
+    private long[] seeds;
+    private ExecutorService workers;
+    private AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    public RacingSolver(ConfigParser configParser, ProblemParser problemParser, double stopThreshold) {
+        this.racerCount = configParser.racers;
+        this.traceInterval = configParser.traceInterval;
+        this.threadCount = configParser.threadCount > 0 ? configParser.threadCount
+                : Runtime.getRuntime().availableProcessors();
+        this.seed = configParser.seed >= 0 ? configParser.seed : new SplittableRandom().nextLong() & Long.MAX_VALUE;
+
+        this.workers = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Solver.initDepotAssignment(problemParser.depots, problemParser.customers, configParser.bound);
+
+        this.seeds = new long[this.racerCount];
+        for (int i = 0; i < this.racerCount; i++) {
+            this.seeds[i] = Helper.mixSeed(this.seed, i, 0) & Long.MAX_VALUE;
+            ConfigParser racerConfig = new ConfigParser(configParser);
+            racerConfig.seed = this.seeds[i];
+            // Only the winner is saved, after the race
+            racerConfig.saveInterval = Integer.MAX_VALUE;
+            racerConfig.verbose = false;
+            Solver racer = new Solver(racerConfig, problemParser, stopThreshold, this.workers, this.cancelled);
+            racer.printProgress = false;
+            this.racers.add(racer);
+        }
+    }
+
+    public void solve() {
+        System.out.println("Racing " + this.racerCount + " solvers on " + this.threadCount + " threads");
+        for (int i = 0; i < this.racerCount; i++) {
+            this.racers.get(i).tracePath = this.traceDirectory.resolve("trace-" + i + ".bin");
+            this.racers.get(i).start();
+        }
+        try {
+            for (Solver racer : this.racers) {
+                racer.join();
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } finally {
+            this.workers.shutdown();
+        }
+        this.printReport();
+        this.writeConvergence(this.convergencePath);
+        if (this.traceInterval > 0) {
+            this.keepWinnerTrace();
+        }
+    }
+
+    private void keepWinnerTrace() {
+        Solver winner = this.bestRacer();
+        if (winner == null) {
+            // No racer found a legal solution, so any trace will do
+            winner = this.racers.get(0);
+        }
+        try {
+            for (Solver racer : this.racers) {
+                if (racer == winner) {
+                    Files.move(racer.tracePath, this.traceDirectory.resolve("trace.bin"),
+                            StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.deleteIfExists(racer.tracePath);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void printReport() {
+        System.out.println();
+        for (int i = 0; i < this.racerCount; i++) {
+            List<double[]> convergence = this.racers.get(i).getConvergence();
+            if (convergence.isEmpty()) {
+                System.out.println("Seed " + this.seeds[i] + ": no legal solution");
+                continue;
+            }
+            double[] last = convergence.get(convergence.size() - 1);
+            System.out.println("Seed " + this.seeds[i] + ": best fitness " + Helper.roundDouble(last[2])
+                    + " at generation " + (int) last[0] + " after " + Helper.roundDouble(last[1]) + " s, "
+                    + convergence.size() + " improvements");
+        }
+    }
+
+    /**
+     * Writes the convergence curve of every racer as CSV rows of seed,
+     * generation, seconds and best legal fitness.
+     */
+    private void writeConvergence(Path path) {
+        try {
+            Files.createDirectories(path.getParent());
+            FileWriter writer = new FileWriter(path.toString());
+            writer.write("seed,generation,seconds,fitness\n");
+            for (int i = 0; i < this.racerCount; i++) {
+                for (double[] point : this.racers.get(i).getConvergence()) {
+                    writer.write(this.seeds[i] + "," + (int) point[0] + "," + point[1] + "," + point[2] + "\n");
+                }
+            }
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Solver bestRacer() {
+        Solver best = null;
+        for (Solver racer : this.racers) {
+            Chromosome chromosome = racer.bestLegalChromosome();
+            if (chromosome != null && (best == null || chromosome.fitness < best.bestLegalChromosome().fitness)) {
+                best = racer;
+            }
+        }
+        return best;
+    }
+
+    public void saveBest() {
+        Solver best = this.bestRacer();
+        if (best != null) {
+            best.saveBest();
+        }
+    }
+
+    public double bestFitness() {
+        Solver best = this.bestRacer();
+        return best == null ? Double.POSITIVE_INFINITY : best.bestLegalChromosome().fitness;
+    }
+}
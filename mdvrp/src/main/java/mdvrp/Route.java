@@ -1,22 +1,181 @@
 package mdvrp;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class Route {
-    List<Customer> customers; // TODO check if we can use an ordered set here instead of a list
+    int[] customers; // Dense customer indices, see ProblemModel. Only the first size entries are used.
+    int size;
     double routeLength;
     double usedCapacity;
+    // Zobrist-style hash of the customer order, the XOR of the hashes of every
+    // directed edge including the edges from and to the depot. It is updated by
+    // every method that changes the customers, so it costs O(1) per change.
+    long hash;
+
+    // Stands for the depot at either end of the route in the edge hashes
+    private static final int DEPOT = -1;
+    // An empty route is treated as a single edge from the depot to itself, so
+    // that the same update rules apply to the first insertion
+    private static final long EMPTY_HASH = edgeHash(DEPOT, DEPOT);
 
     public Route() {
-        this.customers = new ArrayList<>();
+        this.customers = new int[8];
+        this.size = 0;
         this.routeLength = 0.0;
         this.usedCapacity = 0.0;
+        this.hash = EMPTY_HASH;
     }
 
     public Route(Route routeToCopy) {
-        this.customers = new ArrayList<>(routeToCopy.customers);
+        this.customers = Arrays.copyOf(routeToCopy.customers, Math.max(routeToCopy.size + 4, 8));
+        this.size = routeToCopy.size;
+        this.routeLength = routeToCopy.routeLength;
+        this.usedCapacity = routeToCopy.usedCapacity;
+        this.hash = routeToCopy.hash;
+    }
+
+    /**
+     * Makes this route equal to the other route, reusing the customer array when
+     * it is large enough.
+     */
+    public void copyFrom(Route routeToCopy) {
+        if (this.customers.length < routeToCopy.size) {
+            this.customers = new int[routeToCopy.customers.length];
+        }
+        System.arraycopy(routeToCopy.customers, 0, this.customers, 0, routeToCopy.size);
+        this.size = routeToCopy.size;
         this.routeLength = routeToCopy.routeLength;
         this.usedCapacity = routeToCopy.usedCapacity;
+        this.hash = routeToCopy.hash;
+    }
+
+    public void clear() {
+        this.size = 0;
+        this.routeLength = 0.0;
+        this.usedCapacity = 0.0;
+        this.hash = EMPTY_HASH;
+    }
+
+    static long edgeHash(int from, int to) {
+        return Helper.mix64(((long) from << 32 | (to & 0xffffffffL)) + 0x9e3779b97f4a7c15L);
+    }
+
+    /**
+     * @return the customer at the position, or the depot if the position is
+     *         before the first or after the last customer.
+     */
+    private int stop(int position) {
+        return position < 0 || position >= this.size ? DEPOT : this.customers[position];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int get(int position) {
+        return this.customers[position];
+    }
+
+    public int last() {
+        return this.customers[this.size - 1];
+    }
+
+    public void add(int customer) {
+        this.add(this.size, customer);
+    }
+
+    public void add(int position, int customer) {
+        if (this.size == this.customers.length) {
+            this.customers = Arrays.copyOf(this.customers, this.customers.length * 2);
+        }
+        int prev = this.stop(position - 1);
+        int next = this.stop(position);
+        this.hash ^= edgeHash(prev, next) ^ edgeHash(prev, customer) ^ edgeHash(customer, next);
+        System.arraycopy(this.customers, position, this.customers, position + 1, this.size - position);
+        this.customers[position] = customer;
+        this.size++;
+    }
+
+    /**
+     * @return the customer that was at the given position.
+     */
+    public int removeAt(int position) {
+        int customer = this.customers[position];
+        int prev = this.stop(position - 1);
+        int next = this.stop(position + 1);
+        this.hash ^= edgeHash(prev, customer) ^ edgeHash(customer, next) ^ edgeHash(prev, next);
+        System.arraycopy(this.customers, position + 1, this.customers, position, this.size - position - 1);
+        this.size--;
+        return customer;
+    }
+
+    /**
+     * @return true if the route contained the customer.
+     */
+    public boolean removeCustomer(int customer) {
+        int position = this.indexOf(customer);
+        if (position == -1) {
+            return false;
+        }
+        this.removeAt(position);
+        return true;
+    }
+
+    public int indexOf(int customer) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.customers[i] == customer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void set(int position, int customer) {
+        int prev = this.stop(position - 1);
+        int next = this.stop(position + 1);
+        int old = this.customers[position];
+        this.hash ^= edgeHash(prev, old) ^ edgeHash(old, next) ^ edgeHash(prev, customer) ^ edgeHash(customer, next);
+        this.customers[position] = customer;
+    }
+
+    /**
+     * Reverses the customers from fromIndex (inclusive) to toIndex (exclusive).
+     */
+    public void reverse(int fromIndex, int toIndex) {
+        // Every edge in and around the reversed segment changes direction
+        this.hash ^= this.segmentHash(fromIndex, toIndex);
+        for (int i = fromIndex, j = toIndex - 1; i < j; i++, j--) {
+            int temp = this.customers[i];
+            this.customers[i] = this.customers[j];
+            this.customers[j] = temp;
+        }
+        this.hash ^= this.segmentHash(fromIndex, toIndex);
+    }
+
+    private long segmentHash(int fromIndex, int toIndex) {
+        long segmentHash = 0;
+        for (int i = fromIndex; i <= toIndex; i++) {
+            segmentHash ^= edgeHash(this.stop(i - 1), this.stop(i));
+        }
+        return segmentHash;
+    }
+
+    /**
+     * Computes the hash from scratch, which must give the same value as the
+     * incrementally updated hash.
+     */
+    long recomputeHash() {
+        if (this.size == 0) {
+            return EMPTY_HASH;
+        }
+        return this.segmentHash(0, this.size);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(this.customers, this.size);
     }
 }
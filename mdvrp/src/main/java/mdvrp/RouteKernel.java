@@ -0,0 +1,54 @@
+package mdvrp;
+
+/**
+ * The distance computations over a whole route that dominate route evaluation
+ * and insertion. Routes are given as customer indices into the coordinate
+ * arrays of the ProblemModel, and start and end at the depot.
+ *
+ * The implementation is picked once at start-up: the vector kernel when it was
+ * compiled (the vector Maven profile), the jdk.incubator.vector module is added
+ * at run time and the CPU has at least 256 bit vectors, otherwise the scalar
+ * kernel. The system property mdvrp.kernel=scalar or mdvrp.kernel=vector forces
+ * one of them.
+ */
+public interface RouteKernel {
+    RouteKernel INSTANCE = create();
+
+    /**
+     * @return the length of the route from the depot through the first size
+     *         customers and back to the depot.
+     */
+    double routeLength(double[] customerX, double[] customerY, int[] customers, int size, double depotX,
+            double depotY);
+
+    /**
+     * Computes how much longer the route gets by inserting the customer at each
+     * position 0 to size, into deltas[0] to deltas[size]. The deltas array must
+     * have room for size + 2 values, as the last one is used as scratch space.
+     */
+    void insertionDeltas(double[] customerX, double[] customerY, int[] customers, int size, double depotX,
+            double depotY, int customer, double[] deltas);
+
+    /**
+     * @return the route size from which insertionDeltas() is faster than
+     *         evaluating the positions one by one.
+     */
+    int minBatchSize();
+
+    String name();
+
+    static RouteKernel create() {
+        String kernel = System.getProperty("mdvrp.kernel", "auto");
+        if (!kernel.equals("scalar")) {
+            try {
+                return (RouteKernel) Class.forName("mdvrp.VectorRouteKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+                if (kernel.equals("vector")) {
+                    throw new Error("The vector route kernel is not available. Build with -Pvector and run with "
+                            + "--add-modules jdk.incubator.vector on a CPU with AVX2 or better", e);
+                }
+            }
+        }
+        return new ScalarRouteKernel();
+    }
+}
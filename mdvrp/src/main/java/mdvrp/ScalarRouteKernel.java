@@ -0,0 +1,61 @@
+package mdvrp;
+
+/**
+ * Route kernel with plain loops, used when the vector kernel is not available.
+ */
+public class ScalarRouteKernel implements RouteKernel {
+
+    @Override
+    public double routeLength(double[] customerX, double[] customerY, int[] customers, int size, double depotX,
+            double depotY) {
+        double fromX = depotX;
+        double fromY = depotY;
+        double routeLength = 0.0;
+        for (int i = 0; i < size; i++) {
+            int customer = customers[i];
+            double dx = customerX[customer] - fromX;
+            double dy = customerY[customer] - fromY;
+            routeLength += Math.sqrt(dx * dx + dy * dy);
+            fromX = customerX[customer];
+            fromY = customerY[customer];
+        }
+        double dx = depotX - fromX;
+        double dy = depotY - fromY;
+        return routeLength + Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public void insertionDeltas(double[] customerX, double[] customerY, int[] customers, int size, double depotX,
+            double depotY, int customer, double[] deltas) {
+        final double x = customerX[customer];
+        final double y = customerY[customer];
+        double prevX = depotX;
+        double prevY = depotY;
+        double dx = x - prevX;
+        double dy = y - prevY;
+        double prevToCustomer = Math.sqrt(dx * dx + dy * dy);
+        for (int k = 0; k <= size; k++) {
+            double nextX = k == size ? depotX : customerX[customers[k]];
+            double nextY = k == size ? depotY : customerY[customers[k]];
+            dx = x - nextX;
+            dy = y - nextY;
+            double customerToNext = Math.sqrt(dx * dx + dy * dy);
+            dx = nextX - prevX;
+            dy = nextY - prevY;
+            deltas[k] = prevToCustomer + customerToNext - Math.sqrt(dx * dx + dy * dy);
+            prevX = nextX;
+            prevY = nextY;
+            prevToCustomer = customerToNext;
+        }
+    }
+
+    @Override
+    public int minBatchSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,307 @@
+package mdvrp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of solved problems, one binary file per problem and options
+ * fingerprint. The modification time of a file is its last use, and the least
+ * recently used files are removed when the directory grows over the size bound.
+ *
+ * A file holds the fingerprints, the fitness, a 64 bit key per customer and the
+ * routes as customer indices, so an entry takes about 12 bytes per customer.
+ * The customer keys let a cached solution seed a problem that has the same
+ * depots and mostly the same customers.
+ */
+public class SolutionCache {
+    private static final int MAGIC = 0x4d445643; // "MDVC"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".sol";
+    // Share of the customers of a problem that a cached solution must contain to
+    // seed it
+    private static final double MIN_OVERLAP = 0.8;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * A cached solution.
+     */
+    static class Entry {
+        long key;
+        long depotFingerprint;
+        long seed;
+        double fitness;
+        long[] customerKeys;
+        int[][][] routes; // Customer indices of each route of each depot
+
+        /**
+         * @return the routes with the customers of this entry replaced by the
+         *         customers with the same key in the problem. Customers that are
+         *         not in the problem are left out, and customers of the problem
+         *         that are not in this entry are in no route.
+         */
+        int[][][] routesFor(Problem problem) {
+            Map<Long, ArrayDeque<Integer>> indicesOfKey = new HashMap<>();
+            for (int i = 0; i < problem.getCustomerCount(); i++) {
+                indicesOfKey.computeIfAbsent(problem.customerKey(i), x -> new ArrayDeque<>()).add(i);
+            }
+            int[][][] mappedRoutes = new int[this.routes.length][][];
+            for (int d = 0; d < this.routes.length; d++) {
+                List<int[]> depotRoutes = new ArrayList<>();
+                for (int[] route : this.routes[d]) {
+                    int[] mapped = new int[route.length];
+                    int size = 0;
+                    for (int customer : route) {
+                        ArrayDeque<Integer> indices = indicesOfKey.get(this.customerKeys[customer]);
+                        if (indices != null && !indices.isEmpty()) {
+                            mapped[size++] = indices.poll();
+                        }
+                    }
+                    if (size > 0) {
+                        depotRoutes.add(size == mapped.length ? mapped : Arrays.copyOf(mapped, size));
+                    }
+                }
+                mappedRoutes[d] = depotRoutes.toArray(new int[0][]);
+            }
+            return mappedRoutes;
+        }
+
+        /**
+         * @return how many customers of the problem are in this entry.
+         */
+        int overlap(Problem problem) {
+            Map<Long, Integer> counts = new HashMap<>();
+            for (long customerKey : this.customerKeys) {
+                counts.merge(customerKey, 1, Integer::sum);
+            }
+            int overlap = 0;
+            for (int i = 0; i < problem.getCustomerCount(); i++) {
+                Integer count = counts.get(problem.customerKey(i));
+                if (count != null && count > 0) {
+                    counts.put(problem.customerKey(i), count - 1);
+                    overlap++;
+                }
+            }
+            return overlap;
+        }
+    }
+
+    public SolutionCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the key of a problem solved with the given options.
+     */
+    static long keyOf(Problem problem, SolverOptions options) {
+        return Helper.combineHash(problem.fingerprint(), options.fingerprint());
+    }
+
+    /**
+     * @return the cached solution with exactly this key, or null.
+     */
+    synchronized Entry get(long key) {
+        Path path = this.pathOf(key);
+        try {
+            Entry entry = read(path);
+            if (entry.key != key) {
+                return null;
+            }
+            this.touch(path);
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // A damaged entry is treated as a miss and overwritten by the next put
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Finds the cached solution of a problem with the same depots that contains
+     * the most customers of this problem, for any options.
+     *
+     * @return the entry, or null if no entry contains at least MIN_OVERLAP of the
+     *         customers.
+     */
+    synchronized Entry nearest(Problem problem) {
+        long depotFingerprint = problem.depotFingerprint();
+        int customerCount = problem.getCustomerCount();
+        Entry best = null;
+        int bestOverlap = (int) Math.ceil(MIN_OVERLAP * customerCount) - 1;
+        Path bestPath = null;
+        for (Path path : this.entryPaths()) {
+            try (DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    continue;
+                }
+                input.readLong();
+                if (input.readLong() != depotFingerprint) {
+                    continue;
+                }
+                input.readLong();
+                input.readDouble();
+                int cachedCustomerCount = input.readInt();
+                // Too few customers to reach MIN_OVERLAP, or so many that the
+                // problems are not similar
+                if (cachedCustomerCount < bestOverlap + 1 || cachedCustomerCount > customerCount / MIN_OVERLAP) {
+                    continue;
+                }
+            } catch (IOException e) {
+                continue;
+            }
+            try {
+                Entry entry = read(path);
+                int overlap = entry.overlap(problem);
+                if (overlap > bestOverlap) {
+                    best = entry;
+                    bestOverlap = overlap;
+                    bestPath = path;
+                }
+            } catch (IOException e) {
+                continue;
+            }
+        }
+        if (bestPath != null) {
+            this.touch(bestPath);
+        }
+        return best;
+    }
+
+    /**
+     * Stores the solution under the key and removes the least recently used
+     * entries if the cache is over its size bound.
+     */
+    synchronized void put(long key, Problem problem, Chromosome solution, long seed) {
+        try {
+            Files.createDirectories(this.directory);
+            Path temporary = Files.createTempFile(this.directory, "entry", ".tmp");
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(key);
+                output.writeLong(problem.depotFingerprint());
+                output.writeLong(seed);
+                output.writeDouble(solution.fitness);
+                output.writeInt(problem.getCustomerCount());
+                for (int i = 0; i < problem.getCustomerCount(); i++) {
+                    output.writeLong(problem.customerKey(i));
+                }
+                output.writeInt(solution.depots.size());
+                for (Depot depot : solution.depots) {
+                    output.writeInt(depot.routes.size());
+                    for (Route route : depot.routes) {
+                        output.writeInt(route.size());
+                        for (int i = 0; i < route.size(); i++) {
+                            output.writeInt(route.get(i));
+                        }
+                    }
+                }
+            }
+            // Readers in other processes never see a partly written entry
+            Files.move(temporary, this.pathOf(key), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            this.evict();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is within its size
+     * bound.
+     */
+    private void evict() throws IOException {
+        List<Path> paths = this.entryPaths();
+        long totalBytes = 0;
+        Map<Path, FileTime> lastUse = new HashMap<>();
+        for (Path path : paths) {
+            totalBytes += Files.size(path);
+            lastUse.put(path, Files.getLastModifiedTime(path));
+        }
+        Collections.sort(paths, (a, b) -> lastUse.get(a).compareTo(lastUse.get(b)));
+        for (int i = 0; i < paths.size() && totalBytes > this.maxBytes; i++) {
+            totalBytes -= Files.size(paths.get(i));
+            Files.deleteIfExists(paths.get(i));
+        }
+    }
+
+    private List<Path> entryPaths() {
+        List<Path> paths = new ArrayList<>();
+        if (!Files.isDirectory(this.directory)) {
+            return paths;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return paths;
+    }
+
+    private Path pathOf(long key) {
+        return this.directory.resolve(String.format("%016x", key) + SUFFIX);
+    }
+
+    private void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // The entry was evicted by another process, which only matters for the order
+        }
+    }
+
+    private static Entry read(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Not a cache entry: " + path);
+            }
+            Entry entry = new Entry();
+            entry.key = input.readLong();
+            entry.depotFingerprint = input.readLong();
+            entry.seed = input.readLong();
+            entry.fitness = input.readDouble();
+            entry.customerKeys = new long[input.readInt()];
+            for (int i = 0; i < entry.customerKeys.length; i++) {
+                entry.customerKeys[i] = input.readLong();
+            }
+            entry.routes = new int[input.readInt()][][];
+            for (int d = 0; d < entry.routes.length; d++) {
+                entry.routes[d] = new int[input.readInt()][];
+                for (int r = 0; r < entry.routes[d].length; r++) {
+                    int[] route = new int[input.readInt()];
+                    for (int i = 0; i < route.length; i++) {
+                        route[i] = input.readInt();
+                        if (route[i] < 0 || route[i] >= entry.customerKeys.length) {
+                            throw new IOException("Customer index out of range in " + path);
+                        }
+                    }
+                    entry.routes[d][r] = route;
+                }
+            }
+            return entry;
+        }
+    }
+}
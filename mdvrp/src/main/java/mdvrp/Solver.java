@@ -6,10 +6,21 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.Collections;
 
 public class Solver extends Thread {
@@ -25,17 +36,99 @@ public class Solver extends Thread {
     int apprate;
     boolean verbose;
     int saveInterval;
+    int traceInterval;
+    int migrationInterval;
+    int migrationSize;
 
     // From ProblemParser
     int maxVehicesPerDepot;
+    ProblemModel model;
 
     double stopThreshold;
+    // Bound on the fitness of any solution, null if not computed
+    LowerBound lowerBound;
+    // Stop when the best legal fitness is within this fraction of the lower
+    // bound, 0 to not stop on the gap
+    double stopGap;
 
     // int customerCount; // ! temp
 
+    boolean reusePopulationBuffers;
+    boolean offHeapPopulation;
+    boolean steadyState;
+    boolean replaceDuplicates;
+    // Chooses the mutation operators when adaptiveOperators is set, otherwise null
+    OperatorSelector operatorSelector;
+    boolean feasibilityRepair;
+    // Chromosomes with too many routes that repair was tried on, and how many of
+    // them became legal
+    private final LongAdder repairAttempts = new LongAdder();
+    private final LongAdder repairSuccesses = new LongAdder();
+    int threadCount;
+    String seeding;
+    long seed;
+
     private List<Chromosome> population = new ArrayList<>();
+    // Fraction of structurally distinct offsprings in the last generation
+    private double diversity = 1.0;
+    private int duplicatesReplaced;
+    // The inactive population buffer, only used when reusePopulationBuffers is set
+    private List<Chromosome> offspringBuffer;
+    // The parent and offspring populations when offHeapPopulation is set, in
+    // which case the population list stays empty
+    private OffHeapPopulation store;
+    private OffHeapPopulation offspringStore;
+    // A chromosome of the problem that off-heap records are decoded into copies of
+    private Chromosome template;
+    // Scratch space of the off-heap generations: two chromosomes per worker task,
+    // the offspring slots in the order elitism uses them, the sorted fitness of
+    // the parents and an open-addressing set of the chromosome hashes
+    private Chromosome[][] scratch;
+    private int[] slots;
+    private long[] fitnessKeys;
+    private long[] seenHashes;
+    private ExecutorService workers;
+    // False when the worker pool is shared with other solvers
+    private boolean ownsWorkers;
+    // Set by the first solver that reaches the stop threshold. Solvers that race
+    // each other share it, so the others stop at their next generation
+    private AtomicBoolean cancelled;
+    // Records the best chromosome every traceInterval generations, null if off
+    private GenerationTrace trace;
+    // Solvers that run side by side must each have their own trace file
+    Path tracePath = Paths.get("generations", "trace.bin");
+    // Exchanges migrants with the other islands of a distributed run, null if
+    // this solver runs alone
+    Island island;
+    // Whether to print the progress line, turned off for racers
+    boolean printProgress = true;
+    // Called on every improvement of the best legal fitness, may be null
+    ProgressListener progressListener;
+    // Points (generation, seconds, fitness) where the best legal fitness improved
+    private List<double[]> convergence = new ArrayList<>();
+    private double bestLegalFitness = Double.POSITIVE_INFINITY;
+    private long startNanos;
+
+    private static final String[] SEEDING_HEURISTICS = { "random", "nearest_neighbour", "sweep" };
+
+    // Random streams that are not tied to a generation, see randomFor()
+    private static final long INIT_STREAM = -1;
+    private static final long STEADY_STATE_STREAM = -2;
+    private static final long ELITISM_SLOT = -1;
+    private static final long DUPLICATES_SLOT = -2;
 
     public Solver(ConfigParser configParser, ProblemParser problemParser, double stopThreshold) {
+        this(configParser, problemParser, stopThreshold, null, new AtomicBoolean(false));
+    }
+
+    /**
+     * Creates a solver that runs on a worker pool shared with other solvers of
+     * the same problem and stops when the cancelled flag is set. The customers
+     * must already be assigned to the depots with initDepotAssignment(), since
+     * the depots of the problem are shared as well.
+     */
+    Solver(ConfigParser configParser, ProblemParser problemParser, double stopThreshold,
+            ExecutorService sharedWorkers, AtomicBoolean cancelled) {
         this.maxGeneration = configParser.maxGeneration;
         this.eliteRatio = configParser.eliteRatio;
         this.crossoverChance = configParser.crossoverChance;
@@ -47,20 +140,58 @@ public class Solver extends Thread {
         this.apprate = configParser.apprate;
         this.verbose = configParser.verbose;
         this.saveInterval = configParser.saveInterval;
+        this.traceInterval = configParser.traceInterval;
+        if (configParser.jfrEvents) {
+            SolverEvents.register();
+        }
+        this.migrationInterval = configParser.migrationInterval;
+        this.migrationSize = configParser.migrationSize;
+        this.reusePopulationBuffers = configParser.reusePopulationBuffers;
+        this.offHeapPopulation = configParser.offHeapPopulation;
+        this.steadyState = configParser.steadyState;
+        if (this.offHeapPopulation && this.steadyState) {
+            throw new Error("off_heap_population does not work with steady_state");
+        }
+        this.replaceDuplicates = configParser.replaceDuplicates;
+        this.feasibilityRepair = configParser.feasibilityRepair;
+        if (configParser.adaptiveOperators) {
+            this.operatorSelector = new OperatorSelector();
+        }
+        this.threadCount = configParser.threadCount > 0 ? configParser.threadCount
+                : Runtime.getRuntime().availableProcessors();
+        this.seeding = configParser.seeding;
+        // A negative seed means a new random seed for every run
+        this.seed = configParser.seed >= 0 ? configParser.seed : new SplittableRandom().nextLong() & Long.MAX_VALUE;
 
         this.maxVehicesPerDepot = problemParser.maxVehicesPerDepot;
+        this.model = problemParser.model;
         // this.customerCount = problemParser.customers.size(); // ! Temp
 
         this.stopThreshold = stopThreshold;
+        this.stopGap = configParser.stopGap;
+        if (configParser.lowerBound || this.stopGap > 0) {
+            this.lowerBound = new LowerBound(this.model);
+        }
 
         List<Depot> depots = problemParser.depots;
         List<Customer> customers = problemParser.customers;
 
-        this.initDepotAssignment(depots, customers);
-        this.initPopulation(depots, customers, configParser.populationSize);
+        this.cancelled = cancelled;
+        this.ownsWorkers = sharedWorkers == null;
+        if (this.ownsWorkers) {
+            this.workers = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+            initDepotAssignment(depots, customers, this.bound);
+        } else {
+            this.workers = sharedWorkers;
+        }
+        this.initPopulation(depots, configParser.populationSize);
     }
 
-    private void initDepotAssignment(List<Depot> depots, List<Customer> customers) {
+    static void initDepotAssignment(List<Depot> depots, List<Customer> customers, double bound) {
         // Initializes each customer to the nearest depot
         // ? parallellize this
         for (Customer customer : customers) {
@@ -76,61 +207,161 @@ public class Solver extends Thread {
             }
             bestDepot.addCustomer(customer);
 
-            double bound = this.bound;
             for (Depot depot : depots) {
                 double min = Helper.euclidianDistance(customer.getX(), customer.getY(), bestDepot.getX(),
                         bestDepot.getY());
-                if ((Helper.euclidianDistance(customer.getX(), customer.getY(), depot.getX(), depot.getY()) - min)
-                        / min <= bound) {
+                double distance = Helper.euclidianDistance(customer.getX(), customer.getY(), depot.getX(),
+                        depot.getY());
+                // A customer on top of its nearest depot would give 0 / 0, so a depot at
+                // the lowest distance always has a ratio of 1 to it
+                double excess = distance == min ? 0.0 : (distance - min) / min;
+                if (excess <= bound) {
                     depot.addSwappableCustomer(customer);
                 }
             }
         }
     }
 
-    private void initPopulation(List<Depot> depots, List<Customer> customers, int populationSize) {
-        // ? parallellize this
+    /**
+     * Creates the random source of one slot in one generation. Every stream is
+     * derived from the seed alone, so a run is reproduced exactly by the same
+     * seed, independent of the number of threads and of which thread uses the
+     * stream.
+     */
+    SplittableRandom randomFor(long generation, long slot) {
+        return new SplittableRandom(Helper.mixSeed(this.seed, generation, slot));
+    }
+
+    private void initPopulation(List<Depot> depots, int populationSize) {
         if (populationSize % 2 == 1) {
             System.out.println(
                     "Warning: Please keep the population size as an even number. Why? Because two parents can reproduce easily, while three is more difficult.");
             populationSize--;
             System.out.println("Using a population size of: " + populationSize);
         }
-        for (int i = 0; i < populationSize; i++) {
-            // We need to clone depots to the different chromosomes
-            List<Depot> depotsCopy = new ArrayList<>();
-            for (Depot depot : depots) {
-                Depot depotToAdd = new Depot(depot);
-                // Initialize random routes for each depot per chromosome
-                depotToAdd.shuffleCustomers();
-                depotsCopy.add(depotToAdd);
+        final int size = populationSize;
+        Chromosome[] chromosomes = this.offHeapPopulation ? null : new Chromosome[size];
+        if (this.offHeapPopulation) {
+            this.store = new OffHeapPopulation(size, depots.size(), this.model.customerCount);
+            this.offspringStore = new OffHeapPopulation(size, depots.size(), this.model.customerCount);
+        }
+        AtomicCounter nextChromosome = new AtomicCounter(0);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < this.threadCount; i++) {
+            tasks.add(() -> {
+                int index;
+                while ((index = nextChromosome.getAndIncrement()) < size) {
+                    // Seeded by the slot, so it does not matter which worker creates it
+                    Chromosome chromosome = createInitialChromosome(depots, index,
+                            this.randomFor(INIT_STREAM, index));
+                    if (this.offHeapPopulation) {
+                        this.store.write(index, chromosome);
+                        if (index == 0) {
+                            this.template = chromosome;
+                        }
+                    } else {
+                        chromosomes[index] = chromosome;
+                    }
+                }
+                return null;
+            });
+        }
+        runOnWorkers(tasks);
+
+        if (!this.offHeapPopulation) {
+            this.population.addAll(Arrays.asList(chromosomes));
+        }
+    }
+
+    /**
+     * @return a new chromosome with the routes of the off-heap record at the
+     *         index.
+     */
+    private Chromosome readFromStore(int index) {
+        Chromosome chromosome = new Chromosome(this.template);
+        this.store.read(index, chromosome);
+        return chromosome;
+    }
+
+    /**
+     * @return the index of the off-heap record with the lowest fitness, among the
+     *         legal ones if legalOnly is set, or -1 if there is none.
+     */
+    private int bestIndexInStore(boolean legalOnly) {
+        int best = -1;
+        for (int i = 0; i < this.store.size(); i++) {
+            if ((!legalOnly || this.store.tooManyRoutes(i) == 0)
+                    && (best == -1 || this.store.fitness(i) < this.store.fitness(best))) {
+                best = i;
             }
-            Chromosome chromosome = new Chromosome(depotsCopy);
-            chromosome.routeSchedulingFirstPart();
-            chromosome.routeSchedulingSecondPart();
-            chromosome.getLegality(this.maxVehicesPerDepot);
-            chromosome.updateFitnessByTotalDistanceWithPenalty(0);
+        }
+        return best;
+    }
 
-            this.population.add(chromosome);
+    /**
+     * Creates a chromosome by ordering the customers of each depot as a giant tour
+     * and splitting it into routes. The order is random or made by the
+     * seeding heuristic in the config, where "mixed" alternates between all of
+     * them.
+     */
+    private Chromosome createInitialChromosome(List<Depot> depots, int index, SplittableRandom random) {
+        String heuristic = this.seeding;
+        if (heuristic.equals("mixed")) {
+            heuristic = SEEDING_HEURISTICS[index % SEEDING_HEURISTICS.length];
+        }
+
+        // We need to clone depots to the different chromosomes
+        List<Depot> depotsCopy = new ArrayList<>();
+        for (Depot depot : depots) {
+            Depot depotToAdd = new Depot(depot);
+            switch (heuristic) {
+            case "random":
+                // Initialize random routes for each depot per chromosome
+                depotToAdd.shuffleCustomers(random);
+                break;
+            case "nearest_neighbour":
+                depotToAdd.orderCustomersByNearestNeighbour(random);
+                break;
+            case "sweep":
+                depotToAdd.orderCustomersBySweep(random);
+                break;
+            default:
+                throw new Error("Unknown seeding heuristic: " + heuristic);
+            }
+            depotsCopy.add(depotToAdd);
         }
+        Chromosome chromosome = new Chromosome(depotsCopy);
+        chromosome.routeSchedulingFirstPart();
+        chromosome.routeSchedulingSecondPart();
+        if (this.feasibilityRepair) {
+            repairRouteCount(chromosome);
+        }
+        chromosome.getLegality(this.maxVehicesPerDepot);
+        chromosome.updateFitnessByTotalDistanceWithPenalty(0);
+        return chromosome;
     }
 
     public void saveBest() {
-        Collections.sort(this.population, (a, b) -> Double.compare(a.fitness, b.fitness));
-        List<Chromosome> legalPopulation = this.population.stream().filter(x -> x.tooManyRoutes == 0)
-                .collect(Collectors.toList());
-        if (legalPopulation.isEmpty()) {
+        Chromosome best = this.bestLegalChromosome();
+        if (best == null) {
             return;
         }
+        writeSolution(best.depots, Paths.get("solutions", "solution.res"));
+    }
 
-        List<Depot> depots = legalPopulation.get(0).depots;
-
+    /**
+     * Writes the routes of the given depots to a file in the same format as the
+     * solution files in ./solutions.
+     */
+    static void writeSolution(List<Depot> depots, Path path) {
+        SolverEvents.SolutionWriteEvent event = new SolverEvents.SolutionWriteEvent();
+        event.begin();
         try {
-            Path path = Paths.get("solutions");
-            if (!Files.exists(path)) {
-                Files.createDirectories(path);
+            Path directory = path.getParent();
+            if (directory != null && !Files.exists(directory)) {
+                Files.createDirectories(directory);
             }
-            path = Paths.get(path.toString(), "solution.res");
             if (!Files.exists(path)) {
                 Files.createFile(path);
             }
@@ -150,41 +381,94 @@ public class Solver extends Thread {
                     fr.write("\t");
                     fr.write(Helper.roundDouble(route.routeLength));
                     fr.write("\t");
-                    fr.write(
-                            Integer.toString(route.customers.stream().map(x -> x.getDemand()).reduce(0, Integer::sum)));
+                    int demand = 0;
+                    for (int k = 0; k < route.size(); k++) {
+                        demand += depot.model.customerDemand[route.get(k)];
+                    }
+                    fr.write(Integer.toString(demand));
                     fr.write("\t");
                     // Prepend the depot ID for compatibility reasons
                     fr.write(Integer.toString(depot.getId()));
                     fr.write("\t");
-                    for (Customer c : route.customers) {
-                        fr.write(Integer.toString(c.getId()));
+                    for (int k = 0; k < route.size(); k++) {
+                        fr.write(Integer.toString(depot.model.customerIds[route.get(k)]));
                         fr.write(" ");
                     }
                     fr.write(System.lineSeparator());
                 }
             }
             fr.close();
+            if (event.shouldCommit()) {
+                event.path = path.toString();
+                event.distance = totalRouteLength;
+                for (Depot depot : depots) {
+                    event.routes += depot.routes.size();
+                }
+                event.commit();
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * @return the best chromosome that does not use too many routes in any depot,
+     *         or null if the population has no such chromosome.
+     */
+    Chromosome bestLegalChromosome() {
+        if (this.store != null) {
+            int best = this.bestIndexInStore(true);
+            return best == -1 ? null : this.readFromStore(best);
+        }
+        Collections.sort(this.population, (a, b) -> Double.compare(a.fitness, b.fitness));
+        return bestLegalChromosome(this.population);
+    }
+
+    static Chromosome bestLegalChromosome(List<Chromosome> chromosomes) {
+        Chromosome best = null;
+        for (Chromosome chromosome : chromosomes) {
+            if (chromosome.tooManyRoutes == 0 && (best == null || chromosome.fitness < best.fitness)) {
+                best = chromosome;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the best legal chromosome if there is one, otherwise the chromosome
+     *         with the lowest penalized fitness.
+     */
+    Chromosome bestChromosome() {
+        Chromosome best = this.bestLegalChromosome();
+        if (best == null && this.store != null) {
+            return this.readFromStore(this.bestIndexInStore(false));
+        }
+        if (best == null) {
+            // The population is sorted by bestLegalChromosome()
+            return this.population.get(0);
+        }
+        return best;
+    }
+
     public double bestFitness() {
+        if (this.store != null) {
+            return this.store.fitness(this.bestIndexInStore(false));
+        }
         // Given that the population is already sorted.
         return this.population.get(0).fitness;
     }
 
-    Chromosome[] tournamentSelection(int selection_size) {
+    Chromosome[] tournamentSelection(int selection_size, SplittableRandom random) {
         Chromosome[] winners = new Chromosome[selection_size];
         int tournamentSize = 2; // Binary tournament
         for (int i = 0; i < selection_size; i++) {
             // selection_size number of tournaments
             Chromosome[] tournamentSet = new Chromosome[tournamentSize];
             for (int j = 0; j < tournamentSize; j++) {
-                tournamentSet[j] = Helper.getRandomElementFromList(this.population);
+                tournamentSet[j] = Helper.getRandomElementFromList(this.population, random);
             }
 
-            if (ThreadLocalRandom.current().nextDouble() < tournamentSelectionNumber) {
+            if (random.nextDouble() < tournamentSelectionNumber) {
                 // Add most fit parent
                 // ? Should maybe sort here to enable k > 2, but it may affect performance
                 if (tournamentSet[0].fitness <= tournamentSet[1].fitness) {
@@ -194,76 +478,39 @@ public class Solver extends Thread {
                 }
             } else {
                 // Add random parent
-                winners[i] = Helper.getRandomElementFromList(tournamentSet);
+                winners[i] = Helper.getRandomElementFromList(tournamentSet, random);
             }
         }
         return winners;
     }
 
-    private InsertionCostAndFeasibility getInsertionCostAndFeasibility(Customer customer, Depot depotToModify) {
-        InsertionCostAndFeasibility icaf = new InsertionCostAndFeasibility();
-        for (Route route : depotToModify.routes) {
-            List<Double> routeInsertionCost = new ArrayList<>();
-            List<Boolean> routeMaintainsFeasibility = new ArrayList<>();
-            for (int i = 0; i < route.customers.size() + 1; i++) {
-                route.customers.add(i, customer);
-                depotToModify.recalculateUsedRouteLengthAndCapacity(route);
-                routeInsertionCost.add(route.routeLength);
-                if (route.routeLength <= depotToModify.getMaxRouteDistance()
-                        && route.usedCapacity <= depotToModify.getMaxVehicleLoad()) {
-                    routeMaintainsFeasibility.add(true);
-                } else {
-                    routeMaintainsFeasibility.add(false);
-                }
-                route.customers.remove(customer);
-            }
-            icaf.insertionCost.add(routeInsertionCost);
-            icaf.maintainsFeasibility.add(routeMaintainsFeasibility);
-            depotToModify.recalculateUsedRouteLengthAndCapacity(route); // ? maybe cache this instead
-        }
-        return icaf;
-    }
-
-    private void insertCustomerAtBestLocation(InsertionCostAndFeasibility icaf, Depot depot, Customer customer) {
-        double bestInsertionCost = Double.POSITIVE_INFINITY;
-        Route bestRoute = null;
-        int bestInsertionIndex = 0;
-        for (int i = 0; i < icaf.insertionCost.size(); i++) {
-            for (int k = 0; k < icaf.insertionCost.get(i).size(); k++) {
-                if (icaf.maintainsFeasibility.get(i).get(k) && icaf.insertionCost.get(i).get(k) < bestInsertionCost) {
-                    bestInsertionCost = icaf.insertionCost.get(i).get(k);
-                    bestRoute = depot.routes.get(i);
-                    bestInsertionIndex = k;
-                }
-            }
+    /**
+     * Inserts the customer at the best feasible location in the depot, or in a
+     * new route if there is no feasible location.
+     */
+    private void insertCustomerAtBestLocationOrNewRoute(Chromosome chromosome, Depot depot, int customer) {
+        long bestInsertion = depot.findBestInsertion(customer);
+        if (bestInsertion != -1) {
+            // Insert at best feasible location
+            chromosome.insertCustomer(depot, (int) (bestInsertion >>> 32), (int) bestInsertion, customer);
+        } else {
+            // Create new route
+            chromosome.insertCustomerInNewRoute(depot, customer);
         }
-        bestRoute.customers.add(bestInsertionIndex, customer);
-        depot.recalculateUsedRouteLengthAndCapacity(bestRoute);
     }
 
-    private void crossoverInsertCustomers(List<Customer> customersToAdd, Depot depotToModify) {
-        for (Customer customer : customersToAdd) {
-            if (ThreadLocalRandom.current().nextDouble() < this.crossoverInsertionNumber) {
-                InsertionCostAndFeasibility icaf = getInsertionCostAndFeasibility(customer, depotToModify);
-                if (icaf.maintainsFeasibility.stream().flatMap(List::stream).collect(Collectors.toList())
-                        .contains(true)) {
-                    // Insert at best feasible location
-                    insertCustomerAtBestLocation(icaf, depotToModify, customer);
-                } else {
-                    // Create new route
-                    Route route = new Route();
-                    route.customers.add(customer);
-                    depotToModify.routes.add(route);
-                    depotToModify.recalculateUsedRouteLengthAndCapacity(route);
-                }
+    private void crossoverInsertCustomers(int[] customersToAdd, Chromosome chromosome, Depot depotToModify,
+            SplittableRandom random) {
+        for (int customer : customersToAdd) {
+            if (random.nextDouble() < this.crossoverInsertionNumber) {
+                insertCustomerAtBestLocationOrNewRoute(chromosome, depotToModify, customer);
             } else {
                 // Insert at first entry in the list
                 if (depotToModify.routes.isEmpty()) {
-                    depotToModify.routes.add(0, new Route());
+                    chromosome.insertCustomerInNewRoute(depotToModify, customer);
+                } else {
+                    chromosome.insertCustomer(depotToModify, 0, 0, customer);
                 }
-                Route route = depotToModify.routes.get(0);
-                route.customers.add(0, customer);
-                depotToModify.recalculateUsedRouteLengthAndCapacity(route);
             }
         }
     }
@@ -275,197 +522,399 @@ public class Solver extends Thread {
      * 
      * @return an arrray of length 2 with the chromosome offsprings.
      */
-    Chromosome[] crossover(Chromosome parent1, Chromosome parent2) {
+    Chromosome[] crossover(Chromosome parent1, Chromosome parent2, SplittableRandom random) {
         Chromosome offspring1 = new Chromosome(parent1);
         Chromosome offspring2 = new Chromosome(parent2);
+        return crossoverInPlace(offspring1, offspring2, random);
+    }
 
-        if (ThreadLocalRandom.current().nextDouble() < this.crossoverChance) {
-            Depot depot1 = Helper.getRandomElementFromList(offspring1.depots);
-            Depot depot2 = Helper.getRandomElementFromList(offspring2.depots);
+    /**
+     * Same as crossover(), but the offsprings are written into two existing
+     * chromosomes so no depots or routes are allocated.
+     */
+    Chromosome[] crossoverInto(Chromosome parent1, Chromosome parent2, Chromosome offspring1,
+            Chromosome offspring2, SplittableRandom random) {
+        offspring1.copyFrom(parent1);
+        offspring2.copyFrom(parent2);
+        return crossoverInPlace(offspring1, offspring2, random);
+    }
+
+    private Chromosome[] crossoverInPlace(Chromosome offspring1, Chromosome offspring2,
+            SplittableRandom random) {
+        if (random.nextDouble() < this.crossoverChance) {
+            SolverEvents.OperatorEvent event = new SolverEvents.OperatorEvent();
+            event.begin();
+            Depot depot1 = Helper.getRandomElementFromList(offspring1.depots, random);
+            Depot depot2 = Helper.getRandomElementFromList(offspring2.depots, random);
 
             // These needs to be copied because we don't want them to change
-            List<Customer> customers1 = depot1.routes.isEmpty() ? new ArrayList<>()
-                    : new ArrayList<>(Helper.getRandomElementFromList(depot1.routes).customers);
-            List<Customer> customers2 = depot2.routes.isEmpty() ? new ArrayList<>()
-                    : new ArrayList<>(Helper.getRandomElementFromList(depot2.routes).customers);
+            int[] customers1 = depot1.routes.isEmpty() ? new int[0]
+                    : Helper.getRandomElementFromList(depot1.routes, random).toArray();
+            int[] customers2 = depot2.routes.isEmpty() ? new int[0]
+                    : Helper.getRandomElementFromList(depot2.routes, random).toArray();
 
             // Removes the customers from the chromosome
-            for (Customer customer : customers1) {
-                outer: for (Depot depot : offspring2.depots) {
-                    for (Route route : depot.routes) {
-                        if (route.customers.remove(customer)) {
-                            depot.pruneEmtpyRoutes();
-                            break outer;
-                        }
-                    }
-                }
+            for (int customer : customers1) {
+                offspring2.removeCustomer(customer);
             }
-
-            for (Customer customer : customers2) {
-                outer: for (Depot depot : offspring1.depots) {
-                    for (Route route : depot.routes) {
-                        if (route.customers.remove(customer)) {
-                            depot.pruneEmtpyRoutes();
-                            break outer;
-                        }
-                    }
-                }
+            for (int customer : customers2) {
+                offspring1.removeCustomer(customer);
             }
 
             // ? parallellize these
-            crossoverInsertCustomers(customers1, depot2);
-            crossoverInsertCustomers(customers2, depot1);
+            crossoverInsertCustomers(customers1, offspring2, depot2, random);
+            crossoverInsertCustomers(customers2, offspring1, depot1, random);
+            if (event.shouldCommit()) {
+                event.operator = "crossover";
+                event.insertionScanSize = SolverEvents.insertionPositions(depot1)
+                        + SolverEvents.insertionPositions(depot2);
+                event.commit();
+            }
         }
         // If not crossover, we return a copy of the parents without modifications
         Chromosome[] offsprings = { offspring1, offspring2 };
         return offsprings;
     }
 
-    void intraDepotMutation(Depot depot) {
-        if (ThreadLocalRandom.current().nextDouble() >= this.intraDepotMutationRate) {
+    void intraDepotMutation(Chromosome chromosome, Depot depot, SplittableRandom random) {
+        if (random.nextDouble() >= this.intraDepotMutationRate) {
             return;
         }
+        intraDepotOperator(chromosome, depot, random);
+    }
 
-        switch (ThreadLocalRandom.current().nextInt(3)) {
-        case 0:
-            reversalMutation(depot);
+    /**
+     * Applies one of the intra-depot mutation operators, chosen at random.
+     */
+    private void intraDepotOperator(Chromosome chromosome, Depot depot, SplittableRandom random) {
+        applyOperator(random.nextInt(3), chromosome, depot, random);
+    }
+
+    /**
+     * Applies the mutation operator with the given OperatorSelector index to the
+     * depot, which is ignored by inter-depot mutation.
+     */
+    private void applyOperator(int operator, Chromosome chromosome, Depot depot, SplittableRandom random) {
+        SolverEvents.OperatorEvent event = new SolverEvents.OperatorEvent();
+        event.begin();
+        Depot insertedInto = null;
+        switch (operator) {
+        case OperatorSelector.REVERSAL:
+            reversalMutation(chromosome, depot, random);
             break;
-        case 1:
-            singleCustomerReRouting(depot);
+        case OperatorSelector.REROUTING:
+            singleCustomerReRouting(chromosome, depot, random);
+            insertedInto = depot;
             break;
-        case 2:
-            swapping(depot);
+        case OperatorSelector.SWAPPING:
+            swapping(chromosome, depot, random);
+            break;
+        case OperatorSelector.INTER_DEPOT:
+            insertedInto = interDepotOperator(chromosome, random);
             break;
         default:
             throw new Error();
         }
+        if (event.shouldCommit()) {
+            event.operator = OperatorSelector.NAMES[operator];
+            event.insertionScanSize = insertedInto == null ? 0 : SolverEvents.insertionPositions(insertedInto);
+            event.commit();
+        }
     }
 
-    void reversalMutation(Depot depot) {
+    /**
+     * Mutates the offspring with an operator chosen by the operator selector, and
+     * records how much it improved the fitness and how long it took. Mutation is
+     * applied with the intra-depot mutation rate, and inter-depot mutation is one
+     * of the operators instead of running every APPRATE generations. The fitness
+     * before is the one the offspring copied from its parent, so the offspring is
+     * only evaluated once, after the operator.
+     * 
+     * @return true if the offspring was mutated and evaluated.
+     */
+    private boolean adaptiveMutation(Chromosome offspring, int generation, SplittableRandom random) {
+        if (random.nextDouble() >= this.intraDepotMutationRate) {
+            return false;
+        }
+        int operator = this.operatorSelector.select(random);
+        double fitnessBefore = offspring.fitness;
+
+        long start = System.nanoTime();
+        Depot depot = operator == OperatorSelector.INTER_DEPOT ? null
+                : Helper.getRandomElementFromList(offspring.depots, random);
+        applyOperator(operator, offspring, depot, random);
+        long elapsed = System.nanoTime() - start;
+
+        offspring.getLegality(this.maxVehicesPerDepot);
+        offspring.updateFitnessByTotalDistanceWithPenalty(generation);
+        this.operatorSelector.record(operator, fitnessBefore - offspring.fitness, elapsed);
+        return true;
+    }
+
+    /**
+     * Repairs and evaluates an offspring after mutation. An offspring that was
+     * already evaluated by adaptive mutation keeps its fitness, unless it has too
+     * many routes and feasibility repair changes it.
+     */
+    private void repairAndEvaluate(Chromosome offspring, boolean evaluated, int generation) {
+        if (this.feasibilityRepair && (!evaluated || offspring.tooManyRoutes > 0)) {
+            repairRouteCount(offspring);
+            evaluated = false;
+        }
+        if (!evaluated) {
+            offspring.getLegality(this.maxVehicesPerDepot);
+            offspring.updateFitnessByTotalDistanceWithPenalty(generation);
+        }
+    }
+
+    /**
+     * Tries to make the chromosome legal by dissolving routes of the depots that
+     * have more than maxVehicesPerDepot routes. The route with the least load is
+     * removed and its customers are inserted at their cheapest feasible position
+     * in the remaining routes of the depot, or of another depot that can serve
+     * the customer and is within its limit. If a customer does not fit anywhere
+     * the route is restored and the depot is left over the limit.
+     *
+     * @return true if every depot is within the limit afterwards.
+     */
+    boolean repairRouteCount(Chromosome chromosome) {
+        boolean overLimit = false;
+        for (Depot depot : chromosome.depots) {
+            overLimit |= depot.routes.size() > this.maxVehicesPerDepot;
+        }
+        if (!overLimit) {
+            return true;
+        }
+
+        this.repairAttempts.increment();
+        boolean repaired = true;
+        for (Depot depot : chromosome.depots) {
+            while (depot.routes.size() > this.maxVehicesPerDepot) {
+                if (!dissolveSmallestRoute(chromosome, depot)) {
+                    repaired = false;
+                    break;
+                }
+            }
+        }
+        if (repaired) {
+            this.repairSuccesses.increment();
+        }
+        return repaired;
+    }
+
+    private boolean dissolveSmallestRoute(Chromosome chromosome, Depot depot) {
+        Route smallest = depot.routes.get(0);
+        for (Route route : depot.routes) {
+            if (route.usedCapacity < smallest.usedCapacity) {
+                smallest = route;
+            }
+        }
+        int[] customers = smallest.toArray();
+        for (int customer : customers) {
+            chromosome.removeCustomer(customer);
+        }
+
+        for (int i = 0; i < customers.length; i++) {
+            if (!insertAtCheapestFeasibleLocation(chromosome, depot, customers[i])) {
+                // Undo in reverse order, which restores the routes exactly
+                for (int j = i - 1; j >= 0; j--) {
+                    chromosome.removeCustomer(customers[j]);
+                }
+                chromosome.insertCustomerInNewRoute(depot, customers[0]);
+                for (int j = 1; j < customers.length; j++) {
+                    chromosome.insertCustomer(depot, depot.routes.size() - 1, j, customers[j]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the worst chromosome of the initial population with one that has
+     * the given routes, for example the cached solution of a similar problem.
+     * Customers that are in no route are inserted at their cheapest feasible
+     * location, or in a new route of their nearest depot. Must be called before
+     * runGA().
+     */
+    void seedPopulation(int[][][] routes) {
+        Chromosome chromosome = Chromosome.fromRoutes(
+                this.store != null ? this.template.depots : this.population.get(0).depots, routes);
+        for (int customer = 0; customer < this.model.customerCount; customer++) {
+            if (chromosome.locations.depotOf[customer] != -1) {
+                continue;
+            }
+            Depot nearest = chromosome.depots.get(0);
+            for (Depot depot : chromosome.depots) {
+                if (this.model.depotDistance(depot.getIndex(), customer) < this.model
+                        .depotDistance(nearest.getIndex(), customer)) {
+                    nearest = depot;
+                }
+            }
+            if (!insertAtCheapestFeasibleLocation(chromosome, nearest, customer)) {
+                chromosome.insertCustomerInNewRoute(nearest, customer);
+            }
+        }
+        if (this.feasibilityRepair) {
+            repairRouteCount(chromosome);
+        }
+        chromosome.getLegality(this.maxVehicesPerDepot);
+        chromosome.updateFitnessByTotalDistanceWithPenalty(0);
+
+        if (this.store != null) {
+            int worst = 0;
+            for (int i = 1; i < this.store.size(); i++) {
+                if (this.store.fitness(i) > this.store.fitness(worst)) {
+                    worst = i;
+                }
+            }
+            this.store.write(worst, chromosome);
+            return;
+        }
+        Collections.sort(this.population, (a, b) -> Double.compare(a.fitness, b.fitness));
+        this.population.set(this.population.size() - 1, chromosome);
+    }
+
+    /**
+     * Inserts the customer into an existing route of the depot, or of another
+     * depot within its route limit that can serve the customer, at the feasible
+     * position that adds the least distance.
+     *
+     * @return false if there is no feasible position.
+     */
+    private boolean insertAtCheapestFeasibleLocation(Chromosome chromosome, Depot home, int customer) {
+        Customer c = this.model.getCustomer(customer);
+        Depot bestDepot = null;
+        long bestInsertion = -1;
+        double bestDelta = Double.POSITIVE_INFINITY;
+        for (Depot depot : chromosome.depots) {
+            if (depot != home && (depot.routes.size() > this.maxVehicesPerDepot
+                    || !depot.getSwappableCustomers().contains(c))) {
+                continue;
+            }
+            long insertion = depot.findBestInsertion(customer);
+            if (insertion == -1) {
+                continue;
+            }
+            double delta = depot.insertionDelta(customer, (int) (insertion >>> 32), (int) insertion);
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestDepot = depot;
+                bestInsertion = insertion;
+            }
+        }
+        if (bestDepot == null) {
+            return false;
+        }
+        chromosome.insertCustomer(bestDepot, (int) (bestInsertion >>> 32), (int) bestInsertion, customer);
+        return true;
+    }
+
+    void reversalMutation(Chromosome chromosome, Depot depot, SplittableRandom random) {
         // This works on a single random route, not the entire depot
         if (depot.routes.isEmpty()) {
             return;
         }
-        Route route = Helper.getRandomElementFromList(depot.routes);
-        int startIndex = ThreadLocalRandom.current().nextInt(route.customers.size());
-        int endIndex = startIndex + 1 + ThreadLocalRandom.current().nextInt(route.customers.size() - startIndex);
-        Collections.reverse(route.customers.subList(startIndex, endIndex));
+        int routeIndex = random.nextInt(depot.routes.size());
+        Route route = depot.routes.get(routeIndex);
+        int startIndex = random.nextInt(route.size());
+        int endIndex = startIndex + 1 + random.nextInt(route.size() - startIndex);
+        route.reverse(startIndex, endIndex);
         depot.recalculateUsedRouteLengthAndCapacity(route);
+        chromosome.locations.indexRoute(depot, routeIndex, startIndex);
     }
 
-    void singleCustomerReRouting(Depot depot) {
+    void singleCustomerReRouting(Chromosome chromosome, Depot depot, SplittableRandom random) {
         // Removes a random customer from a random route and places it at the best
         // possible location.
         if (depot.routes.isEmpty()) {
             return;
         }
 
-        Route route = Helper.getRandomElementFromList(depot.routes);
-        Customer customer = Helper.getRandomElementFromList(route.customers);
-        route.customers.remove(customer);
-        depot.pruneEmtpyRoutes();
-
-        InsertionCostAndFeasibility icaf = getInsertionCostAndFeasibility(customer, depot);
+        Route route = Helper.getRandomElementFromList(depot.routes, random);
+        int customer = route.get(random.nextInt(route.size()));
+        chromosome.removeCustomer(customer);
 
-        if (icaf.maintainsFeasibility.stream().flatMap(List::stream).collect(Collectors.toList()).contains(true)) {
-            // Insert at best feasible location
-            insertCustomerAtBestLocation(icaf, depot, customer);
-        } else {
-            // Create new route
-            Route newRoute = new Route();
-            newRoute.customers.add(customer);
-            depot.routes.add(newRoute);
-            depot.recalculateUsedRouteLengthAndCapacity(newRoute);
-        }
+        insertCustomerAtBestLocationOrNewRoute(chromosome, depot, customer);
     }
 
-    void swapping(Depot depot) {
+    void swapping(Chromosome chromosome, Depot depot, SplittableRandom random) {
         // Swaps one customer-pair between two random routes in the depot.
 
         if (depot.routes.size() < 2) {
             return;
         }
-        List<Route> routes = Helper.getNRandomElementsFromList(depot.routes, 2);
-        Route route1 = routes.get(0);
-        Route route2 = routes.get(1);
-
-        Customer customer1 = Helper.getRandomElementFromList(route1.customers);
-        Customer customer2 = Helper.getRandomElementFromList(route2.customers);
+        int routeIndex1 = random.nextInt(depot.routes.size());
+        int routeIndex2 = random.nextInt(depot.routes.size() - 1);
+        if (routeIndex2 >= routeIndex1) {
+            routeIndex2++;
+        }
+        Route route1 = depot.routes.get(routeIndex1);
+        Route route2 = depot.routes.get(routeIndex2);
 
-        int index1 = route1.customers.indexOf(customer1);
-        int index2 = route2.customers.indexOf(customer2);
+        int index1 = random.nextInt(route1.size());
+        int index2 = random.nextInt(route2.size());
 
-        route1.customers.remove(index1);
-        route2.customers.remove(index2);
+        int customer1 = route1.get(index1);
+        int customer2 = route2.get(index2);
 
-        route1.customers.add(index1, customer2);
-        route2.customers.add(index2, customer1);
+        route1.set(index1, customer2);
+        route2.set(index2, customer1);
 
         depot.recalculateUsedRouteLengthAndCapacity(route1);
         depot.recalculateUsedRouteLengthAndCapacity(route2);
+        chromosome.locations.indexRoute(depot, routeIndex1, index1);
+        chromosome.locations.indexRoute(depot, routeIndex2, index2);
     }
 
-    void interDepotMutation(Chromosome chromosome) {
-        if (ThreadLocalRandom.current().nextDouble() >= this.interDepotMutationRate) {
+    void interDepotMutation(Chromosome chromosome, SplittableRandom random) {
+        if (random.nextDouble() >= this.interDepotMutationRate) {
             return;
         }
-        List<Depot> depotsWithSwappableCustomers = chromosome.depots.stream()
-                .filter(x -> x.getSwappableCustomers().size() > 0).collect(Collectors.toList());
-        List<Depot> fullDepots = new ArrayList<>();
-        for (Depot depot : depotsWithSwappableCustomers) {
-            List<Customer> customersInDepot = new ArrayList<>();
-            for (Route route : depot.routes) {
-                customersInDepot.addAll(route.customers);
-            }
-            if (new HashSet<>(customersInDepot).containsAll(depot.getSwappableCustomers())) {
-                // Already full depot, in the sense that it already has all customers it can
-                // have
-                fullDepots.add(depot);
+        applyOperator(OperatorSelector.INTER_DEPOT, chromosome, null, random);
+    }
+
+    /**
+     * Moves a random customer to another depot it can be served by.
+     *
+     * @return the depot the customer was moved to, or null if no customer could
+     *         be moved.
+     */
+    private Depot interDepotOperator(Chromosome chromosome, SplittableRandom random) {
+        // Depots that do not already have all the customers they can have
+        List<Depot> depotsWithSwappableCustomers = new ArrayList<>();
+        for (Depot depot : chromosome.depots) {
+            for (Customer customer : depot.getSwappableCustomers()) {
+                if (chromosome.locations.depotOf[customer.getIndex()] != depot.getIndex()) {
+                    depotsWithSwappableCustomers.add(depot);
+                    break;
+                }
             }
         }
-        depotsWithSwappableCustomers.removeAll(fullDepots);
         if (depotsWithSwappableCustomers.isEmpty()) {
-            return;
+            return null;
         }
 
-        Depot toDepot = Helper.getRandomElementFromList(depotsWithSwappableCustomers);
-        HashSet<Customer> possibleCustomersToGet = new HashSet<>(toDepot.getSwappableCustomers());
-        List<Customer> customersInDepot = new ArrayList<>();
-        for (Route route : toDepot.routes) {
-            customersInDepot.addAll(route.customers);
-        }
-        possibleCustomersToGet.removeAll(customersInDepot);
-        Customer customerToSwap = Helper.getRandomElementFromList(new ArrayList<>(possibleCustomersToGet));
-
-        // Remove customerToSwap from the depot which contains it
-        outer: for (Depot depot : chromosome.depots) {
-            for (Route route : depot.routes) {
-                if (route.customers.remove(customerToSwap)) {
-                    depot.recalculateUsedRouteLengthAndCapacity(route);
-                    depot.pruneEmtpyRoutes();
-                    break outer;
-                }
+        Depot toDepot = Helper.getRandomElementFromList(depotsWithSwappableCustomers, random);
+        List<Customer> possibleCustomersToGet = new ArrayList<>();
+        for (Customer customer : toDepot.getSwappableCustomers()) {
+            if (chromosome.locations.depotOf[customer.getIndex()] != toDepot.getIndex()) {
+                possibleCustomersToGet.add(customer);
             }
         }
+        int customerToSwap = Helper.getRandomElementFromList(possibleCustomersToGet, random).getIndex();
 
-        InsertionCostAndFeasibility icaf = getInsertionCostAndFeasibility(customerToSwap, toDepot);
+        // Remove customerToSwap from the depot which contains it
+        chromosome.removeCustomer(customerToSwap);
 
-        if (icaf.maintainsFeasibility.stream().flatMap(List::stream).collect(Collectors.toList()).contains(true)) {
-            // Insert at best feasible location
-            insertCustomerAtBestLocation(icaf, toDepot, customerToSwap);
-        } else {
-            // Create new route
-            Route newRoute = new Route();
-            newRoute.customers.add(customerToSwap);
-            toDepot.routes.add(newRoute);
-            toDepot.recalculateUsedRouteLengthAndCapacity(newRoute);
-        }
+        insertCustomerAtBestLocationOrNewRoute(chromosome, toDepot, customerToSwap);
+        return toDepot;
     }
 
-    void elitism(List<Chromosome> newPopulation, int elitismCount) {
+    void elitism(List<Chromosome> newPopulation, int elitismCount, SplittableRandom random) {
         // Randomly replace some % of the population with the best some % from
         // the parent population
-        Collections.shuffle(newPopulation);
+        Helper.shuffle(newPopulation, random);
         Collections.sort(this.population, (a, b) -> Double.compare(a.fitness, b.fitness));
         for (int i = 0; i < elitismCount; i++) {
             newPopulation.set(i, this.population.get(i));
@@ -473,119 +922,667 @@ public class Solver extends Thread {
         this.population = newPopulation;
     }
 
+    /**
+     * Same as elitism(), but the elites are copied into the new population so the
+     * old population can be reused as the offspring buffer of the next
+     * generation.
+     */
+    void elitismInPlace(List<Chromosome> newPopulation, int elitismCount, SplittableRandom random) {
+        Helper.shuffle(newPopulation, random);
+        Collections.sort(this.population, (a, b) -> Double.compare(a.fitness, b.fitness));
+        for (int i = 0; i < elitismCount; i++) {
+            newPopulation.get(i).copyFrom(this.population.get(i));
+        }
+        this.offspringBuffer = this.population;
+        this.population = newPopulation;
+    }
+
+    /**
+     * Same as elitism(), but for the off-heap population. The elites are copied
+     * over random offsprings, and the offspring population becomes the parent
+     * population of the next generation.
+     */
+    private void elitismOffHeap(int elitismCount, SplittableRandom random) {
+        final int size = this.store.size();
+        // Partial shuffle of the slots, so the first elitismCount are random
+        for (int i = 0; i < elitismCount; i++) {
+            int j = i + random.nextInt(size - i);
+            int slot = this.slots[i];
+            this.slots[i] = this.slots[j];
+            this.slots[j] = slot;
+        }
+        if (elitismCount > 0) {
+            // The fitness is never negative, so the raw bits sort in the same order
+            // as the values
+            for (int i = 0; i < size; i++) {
+                this.fitnessKeys[i] = Double.doubleToRawLongBits(this.store.fitness(i));
+            }
+            Arrays.sort(this.fitnessKeys);
+            long threshold = this.fitnessKeys[elitismCount - 1];
+            int elites = 0;
+            // First the chromosomes better than the threshold, then the ties
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < size && elites < elitismCount; i++) {
+                    long key = Double.doubleToRawLongBits(this.store.fitness(i));
+                    if (pass == 0 ? key < threshold : key == threshold) {
+                        this.store.copy(i, this.offspringStore, this.slots[elites++]);
+                    }
+                }
+            }
+        }
+        OffHeapPopulation parents = this.store;
+        this.store = this.offspringStore;
+        this.offspringStore = parents;
+    }
+
+    /**
+     * Measures the diversity of the population, and if replaceDuplicates is set,
+     * mutates every chromosome that has the same structure as an earlier one
+     * until it is unique. The elites are at the front of the population after
+     * elitism, so they are never changed.
+     */
+    private void handleDuplicates(int generation, SplittableRandom random) {
+        Set<Long> hashes = new HashSet<>();
+        int duplicates = 0;
+        for (Chromosome chromosome : this.population) {
+            if (hashes.add(chromosome.hash())) {
+                continue;
+            }
+            duplicates++;
+            if (this.replaceDuplicates) {
+                // A mutation can leave the routes unchanged, so try a few times
+                for (int attempt = 0; attempt < 5; attempt++) {
+                    intraDepotOperator(chromosome, Helper.getRandomElementFromList(chromosome.depots, random), random);
+                    if (hashes.add(chromosome.hash())) {
+                        break;
+                    }
+                }
+                chromosome.getLegality(this.maxVehicesPerDepot);
+                chromosome.updateFitnessByTotalDistanceWithPenalty(generation);
+            }
+        }
+        this.diversity = 1.0 - (double) duplicates / this.population.size();
+        if (this.replaceDuplicates) {
+            this.duplicatesReplaced += duplicates;
+        }
+    }
+
+    /**
+     * Same as handleDuplicates(), but for the off-heap population. The elites
+     * are visited first, so they are never changed.
+     */
+    private void handleDuplicatesOffHeap(int generation, SplittableRandom random) {
+        Arrays.fill(this.seenHashes, 0);
+        Chromosome chromosome = this.scratch[0][0];
+        int duplicates = 0;
+        for (int slot : this.slots) {
+            if (this.addHash(this.store.hash(slot))) {
+                continue;
+            }
+            duplicates++;
+            if (this.replaceDuplicates) {
+                this.store.read(slot, chromosome);
+                for (int attempt = 0; attempt < 5; attempt++) {
+                    intraDepotOperator(chromosome, Helper.getRandomElementFromList(chromosome.depots, random), random);
+                    if (this.addHash(chromosome.hash())) {
+                        break;
+                    }
+                }
+                chromosome.getLegality(this.maxVehicesPerDepot);
+                chromosome.updateFitnessByTotalDistanceWithPenalty(generation);
+                this.store.write(slot, chromosome);
+            }
+        }
+        this.diversity = 1.0 - (double) duplicates / this.store.size();
+        if (this.replaceDuplicates) {
+            this.duplicatesReplaced += duplicates;
+        }
+    }
+
+    /**
+     * Adds the hash to the open-addressing set in seenHashes, where 0 marks an
+     * empty entry.
+     *
+     * @return false if the hash was already in the set.
+     */
+    private boolean addHash(long hash) {
+        if (hash == 0) {
+            hash = 1;
+        }
+        int mask = this.seenHashes.length - 1;
+        for (int i = (int) Helper.mix64(hash) & mask;; i = (i + 1) & mask) {
+            if (this.seenHashes[i] == hash) {
+                return false;
+            }
+            if (this.seenHashes[i] == 0) {
+                this.seenHashes[i] = hash;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the fraction of structurally distinct chromosomes.
+     */
+    private static double diversityOf(List<Chromosome> chromosomes) {
+        Set<Long> hashes = new HashSet<>();
+        for (Chromosome chromosome : chromosomes) {
+            hashes.add(chromosome.hash());
+        }
+        return (double) hashes.size() / chromosomes.size();
+    }
+
+    private void breedPair(List<Chromosome> newPopulation, int pair, boolean interDepot, int generation) {
+        // Each pair has its own random stream, so the result does not depend on
+        // which worker breeds it
+        SplittableRandom random = this.randomFor(generation, pair);
+        Chromosome[] parents = tournamentSelection(2, random); // Note that these are not copies
+        Chromosome[] offsprings;
+        if (this.reusePopulationBuffers) {
+            offsprings = crossoverInto(parents[0], parents[1], newPopulation.get(2 * pair),
+                    newPopulation.get(2 * pair + 1), random);
+        } else {
+            offsprings = crossover(parents[0], parents[1], random);
+        }
+        mutateAndEvaluate(offsprings, interDepot, generation, random);
+
+        newPopulation.set(2 * pair, offsprings[0]);
+        newPopulation.set(2 * pair + 1, offsprings[1]);
+    }
+
+    /**
+     * Mutates, repairs and evaluates a pair of offsprings after crossover.
+     */
+    private void mutateAndEvaluate(Chromosome[] offsprings, boolean interDepot, int generation,
+            SplittableRandom random) {
+        boolean evaluated0 = false;
+        boolean evaluated1 = false;
+        if (this.operatorSelector != null) {
+            evaluated0 = adaptiveMutation(offsprings[0], generation, random);
+            evaluated1 = adaptiveMutation(offsprings[1], generation, random);
+        } else if (interDepot) {
+            // Apply inter-depot mutation every 10th generation for example
+            // ? parallellize
+            interDepotMutation(offsprings[0], random);
+            interDepotMutation(offsprings[1], random);
+        } else {
+            // Intra-depot mutation
+            // Selects a random depot to perform mutation on
+            intraDepotMutation(offsprings[0], Helper.getRandomElementFromList(offsprings[0].depots, random),
+                    random);
+            intraDepotMutation(offsprings[1], Helper.getRandomElementFromList(offsprings[1].depots, random),
+                    random);
+        }
+
+        repairAndEvaluate(offsprings[0], evaluated0, generation);
+        repairAndEvaluate(offsprings[1], evaluated1, generation);
+    }
+
+    /**
+     * Binary tournament over the off-heap population, with the same random draws
+     * as tournamentSelection().
+     *
+     * @return the index of the winner.
+     */
+    private int tournamentIndex(SplittableRandom random) {
+        int first = random.nextInt(this.store.size());
+        int second = random.nextInt(this.store.size());
+        if (random.nextDouble() < tournamentSelectionNumber) {
+            return this.store.fitness(first) <= this.store.fitness(second) ? first : second;
+        }
+        return random.nextInt(2) == 0 ? first : second;
+    }
+
+    /**
+     * Same as breedPair(), but the parents are decoded from the off-heap
+     * population into the two scratch chromosomes, which become the offsprings
+     * and are encoded into the off-heap offspring population.
+     */
+    private void breedPairOffHeap(Chromosome[] scratch, int pair, boolean interDepot, int generation) {
+        SplittableRandom random = this.randomFor(generation, pair);
+        int parent1 = tournamentIndex(random);
+        int parent2 = tournamentIndex(random);
+        this.store.read(parent1, scratch[0]);
+        this.store.read(parent2, scratch[1]);
+        Chromosome[] offsprings = crossoverInPlace(scratch[0], scratch[1], random);
+        mutateAndEvaluate(offsprings, interDepot, generation, random);
+
+        this.offspringStore.write(2 * pair, offsprings[0]);
+        this.offspringStore.write(2 * pair + 1, offsprings[1]);
+    }
+
+    /**
+     * Fills the new population with offspring pairs, using all worker threads.
+     */
+    private void breedGeneration(List<Chromosome> newPopulation, boolean interDepot, int generation) {
+        final int pairCount = newPopulation.size() / 2;
+        AtomicCounter nextPair = new AtomicCounter(0);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < this.threadCount; i++) {
+            tasks.add(() -> {
+                int pair;
+                while ((pair = nextPair.getAndIncrement()) < pairCount) {
+                    breedPair(newPopulation, pair, interDepot, generation);
+                }
+                return null;
+            });
+        }
+
+        runOnWorkers(tasks);
+    }
+
+    /**
+     * Same as breedGeneration(), but for the off-heap population. Each worker
+     * task has its own pair of scratch chromosomes.
+     */
+    private void breedGenerationOffHeap(boolean interDepot, int generation) {
+        final int pairCount = this.store.size() / 2;
+        AtomicCounter nextPair = new AtomicCounter(0);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < this.threadCount; i++) {
+            Chromosome[] scratch = this.scratch[i];
+            tasks.add(() -> {
+                int pair;
+                while ((pair = nextPair.getAndIncrement()) < pairCount) {
+                    breedPairOffHeap(scratch, pair, interDepot, generation);
+                }
+                return null;
+            });
+        }
+
+        runOnWorkers(tasks);
+    }
+
+    /**
+     * Runs the tasks on the worker pool and waits for all of them to finish.
+     */
+    private void runOnWorkers(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : this.workers.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } catch (ExecutionException e) {
+            throw new Error(e.getCause());
+        }
+    }
+
     public void runGA() {
+        this.startNanos = System.nanoTime();
         if (this.stopThreshold == Double.NEGATIVE_INFINITY) {
             System.out
                     .println(ConsoleColors.YELLOW + "Running GA without a threshold stop value." + ConsoleColors.RESET);
         }
 
-        final int elitismCount = (int) Math.round((double) this.population.size() * this.eliteRatio);
-        if (elitismCount == 0) {
+        final int populationSize = this.store != null ? this.store.size() : this.population.size();
+        final int elitismCount = (int) Math.round((double) populationSize * this.eliteRatio);
+        if (elitismCount == 0 && this.printProgress) {
             System.out.println(ConsoleColors.YELLOW + "Warning: elitism is not applied." + ConsoleColors.RESET);
         }
 
         if (this.verbose) {
-            System.out.println("Population size: " + this.population.size());
-            System.out.println("This many legal init chromosomes: "
-                    + this.population.stream().filter(x -> x.tooManyRoutes == 0).count());
+            System.out.println("Population size: " + populationSize);
+            if (this.store != null) {
+                int legal = 0;
+                for (int i = 0; i < populationSize; i++) {
+                    legal += this.store.tooManyRoutes(i) == 0 ? 1 : 0;
+                }
+                System.out.println("This many legal init chromosomes: " + legal);
+                System.out.println("Off-heap population size: "
+                        + Helper.roundDouble(2.0 * this.store.bytes() / (1 << 20)) + " MiB");
+            } else {
+                System.out.println("This many legal init chromosomes: "
+                        + this.population.stream().filter(x -> x.tooManyRoutes == 0).count());
+            }
             System.out.println("Early stopping fitness threshold: " + this.stopThreshold);
+            if (this.lowerBound != null) {
+                System.out.println("Lower bound: " + Helper.roundDouble(this.lowerBound.value()) + " (degree "
+                        + Helper.roundDouble(this.lowerBound.degreeBound) + ", spanning tree "
+                        + Helper.roundDouble(this.lowerBound.spanningTreeBound) + ")");
+            }
+            System.out.println("Seed: " + this.seed);
         }
 
-        for (int generation = 0; generation < this.maxGeneration; generation++) {
-            List<Chromosome> newPopulationSync = Collections.synchronizedList(new ArrayList<>());
-
-            AtomicCounter customerPairsLeft = new AtomicCounter(this.population.size() / 2);
-
-            List<Thread> threads = new ArrayList<>();
+        if (this.store != null) {
+            this.scratch = new Chromosome[this.threadCount][2];
+            for (Chromosome[] pair : this.scratch) {
+                pair[0] = new Chromosome(this.template);
+                pair[1] = new Chromosome(this.template);
+            }
+            this.slots = new int[populationSize];
+            for (int i = 0; i < populationSize; i++) {
+                this.slots[i] = i;
+            }
+            this.fitnessKeys = new long[populationSize];
+            this.seenHashes = new long[Integer.highestOneBit(populationSize) * 4];
+        } else if (this.reusePopulationBuffers && !this.steadyState) {
+            this.offspringBuffer = new ArrayList<>();
+            for (Chromosome chromosome : this.population) {
+                this.offspringBuffer.add(new Chromosome(chromosome));
+            }
+        }
+        if (this.traceInterval > 0) {
+            try {
+                this.trace = new GenerationTrace(this.tracePath,
+                        this.store != null ? this.template.depots : this.population.get(0).depots);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            if (this.steadyState) {
+                this.evolveSteadyState();
+            } else if (this.store != null) {
+                this.evolveOffHeap(elitismCount);
+            } else {
+                this.evolve(elitismCount);
+            }
+        } finally {
+            if (this.ownsWorkers) {
+                this.workers.shutdown();
+            }
+            if (this.trace != null) {
+                try {
+                    this.trace.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        if (this.verbose && this.operatorSelector != null) {
+            System.out.print("\nOperator statistics:\n" + this.operatorSelector.report());
+        }
+        if (this.verbose && this.feasibilityRepair) {
+            System.out.println("\nRepaired " + this.repairSuccesses.sum() + " of " + this.repairAttempts.sum()
+                    + " chromosomes with too many routes (" + Helper.roundDouble(this.repairSuccessRate() * 100)
+                    + "%)");
+        }
+    }
 
-            final boolean interDepot = generation % this.apprate == 0;
-            final int g = generation;
-            for (int i = 0; i < 24; i++) {
-                threads.add(new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        while (customerPairsLeft.value() > 0) {
-                            customerPairsLeft.decrement();
-                            Chromosome[] parents = tournamentSelection(2); // Note that these are not copies
-                            Chromosome[] offsprings = crossover(parents[0], parents[1]);
-                            if (interDepot) {
-                                // Apply inter-depot mutation every 10th generation for example
-                                // ? parallellize
-                                interDepotMutation(offsprings[0]);
-                                interDepotMutation(offsprings[1]);
-                            } else {
-                                // Intra-depot mutation
-                                // Selects a random depot to perform mutation on
-                                intraDepotMutation(Helper.getRandomElementFromList(offsprings[0].depots));
-                                intraDepotMutation(Helper.getRandomElementFromList(offsprings[1].depots));
+    /**
+     * Steady-state GA without generation barriers. Every worker keeps selecting
+     * parents from the shared population, and each offspring replaces the loser
+     * of a binary tournament if it is at least as fit. Slots are replaced with
+     * compare-and-set, so no worker ever waits for another. Inter-depot mutation
+     * is applied with probability 1 / APPRATE instead of every APPRATE
+     * generations.
+     * 
+     * A generation here means as many offsprings as the population size. The
+     * worker that completes a generation also runs the progress report and stop
+     * check while the others keep breeding.
+     */
+    private void evolveSteadyState() {
+        final int size = this.population.size();
+        final long maxOffspringCount = (long) this.maxGeneration * size;
+        AtomicReferenceArray<Chromosome> slots = new AtomicReferenceArray<>(
+                this.population.toArray(new Chromosome[size]));
+        AtomicLong offspringCount = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        // A generation event covers every population size of offsprings, and is
+        // ended by the worker that breeds the last of them
+        AtomicReference<SolverEvents.GenerationEvent> batchEvent = new AtomicReference<>(
+                new SolverEvents.GenerationEvent());
+        batchEvent.get().begin();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < this.threadCount; i++) {
+            // The interleaving of the workers decides which offsprings see which
+            // parents, so this mode is not reproducible even with a fixed seed
+            SplittableRandom random = this.randomFor(STEADY_STATE_STREAM, i);
+            tasks.add(() -> {
+                while (!stop.get()) {
+                    Chromosome[] offsprings = crossover(steadyStateTournament(slots, random),
+                            steadyStateTournament(slots, random), random);
+                    for (Chromosome offspring : offsprings) {
+                        int generation = (int) (offspringCount.get() / size);
+                        boolean evaluated = false;
+                        if (this.operatorSelector != null) {
+                            evaluated = adaptiveMutation(offspring, generation, random);
+                        } else if (random.nextInt(this.apprate) == 0) {
+                            interDepotMutation(offspring, random);
+                        } else {
+                            intraDepotMutation(offspring, Helper.getRandomElementFromList(offspring.depots, random),
+                                    random);
+                        }
+                        repairAndEvaluate(offspring, evaluated, generation);
+                        steadyStateReplace(slots, offspring, random);
+
+                        long count = offspringCount.incrementAndGet();
+                        if (count % size == 0) {
+                            generation = (int) (count / size);
+                            SolverEvents.GenerationEvent nextEvent = new SolverEvents.GenerationEvent();
+                            nextEvent.begin();
+                            SolverEvents.GenerationEvent event = batchEvent.getAndSet(nextEvent);
+                            if (this.operatorSelector != null) {
+                                this.operatorSelector.update();
+                            }
+                            if (count >= maxOffspringCount) {
+                                stop.set(true);
+                            }
+                            List<Chromosome> snapshot = snapshot(slots);
+                            if (generation % this.saveInterval == 0) {
+                                Chromosome best = bestLegalChromosome(snapshot);
+                                if (best != null) {
+                                    writeSolution(best.depots, Paths.get("solutions", "solution.res"));
+                                }
+                            }
+                            if (this.trace != null && generation % this.traceInterval == 0) {
+                                Chromosome best = bestLegalChromosome(snapshot);
+                                this.trace.record(generation, best != null ? best
+                                        : Collections.min(snapshot, (a, b) -> Double.compare(a.fitness, b.fitness)));
+                            }
+                            if (generation % 100 == 0) {
+                                this.reportProgress(generation, snapshot, diversityOf(snapshot));
                             }
+                            event.end(generation, snapshot);
+                            if (this.recordProgress(generation, snapshot)) {
+                                stop.set(true);
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        runOnWorkers(tasks);
+
+        this.population = snapshot(slots);
+    }
 
-                            offsprings[0].getLegality(maxVehicesPerDepot);
-                            offsprings[1].getLegality(maxVehicesPerDepot);
+    private static List<Chromosome> snapshot(AtomicReferenceArray<Chromosome> slots) {
+        List<Chromosome> chromosomes = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            chromosomes.add(slots.get(i));
+        }
+        return chromosomes;
+    }
 
-                            offsprings[0].updateFitnessByTotalDistanceWithPenalty(g);
-                            offsprings[1].updateFitnessByTotalDistanceWithPenalty(g);
+    /**
+     * Binary tournament over the shared slots, same as tournamentSelection().
+     */
+    private Chromosome steadyStateTournament(AtomicReferenceArray<Chromosome> slots, SplittableRandom random) {
+        Chromosome first = slots.get(random.nextInt(slots.length()));
+        Chromosome second = slots.get(random.nextInt(slots.length()));
+        if (random.nextDouble() < tournamentSelectionNumber) {
+            return first.fitness <= second.fitness ? first : second;
+        }
+        return random.nextBoolean() ? first : second;
+    }
 
-                            newPopulationSync.add(offsprings[0]);
-                            newPopulationSync.add(offsprings[1]);
-                        }
-                    }
-                }));
+    /**
+     * Replaces the less fit of two random slots with the offspring if the
+     * offspring is at least as fit. Retries a few times if another worker
+     * replaced the slot in the meantime.
+     */
+    private void steadyStateReplace(AtomicReferenceArray<Chromosome> slots, Chromosome offspring,
+            SplittableRandom random) {
+        for (int attempt = 0; attempt < 4; attempt++) {
+            int first = random.nextInt(slots.length());
+            int second = random.nextInt(slots.length());
+            Chromosome firstChromosome = slots.get(first);
+            Chromosome secondChromosome = slots.get(second);
+            int loser = firstChromosome.fitness >= secondChromosome.fitness ? first : second;
+            Chromosome current = loser == first ? firstChromosome : secondChromosome;
+            if (offspring.fitness > current.fitness) {
+                return;
+            }
+            if (slots.compareAndSet(loser, current, offspring)) {
+                return;
             }
+        }
+    }
 
-            for (Thread t : threads) {
-                t.start();
+    /**
+     * @return the fraction of the repaired chromosomes that became legal.
+     */
+    double repairSuccessRate() {
+        long attempts = this.repairAttempts.sum();
+        return attempts == 0 ? 1.0 : (double) this.repairSuccesses.sum() / attempts;
+    }
+
+    /**
+     * Prints the best legal and the average fitness of the population.
+     */
+    private void reportProgress(int generation, List<Chromosome> population, double diversity) {
+        if (!this.printProgress) {
+            return;
+        }
+        double bestLegalFitness = Double.POSITIVE_INFINITY;
+        double averageFitness = 0.0;
+        for (Chromosome chromosome : population) {
+            averageFitness += chromosome.fitness;
+            // We only measure the legal individuals in the population
+            if (chromosome.fitness < bestLegalFitness && chromosome.tooManyRoutes == 0) {
+                bestLegalFitness = chromosome.fitness;
             }
+        }
+        this.reportProgress(generation, bestLegalFitness, averageFitness / (double) population.size(), diversity);
+    }
 
-            for (Thread t : threads) {
-                try {
-                    t.join();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+    /**
+     * Same as reportProgress() for a list, but for the off-heap population.
+     */
+    private void reportProgressOffHeap(int generation) {
+        if (!this.printProgress) {
+            return;
+        }
+        double averageFitness = 0.0;
+        for (int i = 0; i < this.store.size(); i++) {
+            averageFitness += this.store.fitness(i);
+        }
+        int best = this.bestIndexInStore(true);
+        this.reportProgress(generation, best == -1 ? Double.POSITIVE_INFINITY : this.store.fitness(best),
+                averageFitness / this.store.size(), this.diversity);
+    }
+
+    private void reportProgress(int generation, double bestLegalFitness, double averageFitness, double diversity) {
+        String progress = "Generation: " + generation + ", Best fitness: " + Helper.roundDouble(bestLegalFitness)
+                + ", average fitness: " + Helper.roundDouble(averageFitness) + ", diversity: "
+                + Helper.roundDouble(diversity);
+        if (this.lowerBound != null) {
+            progress += ", gap: " + Helper.roundDouble(this.lowerBound.gap(bestLegalFitness) * 100) + "%";
+        }
+        if (this.verbose) {
+            if (this.replaceDuplicates && !this.steadyState) {
+                progress += ", duplicates replaced: " + this.duplicatesReplaced;
+                this.duplicatesReplaced = 0;
             }
+            if (this.feasibilityRepair) {
+                progress += ", repaired: " + Helper.roundDouble(this.repairSuccessRate() * 100) + "%";
+            }
+            System.out.println(progress);
+        } else {
+            System.out.print("\r" + progress);
+        }
+    }
+
+    /**
+     * Adds a point to the convergence curve if the best legal fitness of the
+     * population has improved, and checks the stop threshold and the stop gap.
+     * 
+     * @return true if this or another solver sharing the cancelled flag has
+     *         reached the stop threshold or the stop gap.
+     */
+    private boolean recordProgress(int generation, List<Chromosome> population) {
+        Chromosome best = bestLegalChromosome(population);
+        return this.recordProgress(generation, best == null ? Double.POSITIVE_INFINITY : best.fitness);
+    }
 
-            List<Chromosome> newPopulation = new ArrayList<>(newPopulationSync);
+    /**
+     * Same as recordProgress() for a list, with the best legal fitness of the
+     * population.
+     */
+    private synchronized boolean recordProgress(int generation, double bestLegalFitness) {
+        if (bestLegalFitness < this.bestLegalFitness) {
+            this.bestLegalFitness = bestLegalFitness;
+            double seconds = (System.nanoTime() - this.startNanos) / 1e9;
+            this.convergence.add(new double[] { generation, seconds, bestLegalFitness });
+            if (this.progressListener != null) {
+                this.progressListener.onImprovement(generation, seconds, bestLegalFitness);
+            }
+        }
+        if (this.bestLegalFitness <= this.stopThreshold && this.cancelled.compareAndSet(false, true)
+                && this.printProgress) {
+            System.out.println(
+                    ConsoleColors.GREEN + "\nEarly stopped at generation: " + generation + ConsoleColors.RESET);
+        }
+        if (this.stopGap > 0 && this.lowerBound.gap(this.bestLegalFitness) <= this.stopGap
+                && this.cancelled.compareAndSet(false, true) && this.printProgress) {
+            System.out.println(ConsoleColors.GREEN + "\nStopped at generation " + generation + " within "
+                    + Helper.roundDouble(this.lowerBound.gap(this.bestLegalFitness) * 100) + "% of the lower bound"
+                    + ConsoleColors.RESET);
+        }
+        return this.cancelled.get();
+    }
 
-            // Avoids some funky race condition. Can be fixed by adding a proper
-            // read-and-set-if thread safe variable
-            newPopulation = newPopulation.subList(0, this.population.size());
+    /**
+     * @return the points (generation, seconds, fitness) where the best legal
+     *         fitness improved.
+     */
+    List<double[]> getConvergence() {
+        return this.convergence;
+    }
 
-            elitism(newPopulation, elitismCount);
+    private void evolve(int elitismCount) {
+        for (int generation = 0; generation < this.maxGeneration; generation++) {
+            SolverEvents.GenerationEvent event = new SolverEvents.GenerationEvent();
+            event.begin();
+            final boolean interDepot = generation % this.apprate == 0;
+            if (this.reusePopulationBuffers) {
+                // Offsprings are written into the chromosomes of the inactive buffer
+                breedGeneration(this.offspringBuffer, interDepot, generation);
+                elitismInPlace(this.offspringBuffer, elitismCount, this.randomFor(generation, ELITISM_SLOT));
+            } else {
+                List<Chromosome> newPopulation = new ArrayList<>(Collections.nCopies(this.population.size(), null));
+                breedGeneration(newPopulation, interDepot, generation);
+                elitism(newPopulation, elitismCount, this.randomFor(generation, ELITISM_SLOT));
+            }
+            if (this.operatorSelector != null) {
+                this.operatorSelector.update();
+            }
+            this.handleDuplicates(generation, this.randomFor(generation, DUPLICATES_SLOT));
 
             if (generation % this.saveInterval == 0 && generation > 0) {
                 this.saveBest();
             }
-
-            // if (generation % 5 == 0) {
-            //     saveThisGeneration(generation);
-            // }
+            if (this.trace != null && generation % this.traceInterval == 0) {
+                this.trace.record(generation, this.bestChromosome());
+            }
+            if (this.island != null && this.migrationInterval > 0 && generation % this.migrationInterval == 0
+                    && generation > 0) {
+                this.migrate(generation);
+            }
 
             // Run every 50th time for speedup
             if (generation % 100 == 0 && generation > 0) {
-                double bestLegalFitness = Double.POSITIVE_INFINITY;
-                double averageFitness = 0.0;
-                for (Chromosome chromosome : this.population) {
-                    averageFitness += chromosome.fitness;
-                    // We only measure the legal individuals in the population
-                    if (chromosome.fitness < bestLegalFitness && chromosome.tooManyRoutes == 0) {
-                        bestLegalFitness = chromosome.fitness;
-                    }
-                }
-                if (bestLegalFitness <= this.stopThreshold) {
-                    System.out.println(
-                            ConsoleColors.GREEN + "\nEarly stopped at generation: " + generation + ConsoleColors.RESET);
-                    return;
-                }
-                if (this.verbose) {
-                    System.out.println("Generation: " + generation + ", Best fitness: "
-                            + Helper.roundDouble(bestLegalFitness) + ", average fitness: "
-                            + Helper.roundDouble(averageFitness / (double) this.population.size()));
-                } else {
-                    System.out.print("\rGeneration: " + generation + ", Best fitness: "
-                            + Helper.roundDouble(bestLegalFitness) + ", average fitness: "
-                            + Helper.roundDouble(averageFitness / (double) this.population.size()));
-                }
+                this.reportProgress(generation, this.population, this.diversity);
+            }
+            event.end(generation, this.population);
+            if (this.recordProgress(generation, this.population)) {
+                return;
             }
 
             // // ! Test start
@@ -624,64 +1621,72 @@ public class Solver extends Thread {
         }
     }
 
-    @Override
-    public String toString() {
-        return Helper.getClassValuesAsString(this);
-    }
-
-    private void saveThisGeneration(int generation) {
+    /**
+     * Sends the migrationSize best chromosomes to the next island and reports the
+     * best legal one to the coordinator. The migrants that have arrived from the
+     * previous island replace the worst chromosomes, up to half the population.
+     */
+    private void migrate(int generation) {
         Collections.sort(this.population, (a, b) -> Double.compare(a.fitness, b.fitness));
-        // List<Chromosome> legalPopulation = this.population.stream().filter(x ->
-        // x.tooManyRoutes == 0)
-        // .collect(Collectors.toList());
-        // if (legalPopulation.isEmpty()) {
-        // return;
-        // }
+        for (int i = 0; i < Math.min(this.migrationSize, this.population.size()); i++) {
+            this.island.emigrate(this.population.get(i));
+        }
+        this.island.reportBest(bestLegalChromosome(this.population));
+
+        int[][][] routes;
+        for (int i = this.population.size() - 1; i >= this.population.size() / 2
+                && (routes = this.island.immigrate()) != null; i--) {
+            Chromosome migrant = Chromosome.fromRoutes(this.population.get(0).depots, routes);
+            migrant.getLegality(this.maxVehicesPerDepot);
+            migrant.updateFitnessByTotalDistanceWithPenalty(generation);
+            this.population.get(i).copyFrom(migrant);
+        }
+    }
 
-        // List<Depot> depots = legalPopulation.get(0).depots;
-        List<Depot> depots = population.get(0).depots;
+    private void evolveOffHeap(int elitismCount) {
+        for (int generation = 0; generation < this.maxGeneration; generation++) {
+            SolverEvents.GenerationEvent event = new SolverEvents.GenerationEvent();
+            event.begin();
+            final boolean interDepot = generation % this.apprate == 0;
+            breedGenerationOffHeap(interDepot, generation);
+            elitismOffHeap(elitismCount, this.randomFor(generation, ELITISM_SLOT));
+            if (this.operatorSelector != null) {
+                this.operatorSelector.update();
+            }
+            this.handleDuplicatesOffHeap(generation, this.randomFor(generation, DUPLICATES_SLOT));
 
-        try {
-            Path path = Paths.get("generations");
-            if (!Files.exists(path)) {
-                Files.createDirectories(path);
+            if (generation % this.saveInterval == 0 && generation > 0) {
+                this.saveBest();
             }
-            path = Paths.get(path.toString(), String.format("%d.res", generation));
-            if (!Files.exists(path)) {
-                Files.createFile(path);
+            if (this.trace != null && generation % this.traceInterval == 0) {
+                this.trace.record(generation, this.bestChromosome());
             }
-            FileWriter fr = new FileWriter(path.toString());
-            double totalRouteLength = 0.0;
-            for (Depot depot : depots) {
-                totalRouteLength += depot.routes.stream().map(x -> x.routeLength).reduce(0.0, Double::sum);
+            if (generation % 100 == 0 && generation > 0) {
+                this.reportProgressOffHeap(generation);
             }
-            fr.write(Helper.roundDouble(totalRouteLength));
-            fr.write(System.lineSeparator());
-            for (Depot depot : depots) {
-                for (int i = 0; i < depot.routes.size(); i++) {
-                    Route route = depot.routes.get(i);
-                    fr.write(Integer.toString(depot.getId()));
-                    fr.write("\t");
-                    fr.write(Integer.toString(i + 1));
-                    fr.write("\t");
-                    fr.write(Helper.roundDouble(route.routeLength));
-                    fr.write("\t");
-                    fr.write(
-                            Integer.toString(route.customers.stream().map(x -> x.getDemand()).reduce(0, Integer::sum)));
-                    fr.write("\t");
-                    // Prepend the depot ID for compatibility reasons
-                    fr.write(Integer.toString(depot.getId()));
-                    fr.write("\t");
-                    for (Customer c : route.customers) {
-                        fr.write(Integer.toString(c.getId()));
-                        fr.write(" ");
-                    }
-                    fr.write(System.lineSeparator());
+            int best = this.bestIndexInStore(true);
+            if (event.shouldCommit()) {
+                double averageFitness = 0.0;
+                for (int i = 0; i < this.store.size(); i++) {
+                    averageFitness += this.store.fitness(i);
                 }
+                event.end(generation, best == -1 ? Double.POSITIVE_INFINITY : this.store.fitness(best),
+                        averageFitness / this.store.size());
+            }
+            if (this.recordProgress(generation,
+                    best == -1 ? Double.POSITIVE_INFINITY : this.store.fitness(best))) {
+                return;
             }
-            fr.close();
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
+
+    @Override
+    public void run() {
+        this.runGA();
+    }
+
+    @Override
+    public String toString() {
+        return Helper.getClassValuesAsString(this);
+    }
 }
@@ -0,0 +1,127 @@
+package mdvrp;
+
+import java.util.List;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the solvers, so that a recording can be tied
+ * to generations, operators and solution writes. The events are only
+ * registered with the flight recorder when jfr_events is set. Until then an
+ * event is never committed, and the JIT removes the event objects, so the
+ * instrumented code costs next to nothing.
+ *
+ * Record a run with for example
+ * java -XX:StartFlightRecording=filename=mdvrp.jfr,settings=profile ... and
+ * look for the MDVRP category in JDK Mission Control, or print the events with
+ * jfr print --categories MDVRP mdvrp.jfr.
+ */
+public class SolverEvents {
+    private static boolean registered;
+
+    /**
+     * Registers the events with the flight recorder. Does nothing after the first
+     * call.
+     */
+    static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        FlightRecorder.register(GenerationEvent.class);
+        FlightRecorder.register(OperatorEvent.class);
+        FlightRecorder.register(SolutionWriteEvent.class);
+        registered = true;
+    }
+
+    /**
+     * @return the number of positions a customer can be inserted at in the
+     *         routes of the depot, which is what findBestInsertion() scans.
+     */
+    static int insertionPositions(Depot depot) {
+        int positions = 0;
+        for (Route route : depot.routes) {
+            positions += route.size() + 1;
+        }
+        return positions;
+    }
+
+    @Name("mdvrp.Generation")
+    @Label("Generation")
+    @Category("MDVRP")
+    @Description("One generation of the genetic algorithm, from breeding to the stop check")
+    @Registered(false)
+    @StackTrace(false)
+    static class GenerationEvent extends Event {
+        @Label("Generation")
+        int generation;
+
+        @Label("Best Legal Fitness")
+        double bestFitness;
+
+        @Label("Average Fitness")
+        double averageFitness;
+
+        /**
+         * Fills in the fitness of the population and commits the event, if it is
+         * recorded.
+         */
+        void end(int generation, List<Chromosome> population) {
+            if (!this.shouldCommit()) {
+                return;
+            }
+            Chromosome best = Solver.bestLegalChromosome(population);
+            double total = 0.0;
+            for (Chromosome chromosome : population) {
+                total += chromosome.fitness;
+            }
+            this.end(generation, best == null ? Double.POSITIVE_INFINITY : best.fitness, total / population.size());
+        }
+
+        void end(int generation, double bestFitness, double averageFitness) {
+            this.generation = generation;
+            this.bestFitness = bestFitness;
+            this.averageFitness = averageFitness;
+            this.commit();
+        }
+    }
+
+    @Name("mdvrp.Operator")
+    @Label("Operator")
+    @Category("MDVRP")
+    @Description("One crossover or mutation of a chromosome, or one destroy or repair operator of ALNS")
+    @Registered(false)
+    // Operators run tens of thousands of times per second, and their stacks are
+    // in the execution samples anyway
+    @StackTrace(false)
+    static class OperatorEvent extends Event {
+        @Label("Operator")
+        String operator;
+
+        @Label("Insertion Scan Size")
+        @Description("Insertion positions in the depots that customers were inserted into, 0 if none were")
+        int insertionScanSize;
+    }
+
+    @Name("mdvrp.SolutionWrite")
+    @Label("Solution Write")
+    @Category("MDVRP")
+    @Description("A solution file written to disk")
+    @Registered(false)
+    static class SolutionWriteEvent extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Total Distance")
+        double distance;
+
+        @Label("Routes")
+        int routes;
+    }
+}
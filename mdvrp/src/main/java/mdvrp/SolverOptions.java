@@ -0,0 +1,119 @@
+package mdvrp;
+
+import java.nio.file.Path;
+
+/**
+ * Options of an embedded solve, the typed counterpart of config.yaml. The
+ * defaults are meant for short runs inside another application: nothing is
+ * printed and no solution files are written.
+ */
+public class SolverOptions {
+    // ga for the genetic algorithm, or alns for adaptive large neighbourhood search
+    public String solver = "ga";
+    // Stop when a legal solution with at most this fitness is found
+    public double stopThreshold = 0.0;
+    // Stop when a legal solution within this fraction of the lower bound is
+    // found, 0 to not stop on the gap
+    public double stopGap = 0.0;
+    // A negative seed picks a new seed for every solve
+    public long seed = -1;
+    // 0 means one per available processor
+    public int threadCount = 0;
+    public boolean verbose = false;
+
+    // Genetic algorithm
+    public int populationSize = 400;
+    public int maxGeneration = 3000;
+    public String seeding = "random";
+    public double eliteRatio = 0.01;
+    public double crossoverChance = 0.65;
+    public double bound = 2.0;
+    public double tournamentSelectionNumber = 0.65;
+    public double crossoverInsertionNumber = 0.8;
+    public double intraDepotMutationRate = 0.3;
+    public double interDepotMutationRate = 0.35;
+    public int apprate = 10;
+    public boolean reusePopulationBuffers = true;
+    public boolean offHeapPopulation = false;
+    public boolean steadyState = false;
+    public boolean replaceDuplicates = false;
+    public boolean adaptiveOperators = false;
+    public boolean feasibilityRepair = false;
+
+    // ALNS
+    public int alnsIterations = 100000;
+    public int alnsRuns = 1;
+    public int alnsRegretK = 3;
+
+    // Directory of the solution cache, null to not use a cache
+    public Path cacheDirectory = null;
+    // The least recently used solutions are removed when the cache gets larger
+    public long cacheMaxBytes = 64L << 20;
+
+    /**
+     * Hash of the options that change the result of a solve, so that a cached
+     * solution is only reused for the same options. The thread count is left
+     * out as it does not change the result for a fixed seed.
+     */
+    long fingerprint() {
+        long hash = Helper.combineHash(0, this.solver.hashCode());
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.stopThreshold));
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.stopGap));
+        hash = Helper.combineHash(hash, this.seed);
+        hash = Helper.combineHash(hash, this.populationSize);
+        hash = Helper.combineHash(hash, this.maxGeneration);
+        hash = Helper.combineHash(hash, this.seeding.hashCode());
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.eliteRatio));
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.crossoverChance));
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.bound));
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.tournamentSelectionNumber));
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.crossoverInsertionNumber));
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.intraDepotMutationRate));
+        hash = Helper.combineHash(hash, Double.doubleToLongBits(this.interDepotMutationRate));
+        hash = Helper.combineHash(hash, this.apprate);
+        hash = Helper.combineHash(hash, this.offHeapPopulation ? 1 : 0);
+        hash = Helper.combineHash(hash, this.steadyState ? 1 : 0);
+        hash = Helper.combineHash(hash, this.replaceDuplicates ? 1 : 0);
+        hash = Helper.combineHash(hash, this.adaptiveOperators ? 1 : 0);
+        hash = Helper.combineHash(hash, this.feasibilityRepair ? 1 : 0);
+        hash = Helper.combineHash(hash, this.alnsIterations);
+        hash = Helper.combineHash(hash, this.alnsRuns);
+        return Helper.combineHash(hash, this.alnsRegretK);
+    }
+
+    ConfigParser toConfigParser() {
+        ConfigParser configParser = new ConfigParser();
+        configParser.solver = this.solver;
+        configParser.stopThreshold = this.stopThreshold;
+        configParser.stopGap = this.stopGap;
+        configParser.seed = this.seed;
+        configParser.threadCount = this.threadCount;
+        configParser.verbose = this.verbose;
+        configParser.populationSize = this.populationSize;
+        configParser.maxGeneration = this.maxGeneration;
+        configParser.seeding = this.seeding;
+        configParser.eliteRatio = this.eliteRatio;
+        configParser.crossoverChance = this.crossoverChance;
+        configParser.bound = this.bound;
+        configParser.tournamentSelectionNumber = this.tournamentSelectionNumber;
+        configParser.crossoverInsertionNumber = this.crossoverInsertionNumber;
+        configParser.intraDepotMutationRate = this.intraDepotMutationRate;
+        configParser.interDepotMutationRate = this.interDepotMutationRate;
+        configParser.apprate = this.apprate;
+        configParser.reusePopulationBuffers = this.reusePopulationBuffers;
+        configParser.offHeapPopulation = this.offHeapPopulation;
+        configParser.steadyState = this.steadyState;
+        configParser.replaceDuplicates = this.replaceDuplicates;
+        configParser.adaptiveOperators = this.adaptiveOperators;
+        configParser.feasibilityRepair = this.feasibilityRepair;
+        configParser.alnsIterations = this.alnsIterations;
+        configParser.alnsRuns = this.alnsRuns;
+        configParser.alnsRegretK = this.alnsRegretK;
+        // Solutions are only written on request, see SolverResult.writeSolution()
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.decompositionPartitions = 1;
+        configParser.racers = 1;
+        configParser.distributedRole = "none";
+        return configParser;
+    }
+}
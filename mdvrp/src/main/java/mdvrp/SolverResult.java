@@ -0,0 +1,105 @@
+package mdvrp;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The best solution of an embedded solve. Routes are numbered across all
+ * depots, and depots and customers are referred to by the index they were
+ * added to the Problem with.
+ */
+public class SolverResult {
+    private final double fitness;
+    private final boolean legal;
+    private final long seed;
+    private final double seconds;
+    private final int[] routeDepots;
+    private final int[][] routes;
+    private final double[] routeLengths;
+    private final int[] routeLoads;
+    // Kept for writeSolution()
+    private final List<Depot> depots;
+
+    SolverResult(Chromosome chromosome, long seed, double seconds) {
+        this.fitness = chromosome.fitness;
+        this.legal = chromosome.tooManyRoutes == 0;
+        this.seed = seed;
+        this.seconds = seconds;
+        this.depots = chromosome.depots;
+
+        int routeCount = 0;
+        for (Depot depot : chromosome.depots) {
+            routeCount += depot.routes.size();
+        }
+        this.routeDepots = new int[routeCount];
+        this.routes = new int[routeCount][];
+        this.routeLengths = new double[routeCount];
+        this.routeLoads = new int[routeCount];
+        int r = 0;
+        for (Depot depot : chromosome.depots) {
+            for (Route route : depot.routes) {
+                this.routeDepots[r] = depot.getIndex();
+                this.routes[r] = route.toArray();
+                this.routeLengths[r] = route.routeLength;
+                for (int customer : this.routes[r]) {
+                    this.routeLoads[r] += depot.model.customerDemand[customer];
+                }
+                r++;
+            }
+        }
+    }
+
+    /**
+     * @return the total route length, plus a penalty if the solution is not
+     *         legal.
+     */
+    public double getFitness() {
+        return this.fitness;
+    }
+
+    /**
+     * @return false if some depot uses more vehicles than allowed, which only
+     *         happens when no legal solution was found.
+     */
+    public boolean isLegal() {
+        return this.legal;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public double getSeconds() {
+        return this.seconds;
+    }
+
+    public int getRouteCount() {
+        return this.routes.length;
+    }
+
+    public int getRouteDepot(int route) {
+        return this.routeDepots[route];
+    }
+
+    /**
+     * @return the customer indices of the route in the order they are visited.
+     */
+    public int[] getRoute(int route) {
+        return this.routes[route].clone();
+    }
+
+    public double getRouteLength(int route) {
+        return this.routeLengths[route];
+    }
+
+    public int getRouteLoad(int route) {
+        return this.routeLoads[route];
+    }
+
+    /**
+     * Writes the solution in the format of the files in ./solutions.
+     */
+    public void writeSolution(Path path) {
+        Solver.writeSolution(this.depots, path);
+    }
+}
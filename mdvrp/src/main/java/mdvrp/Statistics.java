@@ -0,0 +1,313 @@
+package mdvrp;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics and rank tests for comparing solver runs. Samples may
+ * contain positive infinity, for example for runs that never reached their
+ * target, which ranks above every finite value.
+ */
+public class Statistics {
+
+    static double median(double[] sample) {
+        return percentile(sample, 0.5);
+    }
+
+    /**
+     * @return the value at the fraction of the sorted sample, by the nearest
+     *         rank method.
+     */
+    static double percentile(double[] sample, double fraction) {
+        double[] sorted = Arrays.copyOf(sample, sample.length);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * Ranks of the values from 1 to values.length, where tied values get the
+     * average of their ranks.
+     */
+    static double[] ranks(double[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        double[] ranks = new double[values.length];
+        for (int start = 0; start < values.length;) {
+            int end = start + 1;
+            while (end < values.length && values[order[end]] == values[order[start]]) {
+                end++;
+            }
+            double rank = (start + 1 + end) / 2.0;
+            for (int k = start; k < end; k++) {
+                ranks[order[k]] = rank;
+            }
+            start = end;
+        }
+        return ranks;
+    }
+
+    /**
+     * @return the sum of t^3 - t over the groups of t tied values, used by the
+     *         tie corrections of the rank tests.
+     */
+    private static double tieTerm(double[] values) {
+        double[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        double term = 0.0;
+        for (int start = 0; start < sorted.length;) {
+            int end = start + 1;
+            while (end < sorted.length && sorted[end] == sorted[start]) {
+                end++;
+            }
+            double ties = end - start;
+            term += ties * ties * ties - ties;
+            start = end;
+        }
+        return term;
+    }
+
+    /**
+     * One-sided Mann-Whitney U test of whether the values in sample tend to be
+     * larger than those in baseline, with the normal approximation, tie
+     * correction and continuity correction. Reliable from about eight values
+     * per sample.
+     *
+     * @return the p-value.
+     */
+    static double mannWhitneyGreater(double[] baseline, double[] sample) {
+        int n1 = baseline.length;
+        int n2 = sample.length;
+        int n = n1 + n2;
+        double[] combined = new double[n];
+        System.arraycopy(baseline, 0, combined, 0, n1);
+        System.arraycopy(sample, 0, combined, n1, n2);
+        double[] ranks = ranks(combined);
+        double rankSum = 0.0;
+        for (int i = n1; i < n; i++) {
+            rankSum += ranks[i];
+        }
+        double u = rankSum - n2 * (n2 + 1) / 2.0;
+        double mean = n1 * n2 / 2.0;
+        double variance = n1 * n2 / 12.0 * ((n + 1) - tieTerm(combined) / ((double) n * (n - 1)));
+        if (variance <= 0.0) {
+            // Every value is the same
+            return 1.0;
+        }
+        double z = (u - mean - 0.5) / Math.sqrt(variance);
+        return upperNormalTail(z);
+    }
+
+    /**
+     * Friedman test of whether the treatments (columns) differ, with each row a
+     * block in which the treatments are ranked, using the chi-squared
+     * approximation with tie correction.
+     *
+     * @return the p-value.
+     */
+    static double friedman(double[][] blocks) {
+        int b = blocks.length;
+        int k = blocks[0].length;
+        double[] rankSums = new double[k];
+        double ties = 0.0;
+        for (double[] block : blocks) {
+            double[] ranks = ranks(block);
+            for (int j = 0; j < k; j++) {
+                rankSums[j] += ranks[j];
+            }
+            ties += tieTerm(block);
+        }
+        double sumOfSquares = 0.0;
+        for (double rankSum : rankSums) {
+            sumOfSquares += rankSum * rankSum;
+        }
+        double statistic = 12.0 / (b * k * (k + 1)) * sumOfSquares - 3.0 * b * (k + 1);
+        double correction = 1.0 - ties / (b * (k * k * k - (double) k));
+        if (correction <= 0.0) {
+            return 1.0;
+        }
+        return upperChiSquaredTail(statistic / correction, k - 1);
+    }
+
+    /**
+     * @return P(X > x) for X chi-squared with the given degrees of freedom, from
+     *         the series and continued fraction of the incomplete gamma function.
+     */
+    static double upperChiSquaredTail(double x, int degreesOfFreedom) {
+        if (x <= 0.0) {
+            return 1.0;
+        }
+        double a = degreesOfFreedom / 2.0;
+        double y = x / 2.0;
+        double logPrefix = a * Math.log(y) - y - logGamma(a);
+        if (y < a + 1.0) {
+            // Series for the lower tail
+            double term = 1.0 / a;
+            double sum = term;
+            for (int n = 1; n < 500 && Math.abs(term) > Math.abs(sum) * 1e-15; n++) {
+                term *= y / (a + n);
+                sum += term;
+            }
+            return 1.0 - sum * Math.exp(logPrefix);
+        }
+        // Lentz's continued fraction for the upper tail
+        double tiny = 1e-300;
+        double b = y + 1.0 - a;
+        double c = 1.0 / tiny;
+        double d = 1.0 / b;
+        double h = d;
+        for (int n = 1; n < 500; n++) {
+            double an = -n * (n - a);
+            b += 2.0;
+            d = an * d + b;
+            d = Math.abs(d) < tiny ? tiny : d;
+            c = b + an / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            d = 1.0 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1.0) < 1e-15) {
+                break;
+            }
+        }
+        return h * Math.exp(logPrefix);
+    }
+
+    /**
+     * Compares every treatment with the best one, the one with the lowest rank
+     * sum, after a significant Friedman test. Uses the post-hoc test of Conover
+     * on the rank sums, like F-race.
+     *
+     * @return the two-sided p-value of each treatment against the best, and 1 for
+     *         the best itself.
+     */
+    static double[] friedmanVersusBest(double[][] blocks) {
+        int b = blocks.length;
+        int k = blocks[0].length;
+        double[] rankSums = new double[k];
+        double squaredRanks = 0.0;
+        for (double[] block : blocks) {
+            double[] ranks = ranks(block);
+            for (int j = 0; j < k; j++) {
+                rankSums[j] += ranks[j];
+                squaredRanks += ranks[j] * ranks[j];
+            }
+        }
+        int best = 0;
+        double sumOfSquares = 0.0;
+        for (int j = 0; j < k; j++) {
+            best = rankSums[j] < rankSums[best] ? j : best;
+            sumOfSquares += rankSums[j] * rankSums[j];
+        }
+        double[] pValues = new double[k];
+        Arrays.fill(pValues, 1.0);
+        if (b < 2) {
+            return pValues;
+        }
+        double variance = 2.0 * (b * squaredRanks - sumOfSquares) / ((b - 1.0) * (k - 1.0));
+        for (int j = 0; j < k; j++) {
+            double difference = rankSums[j] - rankSums[best];
+            if (variance <= 0.0) {
+                // Every block ranks the treatments the same way
+                pValues[j] = difference > 0.0 ? 0.0 : 1.0;
+            } else if (j != best) {
+                pValues[j] = 2.0 * upperStudentTTail(difference / Math.sqrt(variance), (b - 1) * (k - 1));
+            }
+        }
+        return pValues;
+    }
+
+    /**
+     * @return P(Z > z) for a standard normal Z.
+     */
+    static double upperNormalTail(double z) {
+        return 0.5 * erfc(z / Math.sqrt(2.0));
+    }
+
+    /**
+     * Complementary error function with a fractional error below 1.2e-7, from
+     * Numerical Recipes.
+     */
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1.0 / (1.0 + 0.5 * z);
+        double result = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587 + t * (-0.82215223
+                        + t * 0.17087277)))))))));
+        return x >= 0 ? result : 2.0 - result;
+    }
+
+    /**
+     * @return P(T > t) for t >= 0 and T Student t distributed with the given
+     *         degrees of freedom.
+     */
+    static double upperStudentTTail(double t, int degreesOfFreedom) {
+        double x = degreesOfFreedom / (degreesOfFreedom + t * t);
+        return 0.5 * incompleteBeta(degreesOfFreedom / 2.0, 0.5, x);
+    }
+
+    /**
+     * Regularized incomplete beta function, from Numerical Recipes.
+     */
+    private static double incompleteBeta(double a, double b, double x) {
+        if (x <= 0.0) {
+            return 0.0;
+        }
+        if (x >= 1.0) {
+            return 1.0;
+        }
+        double front = Math.exp(
+                logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log(1.0 - x));
+        if (x < (a + 1.0) / (a + b + 2.0)) {
+            return front * betaContinuedFraction(a, b, x) / a;
+        }
+        return 1.0 - front * betaContinuedFraction(b, a, 1.0 - x) / b;
+    }
+
+    /**
+     * Lentz's continued fraction of the incomplete beta function.
+     */
+    private static double betaContinuedFraction(double a, double b, double x) {
+        double tiny = 1e-300;
+        double c = 1.0;
+        double d = 1.0 - (a + b) * x / (a + 1.0);
+        d = 1.0 / (Math.abs(d) < tiny ? tiny : d);
+        double h = d;
+        for (int m = 1; m < 500; m++) {
+            int m2 = 2 * m;
+            double even = m * (b - m) * x / ((a - 1.0 + m2) * (a + m2));
+            d = 1.0 + even * d;
+            d = 1.0 / (Math.abs(d) < tiny ? tiny : d);
+            c = 1.0 + even / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            h *= d * c;
+            double odd = -(a + m) * (a + b + m) * x / ((a + m2) * (a + 1.0 + m2));
+            d = 1.0 + odd * d;
+            d = 1.0 / (Math.abs(d) < tiny ? tiny : d);
+            c = 1.0 + odd / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1.0) < 1e-15) {
+                break;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Lanczos approximation of the logarithm of the gamma function.
+     */
+    private static double logGamma(double x) {
+        double[] coefficients = { 76.18009172947146, -86.50532032941677, 24.01409824083091, -1.231739572450155,
+                0.1208650973866179e-2, -0.5395239384953e-5 };
+        double tmp = x + 5.5 - (x + 0.5) * Math.log(x + 5.5);
+        double series = 1.000000000190015;
+        for (int j = 0; j < coefficients.length; j++) {
+            series += coefficients[j] / (x + j + 1);
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
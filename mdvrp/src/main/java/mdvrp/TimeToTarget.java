@@ -0,0 +1,211 @@
+package mdvrp;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures how long the GA takes to reach the target fitness of the instances
+ * in the threshold table of App, over a number of runs with the fixed seeds 1,
+ * 2, 3 and so on and the other settings from config.yaml. A run that has not
+ * reached the target within the time limit counts as infinitely slow.
+ *
+ * The times are compared per instance to a baseline file with a one-sided
+ * Mann-Whitney U test, and an instance whose times are significantly larger
+ * than in the baseline is a regression. The baseline has one row of instance,
+ * seed and seconds per run, and is written by a run with --update-baseline.
+ */
+public class TimeToTarget {
+    int runs = 10;
+    double maxSeconds = 60.0;
+    double significance = 0.01;
+    Path baselineFile = Paths.get("benchmarks", "time_to_target.csv");
+    boolean updateBaseline = false;
+    List<String> instances = new ArrayList<>();
+
+    /**
+     * Parses the options --runs, --seconds, --significance, --baseline and
+     * --update-baseline, followed by the instances to run, which default to
+     * every instance in the threshold table.
+     */
+    static TimeToTarget fromArguments(String[] arguments) {
+        TimeToTarget harness = new TimeToTarget();
+        for (int i = 0; i < arguments.length; i++) {
+            switch (arguments[i]) {
+            case "--runs":
+                harness.runs = Integer.parseInt(arguments[++i]);
+                break;
+            case "--seconds":
+                harness.maxSeconds = Double.parseDouble(arguments[++i]);
+                break;
+            case "--significance":
+                harness.significance = Double.parseDouble(arguments[++i]);
+                break;
+            case "--baseline":
+                harness.baselineFile = Paths.get(arguments[++i]);
+                break;
+            case "--update-baseline":
+                harness.updateBaseline = true;
+                break;
+            default:
+                if (!App.stopThreshold.containsKey(arguments[i])) {
+                    throw new Error("No target fitness for " + arguments[i]);
+                }
+                harness.instances.add(arguments[i]);
+            }
+        }
+        if (harness.instances.isEmpty()) {
+            harness.instances.addAll(new TreeSet<>(App.stopThreshold.keySet()));
+        }
+        return harness;
+    }
+
+    /**
+     * Runs every instance, compares the times to the baseline or replaces the
+     * baseline, and prints a line per instance.
+     *
+     * @return the number of instances that regressed.
+     */
+    int run() {
+        Map<String, double[]> baseline = this.updateBaseline ? new HashMap<>() : this.readBaseline();
+        Map<String, double[]> results = new HashMap<>();
+        int regressions = 0;
+        for (String instance : this.instances) {
+            double[] seconds = new double[this.runs];
+            for (int r = 0; r < this.runs; r++) {
+                seconds[r] = this.timeToTarget(instance, r + 1);
+            }
+            results.put(instance, seconds);
+
+            int successes = 0;
+            for (double s : seconds) {
+                successes += s == Double.POSITIVE_INFINITY ? 0 : 1;
+            }
+            String line = instance + ": median " + format(Statistics.median(seconds)) + ", p90 "
+                    + format(Statistics.percentile(seconds, 0.9)) + ", success rate "
+                    + Helper.roundDouble(100.0 * successes / this.runs) + "%";
+            double[] before = baseline.get(instance);
+            if (before != null) {
+                double p = Statistics.mannWhitneyGreater(before, seconds);
+                boolean regressed = p < this.significance;
+                regressions += regressed ? 1 : 0;
+                line += ", baseline median " + format(Statistics.median(before)) + ", p-value "
+                        + String.format("%.4f", p)
+                        + (regressed ? ConsoleColors.RED + " REGRESSION" + ConsoleColors.RESET : "");
+            } else if (!this.updateBaseline) {
+                line += ", not in the baseline";
+            }
+            System.out.println(line);
+        }
+        if (this.updateBaseline) {
+            this.writeBaseline(results);
+        }
+        return regressions;
+    }
+
+    /**
+     * @return the seconds from the start of the solver, including the initial
+     *         population, until the best legal fitness reached the target, or
+     *         infinity if it did not within the time limit.
+     */
+    private double timeToTarget(String instance, long seed) {
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.inputFile = instance;
+        configParser.seed = seed;
+        configParser.verbose = false;
+        configParser.saveInterval = Integer.MAX_VALUE;
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile(instance);
+        double target = App.getThreshold(instance, configParser.stopThreshold);
+
+        // The solver stops at the end of the generation in which the flag is set,
+        // either by itself at the target or by the timer
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        Timer timer = new Timer(true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                cancelled.set(true);
+            }
+        }, (long) (this.maxSeconds * 1000));
+        long start = System.nanoTime();
+        Solver solver = new Solver(configParser, problemParser, target, null, cancelled);
+        solver.printProgress = false;
+        double initSeconds = (System.nanoTime() - start) / 1e9;
+        solver.runGA();
+        timer.cancel();
+
+        for (double[] point : solver.getConvergence()) {
+            if (point[2] <= target && initSeconds + point[1] <= this.maxSeconds) {
+                return initSeconds + point[1];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private Map<String, double[]> readBaseline() {
+        if (!Files.exists(this.baselineFile)) {
+            throw new Error("No baseline at " + this.baselineFile + ", create it with --update-baseline");
+        }
+        Map<String, List<Double>> rows = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(this.baselineFile)) {
+                if (line.isEmpty() || line.startsWith("instance,")) {
+                    continue;
+                }
+                String[] values = line.split(",");
+                rows.computeIfAbsent(values[0], x -> new ArrayList<>()).add(Double.parseDouble(values[2]));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new Error("Cannot read the baseline " + this.baselineFile);
+        }
+        Map<String, double[]> baseline = new HashMap<>();
+        for (Map.Entry<String, List<Double>> entry : rows.entrySet()) {
+            baseline.put(entry.getKey(), entry.getValue().stream().mapToDouble(x -> x).toArray());
+        }
+        return baseline;
+    }
+
+    /**
+     * Replaces the rows of the instances that were run in the baseline file, and
+     * keeps the rows of the other instances.
+     */
+    private void writeBaseline(Map<String, double[]> results) {
+        Map<String, double[]> baseline = Files.exists(this.baselineFile) ? this.readBaseline() : new HashMap<>();
+        baseline.putAll(results);
+        try {
+            Path directory = this.baselineFile.getParent();
+            if (directory != null && !Files.exists(directory)) {
+                Files.createDirectories(directory);
+            }
+            FileWriter writer = new FileWriter(this.baselineFile.toString());
+            writer.write("instance,seed,seconds\n");
+            for (String instance : new TreeSet<>(baseline.keySet())) {
+                double[] seconds = baseline.get(instance);
+                for (int r = 0; r < seconds.length; r++) {
+                    writer.write(instance + "," + (r + 1) + "," + seconds[r] + "\n");
+                }
+            }
+            writer.close();
+            System.out.println("Wrote the baseline to " + this.baselineFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String format(double seconds) {
+        return seconds == Double.POSITIVE_INFINITY ? "-" : Helper.roundDouble(seconds) + " s";
+    }
+}
@@ -0,0 +1,139 @@
+package mdvrp;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Route kernel with the incubating Vector API. The coordinates of a route are
+ * first packed into contiguous arrays, with the depot at both ends, so that
+ * each vector handles as many consecutive edges as it has lanes.
+ *
+ * Packing gathers the coordinates one by one, and a vector square root is not
+ * much faster per lane than a scalar one, so this only pays off for long
+ * routes. Shorter routes are left to the scalar kernel.
+ *
+ * Only compiled with the vector Maven profile, see RouteKernel.
+ */
+public class VectorRouteKernel implements RouteKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // Routes with fewer customers are evaluated by the scalar kernel
+    private static final int MIN_VECTOR_SIZE = 64;
+
+    private final ScalarRouteKernel scalar = new ScalarRouteKernel();
+
+    // Packed x and y coordinates of the route being evaluated by this thread
+    private final ThreadLocal<double[][]> packed = ThreadLocal.withInitial(() -> new double[2][64]);
+
+    public VectorRouteKernel() {
+        if (SPECIES.length() < 4) {
+            throw new UnsupportedOperationException("Vectors of " + SPECIES.length() + " doubles are too short");
+        }
+    }
+
+    /**
+     * @return the coordinates of the depot, the customers and the depot again,
+     *         with size + 2 used entries.
+     */
+    private double[][] pack(double[] customerX, double[] customerY, int[] customers, int size, double depotX,
+            double depotY) {
+        double[][] packed = this.packed.get();
+        if (packed[0].length < size + 2) {
+            packed[0] = new double[2 * (size + 2)];
+            packed[1] = new double[2 * (size + 2)];
+        }
+        double[] xs = packed[0];
+        double[] ys = packed[1];
+        xs[0] = depotX;
+        ys[0] = depotY;
+        for (int i = 0; i < size; i++) {
+            xs[i + 1] = customerX[customers[i]];
+            ys[i + 1] = customerY[customers[i]];
+        }
+        xs[size + 1] = depotX;
+        ys[size + 1] = depotY;
+        return packed;
+    }
+
+    @Override
+    public double routeLength(double[] customerX, double[] customerY, int[] customers, int size, double depotX,
+            double depotY) {
+        if (size < MIN_VECTOR_SIZE) {
+            return this.scalar.routeLength(customerX, customerY, customers, size, depotX, depotY);
+        }
+        double[][] packed = this.pack(customerX, customerY, customers, size, depotX, depotY);
+        double[] xs = packed[0];
+        double[] ys = packed[1];
+        int edges = size + 1;
+        int i = 0;
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        for (int bound = SPECIES.loopBound(edges); i < bound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, i + 1).sub(DoubleVector.fromArray(SPECIES, xs, i));
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, i + 1).sub(DoubleVector.fromArray(SPECIES, ys, i));
+            sum = sum.add(dx.mul(dx).add(dy.mul(dy)).sqrt());
+        }
+        double routeLength = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < edges; i++) {
+            double dx = xs[i + 1] - xs[i];
+            double dy = ys[i + 1] - ys[i];
+            routeLength += Math.sqrt(dx * dx + dy * dy);
+        }
+        return routeLength;
+    }
+
+    @Override
+    public void insertionDeltas(double[] customerX, double[] customerY, int[] customers, int size, double depotX,
+            double depotY, int customer, double[] deltas) {
+        if (size < MIN_VECTOR_SIZE) {
+            this.scalar.insertionDeltas(customerX, customerY, customers, size, depotX, depotY, customer, deltas);
+            return;
+        }
+        double[][] packed = this.pack(customerX, customerY, customers, size, depotX, depotY);
+        double[] xs = packed[0];
+        double[] ys = packed[1];
+        final double x = customerX[customer];
+        final double y = customerY[customer];
+
+        // First the distance from every stop to the customer
+        int stops = size + 2;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(stops); i < bound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, i).sub(x);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, i).sub(y);
+            dx.mul(dx).add(dy.mul(dy)).sqrt().intoArray(deltas, i);
+        }
+        for (; i < stops; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            deltas[i] = Math.sqrt(dx * dx + dy * dy);
+        }
+
+        // Then the detour over the customer minus the edge it replaces. Each
+        // vector reads the distances one position ahead before overwriting its
+        // own, so this can be done in place
+        int positions = size + 1;
+        i = 0;
+        for (int bound = SPECIES.loopBound(positions); i < bound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, i + 1).sub(DoubleVector.fromArray(SPECIES, xs, i));
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, i + 1).sub(DoubleVector.fromArray(SPECIES, ys, i));
+            DoubleVector edge = dx.mul(dx).add(dy.mul(dy)).sqrt();
+            DoubleVector.fromArray(SPECIES, deltas, i).add(DoubleVector.fromArray(SPECIES, deltas, i + 1)).sub(edge)
+                    .intoArray(deltas, i);
+        }
+        for (; i < positions; i++) {
+            double dx = xs[i + 1] - xs[i];
+            double dy = ys[i + 1] - ys[i];
+            deltas[i] = deltas[i] + deltas[i + 1] - Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    @Override
+    public int minBatchSize() {
+        return MIN_VECTOR_SIZE;
+    }
+
+    @Override
+    public String name() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+}
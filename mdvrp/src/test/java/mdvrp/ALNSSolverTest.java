@@ -0,0 +1,56 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ALNSSolverTest {
+
+    private static ALNSSolver createSolver(ProblemParser problemParser, long seed) {
+        ConfigParser configParser = SolverTest.createConfig(seed, 2);
+        configParser.alnsIterations = 2000;
+        configParser.alnsRuns = 2;
+        return new ALNSSolver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+    }
+
+    private static int[][] routesOf(Chromosome chromosome) {
+        return chromosome.depots.stream().flatMap(x -> x.routes.stream()).map(Route::toArray)
+                .toArray(int[][]::new);
+    }
+
+    @Test
+    public void seededRunIsLegalAndReproducible() {
+        ProblemParser problemParser = SolverTest.parseProblem("p01");
+        ALNSSolver first = createSolver(problemParser, 11);
+        first.solve();
+        SolverTest.assertLegal(first.getBest(), problemParser.customers.size());
+
+        ALNSSolver second = createSolver(SolverTest.parseProblem("p01"), 11);
+        second.solve();
+        assertEquals(Double.doubleToLongBits(first.bestFitness()), Double.doubleToLongBits(second.bestFitness()));
+        assertArrayEquals(routesOf(first.getBest()), routesOf(second.getBest()));
+    }
+
+    @Test
+    public void customerOnTopOfDepotIsInserted() {
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.maxVehicesPerDepot = 2;
+        int[][] depotCoordinates = { { 0, 0 }, { 20, 0 } };
+        for (int d = 0; d < depotCoordinates.length; d++) {
+            Depot depot = new Depot(0, 100);
+            depot.initDepotSecond(d + 1, depotCoordinates[d][0], depotCoordinates[d][1]);
+            problemParser.depots.add(depot);
+        }
+        // The first customer is exactly on the first depot
+        int[][] customerCoordinates = { { 0, 0 }, { 2, 3 }, { 4, 1 }, { 18, 2 }, { 21, 4 } };
+        for (int c = 0; c < customerCoordinates.length; c++) {
+            problemParser.customers.add(new Customer(c + 1, customerCoordinates[c][0], customerCoordinates[c][1], 10));
+        }
+        problemParser.model = new ProblemModel(problemParser.depots, problemParser.customers);
+
+        ALNSSolver solver = createSolver(problemParser, 3);
+        solver.solve();
+        SolverTest.assertLegal(solver.getBest(), problemParser.customers.size());
+        assertSame(solver.getBest().depots.get(0), solver.getBest().depotOf(0));
+    }
+}
@@ -3,6 +3,7 @@ package mdvrp;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -19,13 +20,15 @@ public class AppTest {
 
     @Test
     public void copyWorking() {
+        List<Depot> depots = new ArrayList<>();
+        depots.add(depot1);
+        depots.add(depot2);
+        new ProblemModel(depots, Arrays.asList(customer1, customer2, customer3));
+
         depot1.addCustomer(customer1);
         depot1.addCustomer(customer2);
         depot1.routeSchedulingFirstPart();
         depot1.routeSchedulingSecondPart();
-        List<Depot> depots = new ArrayList<>();
-        depots.add(depot1);
-        depots.add(depot2);
 
         Chromosome parent = new Chromosome(depots);
         Chromosome offspring = new Chromosome(parent);
@@ -39,7 +42,7 @@ public class AppTest {
         // assertNotEquals(parent.depots.get(0).customers.size(),
         // offspring.depots.get(0).customers.size());
 
-        route.customers.add(customer3);
+        route.add(customer3.getIndex());
         offspring.depots.get(0).routes.add(route);
         assertNotEquals(parent.depots.get(0).routes.size(), offspring.depots.get(0).routes.size());
     }
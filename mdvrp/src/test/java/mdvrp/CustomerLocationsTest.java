@@ -0,0 +1,84 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class CustomerLocationsTest {
+
+    private Solver createSolver() {
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.populationSize = 20;
+        configParser.intraDepotMutationRate = 1.0;
+        configParser.interDepotMutationRate = 1.0;
+        configParser.crossoverChance = 1.0;
+
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+        return new Solver(configParser, problemParser, 0.0);
+    }
+
+    private void assertIndexMatchesRoutes(Chromosome chromosome) {
+        int customers = 0;
+        for (Depot depot : chromosome.depots) {
+            for (int r = 0; r < depot.routes.size(); r++) {
+                Route route = depot.routes.get(r);
+                assertFalse(route.isEmpty());
+                assertEquals(route.recomputeHash(), route.hash);
+                for (int i = 0; i < route.size(); i++) {
+                    int customer = route.get(i);
+                    assertEquals(depot.getIndex(), chromosome.locations.depotOf[customer]);
+                    assertEquals(r, chromosome.locations.routeOf[customer]);
+                    assertEquals(i, chromosome.locations.positionOf[customer]);
+                    customers++;
+                }
+            }
+        }
+        assertEquals(chromosome.locations.depotOf.length, customers);
+    }
+
+    @Test
+    public void indexFollowsOperators() {
+        Solver solver = createSolver();
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < 200; i++) {
+            Chromosome[] parents = solver.tournamentSelection(2, random);
+            assertIndexMatchesRoutes(parents[0]);
+
+            Chromosome[] offsprings = solver.crossover(parents[0], parents[1], random);
+            assertIndexMatchesRoutes(offsprings[0]);
+            assertIndexMatchesRoutes(offsprings[1]);
+
+            solver.intraDepotMutation(offsprings[0], Helper.getRandomElementFromList(offsprings[0].depots, random),
+                    random);
+            assertIndexMatchesRoutes(offsprings[0]);
+
+            solver.interDepotMutation(offsprings[1], random);
+            assertIndexMatchesRoutes(offsprings[1]);
+        }
+    }
+
+    @Test
+    public void removeCustomerRecalculatesRoute() {
+        Solver solver = createSolver();
+        Chromosome chromosome = new Chromosome(solver.tournamentSelection(1, new SplittableRandom(1))[0]);
+        Route route = chromosome.depots.get(0).routes.get(0);
+        int customer = route.get(0);
+        int sizeBefore = route.size();
+
+        Depot depot = chromosome.removeCustomer(customer);
+
+        assertEquals(chromosome.depots.get(0), depot);
+        assertNull(chromosome.depotOf(customer));
+        if (sizeBefore > 1) {
+            double routeLength = route.routeLength;
+            depot.recalculateUsedRouteLengthAndCapacity(route);
+            assertEquals(route.routeLength, routeLength, 1e-9);
+        }
+        assertEquals(chromosome.locations.depotOf.length - 1,
+                chromosome.depots.stream().flatMap(x -> x.routes.stream()).mapToInt(Route::size).sum());
+    }
+}
@@ -0,0 +1,61 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DecompositionSolverTest {
+
+    private static ConfigParser createConfig() {
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.populationSize = 50;
+        configParser.partitionMaxGeneration = 30;
+        configParser.decompositionPartitions = 2;
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.verbose = false;
+        configParser.steadyState = false;
+        configParser.seed = 7;
+        configParser.threadCount = 2;
+        return configParser;
+    }
+
+    @Test
+    public void stitchedSolutionVisitsEveryCustomerOnce() {
+        ConfigParser configParser = createConfig();
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p04");
+        DecompositionSolver solver = new DecompositionSolver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+        solver.solve();
+
+        Chromosome best = solver.bestChromosome();
+        assertEquals(problemParser.depots.size(), best.depots.size());
+        int[] visits = new int[problemParser.customers.size()];
+        for (Depot depot : best.depots) {
+            for (Route route : depot.routes) {
+                for (int i = 0; i < route.size(); i++) {
+                    visits[route.get(i)]++;
+                }
+            }
+        }
+        for (int customer = 0; customer < visits.length; customer++) {
+            assertEquals("Visits of customer " + customer, 1, visits[customer]);
+        }
+    }
+
+    // A threshold above the distance of every partition must not stop them early
+    @Test
+    public void stopThresholdDoesNotStopThePartitions() {
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p04");
+        DecompositionSolver solver = new DecompositionSolver(createConfig(), problemParser, Double.NEGATIVE_INFINITY);
+        solver.solve();
+
+        ProblemParser thresholdProblem = new ProblemParser();
+        thresholdProblem.parseFile("p04");
+        DecompositionSolver thresholdSolver = new DecompositionSolver(createConfig(), thresholdProblem, 1e9);
+        thresholdSolver.solve();
+
+        assertEquals(solver.bestFitness(), thresholdSolver.bestFitness(), 0.0);
+    }
+}
@@ -0,0 +1,121 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EmbeddedSolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Problem createProblem() {
+        Problem problem = new Problem(4);
+        problem.addDepot(20, 20, 0, 50);
+        problem.addDepot(80, 80, 0, 50);
+        for (int i = 0; i < 30; i++) {
+            problem.addCustomer((i * 37) % 100, (i * 53) % 100, 5 + i % 7);
+        }
+        return problem;
+    }
+
+    @Test
+    public void everyCustomerIsVisitedOnce() {
+        SolverOptions options = new SolverOptions();
+        options.populationSize = 50;
+        options.maxGeneration = 30;
+        options.seed = 1;
+        options.threadCount = 1;
+        List<Double> improvements = new ArrayList<>();
+
+        SolverResult result = EmbeddedSolver.solve(createProblem(), options,
+                (generation, seconds, bestFitness) -> improvements.add(bestFitness));
+
+        assertTrue(result.isLegal());
+        assertFalse(improvements.isEmpty());
+        assertEquals(improvements.get(improvements.size() - 1), result.getFitness(), 1e-9);
+        int[] visits = new int[30];
+        double totalLength = 0.0;
+        for (int r = 0; r < result.getRouteCount(); r++) {
+            totalLength += result.getRouteLength(r);
+            for (int customer : result.getRoute(r)) {
+                visits[customer]++;
+            }
+        }
+        for (int count : visits) {
+            assertEquals(1, count);
+        }
+        assertEquals(totalLength, result.getFitness(), 1e-6);
+    }
+
+    @Test
+    public void offHeapPopulationVisitsEveryCustomerOnce() {
+        SolverOptions options = new SolverOptions();
+        options.populationSize = 50;
+        options.maxGeneration = 30;
+        options.seed = 1;
+        options.threadCount = 2;
+        options.offHeapPopulation = true;
+
+        SolverResult result = EmbeddedSolver.solve(createProblem(), options);
+
+        assertTrue(result.isLegal());
+        int[] visits = new int[30];
+        for (int r = 0; r < result.getRouteCount(); r++) {
+            for (int customer : result.getRoute(r)) {
+                visits[customer]++;
+            }
+        }
+        for (int count : visits) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void cacheReturnsTheSameSolution() throws Exception {
+        SolverOptions options = new SolverOptions();
+        options.populationSize = 50;
+        options.maxGeneration = 30;
+        options.seed = 1;
+        options.threadCount = 1;
+        options.cacheDirectory = folder.getRoot().toPath();
+
+        SolverResult solved = EmbeddedSolver.solve(createProblem(), options);
+        List<Double> improvements = new ArrayList<>();
+        SolverResult cached = EmbeddedSolver.solve(createProblem(), options,
+                (generation, seconds, bestFitness) -> improvements.add(bestFitness));
+
+        assertTrue(improvements.isEmpty());
+        assertEquals(solved.getFitness(), cached.getFitness(), 1e-9);
+        assertEquals(solved.getRouteCount(), cached.getRouteCount());
+        for (int r = 0; r < solved.getRouteCount(); r++) {
+            assertArrayEquals(solved.getRoute(r), cached.getRoute(r));
+        }
+    }
+
+    @Test
+    public void cacheIsBoundedBySize() throws Exception {
+        SolverOptions options = new SolverOptions();
+        options.populationSize = 20;
+        options.maxGeneration = 5;
+        options.threadCount = 1;
+        options.cacheDirectory = folder.getRoot().toPath();
+        options.cacheMaxBytes = 1000;
+
+        for (long seed = 0; seed < 5; seed++) {
+            options.seed = seed;
+            EmbeddedSolver.solve(createProblem(), options);
+        }
+        long totalBytes = 0;
+        for (java.io.File file : folder.getRoot().listFiles()) {
+            totalBytes += file.length();
+        }
+        assertTrue(totalBytes <= 1000);
+        assertTrue(totalBytes > 0);
+    }
+}
@@ -0,0 +1,50 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GenerationTraceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void exportWritesTheRecordedSolutions() throws Exception {
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.populationSize = 100;
+        configParser.maxGeneration = 3;
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.traceInterval = 0;
+        configParser.verbose = false;
+        configParser.seed = 1;
+        configParser.threadCount = 1;
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+        Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+        solver.runGA();
+
+        Path trace = folder.getRoot().toPath().resolve("trace.bin");
+        Path expected = folder.getRoot().toPath().resolve("expected.res");
+        Chromosome best = solver.bestChromosome();
+        GenerationTrace writer = new GenerationTrace(trace, best.depots);
+        writer.record(0, solver.bestChromosome());
+        // The same routes again, which are stored as references
+        writer.record(5, solver.bestChromosome());
+        writer.close();
+        Solver.writeSolution(best.depots, expected);
+
+        Path directory = folder.newFolder("generations").toPath();
+        assertEquals(2, GenerationTrace.export(trace, directory));
+        List<String> expectedLines = Files.readAllLines(expected);
+        assertEquals(expectedLines, Files.readAllLines(directory.resolve("0.res")));
+        assertEquals(expectedLines, Files.readAllLines(directory.resolve("5.res")));
+    }
+}
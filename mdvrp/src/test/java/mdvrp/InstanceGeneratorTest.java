@@ -0,0 +1,45 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InstanceGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generatedInstanceCanBeParsed() throws Exception {
+        InstanceGenerator generator = new InstanceGenerator();
+        generator.customerCount = 300;
+        generator.depotCount = 3;
+        generator.layout = "clustered";
+        generator.distanceTightness = 0.8;
+        Path first = folder.getRoot().toPath().resolve("first");
+        Path second = folder.getRoot().toPath().resolve("second");
+        generator.write(first);
+        generator.write(second);
+
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile(first);
+        assertEquals(300, problemParser.customers.size());
+        assertEquals(3, problemParser.depots.size());
+        // Every customer fits in a vehicle and can be served from its nearest depot
+        for (Customer customer : problemParser.customers) {
+            double nearest = Double.POSITIVE_INFINITY;
+            for (Depot depot : problemParser.depots) {
+                assertTrue(customer.getDemand() <= depot.getMaxVehicleLoad());
+                nearest = Math.min(nearest,
+                        Helper.euclidianDistance(depot.getX(), depot.getY(), customer.getX(), customer.getY()));
+            }
+            assertTrue(2 * nearest <= problemParser.depots.get(0).getMaxRouteDistance());
+        }
+    }
+}
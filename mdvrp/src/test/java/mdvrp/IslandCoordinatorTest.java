@@ -0,0 +1,135 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class IslandCoordinatorTest {
+
+    private static ConfigParser islandConfig(int port, int maxGeneration) {
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.inputFile = "p01";
+        configParser.populationSize = 100;
+        configParser.maxGeneration = maxGeneration;
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.traceInterval = 0;
+        configParser.verbose = false;
+        configParser.seed = 1;
+        configParser.threadCount = 1;
+        configParser.coordinatorHost = "localhost";
+        configParser.coordinatorPort = port;
+        configParser.migrationInterval = 20;
+        configParser.migrationSize = 2;
+        return configParser;
+    }
+
+    private static Island[] runIslands(IslandCoordinator coordinator, int count, int maxGeneration)
+            throws Exception {
+        Thread coordinatorThread = new Thread(coordinator::run);
+        coordinatorThread.start();
+        Island[] islands = new Island[count];
+        Thread[] threads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            // Every island has its own problem, as it would in its own process
+            ProblemParser problemParser = new ProblemParser();
+            problemParser.parseFile("p01");
+            islands[i] = new Island(islandConfig(coordinator.getPort(), maxGeneration), problemParser,
+                    Double.NEGATIVE_INFINITY);
+            islands[i].solver.printProgress = false;
+        }
+        for (int i = 0; i < count; i++) {
+            threads[i] = new Thread(islands[i]::run);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        coordinatorThread.join();
+        return islands;
+    }
+
+    @Test(timeout = 60000)
+    public void coordinatorKeepsTheBestOfAllIslands() throws Exception {
+        ConfigParser configParser = islandConfig(0, 100);
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+        IslandCoordinator coordinator = new IslandCoordinator(configParser, problemParser, Double.NEGATIVE_INFINITY);
+        Island[] islands = runIslands(coordinator, 2, 100);
+
+        assertEquals(0, islands[0].index);
+        assertEquals(1, islands[1].index);
+        assertNotEquals(islands[0].solver.seed, islands[1].solver.seed);
+        double best = Double.POSITIVE_INFINITY;
+        for (Island island : islands) {
+            best = Math.min(best, island.solver.bestLegalChromosome().fitness);
+        }
+        assertEquals(best, coordinator.bestFitness(), 0.0);
+        // Up to four migrations of two migrants from each island, fewer if one
+        // island finishes before the other
+        assertTrue(coordinator.migrantsRelayed() > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void coordinatorStopsAllIslandsAtTheThreshold() throws Exception {
+        ConfigParser configParser = islandConfig(0, Integer.MAX_VALUE);
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+        // Any legal solution reaches the threshold at the first migration
+        IslandCoordinator coordinator = new IslandCoordinator(configParser, problemParser, Double.MAX_VALUE);
+        Island[] islands = runIslands(coordinator, 2, Integer.MAX_VALUE);
+
+        assertTrue(coordinator.bestFitness() < Double.MAX_VALUE);
+        for (Island island : islands) {
+            assertNotNull(island.solver.bestLegalChromosome());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void coordinatorRejectsIslandWithAnotherInstance() throws Exception {
+        ConfigParser configParser = islandConfig(0, 20);
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+        IslandCoordinator coordinator = new IslandCoordinator(configParser, problemParser, Double.NEGATIVE_INFINITY);
+        Thread coordinatorThread = new Thread(coordinator::run);
+        coordinatorThread.start();
+
+        ProblemParser otherProblem = new ProblemParser();
+        otherProblem.parseFile("p02");
+        try {
+            new Island(islandConfig(coordinator.getPort(), 20), otherProblem, Double.NEGATIVE_INFINITY);
+            fail("An island with another instance was accepted");
+        } catch (IOException e) {
+            assertEquals("The coordinator solves another instance", e.getMessage());
+        }
+
+        // The coordinator is still waiting for islands, and finishes after this one
+        ProblemParser sameProblem = new ProblemParser();
+        sameProblem.parseFile("p01");
+        Island island = new Island(islandConfig(coordinator.getPort(), 20), sameProblem, Double.NEGATIVE_INFINITY);
+        island.solver.printProgress = false;
+        island.run();
+        coordinatorThread.join();
+        assertEquals(0, island.index);
+    }
+
+    @Test
+    public void fingerprintIsTheSameAsOfProblem() {
+        Problem problem = new Problem(2, new int[] { 0, 50 }, new int[] { 0, 10 }, new int[] { 0, 200 },
+                new int[] { 80, 100 }, new int[] { 5, 20, 45 }, new int[] { 5, 7, 9 }, new int[] { 10, 20, 30 });
+        assertEquals(problem.fingerprint(), problem.toProblemParser().fingerprint());
+    }
+
+    @Test(expected = IOException.class)
+    public void routesWithCustomerOutOfRangeAreRejected() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        IslandCoordinator.writeRoutes(new DataOutputStream(bytes), new int[][][] { { { 0, 1 } }, { { 7 } } });
+        IslandCoordinator.readRoutes(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 2, 5);
+    }
+}
@@ -0,0 +1,47 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class LowerBoundTest {
+
+    @Test
+    public void boundsOfCustomersOnALine() {
+        Depot depot = new Depot(0, 100);
+        depot.initDepotSecond(1, 0, 0);
+        ProblemModel model = new ProblemModel(Arrays.asList(depot),
+                Arrays.asList(new Customer(1, 10, 0, 1), new Customer(2, 20, 0, 1)));
+        LowerBound lowerBound = new LowerBound(model);
+        // Half of 10 + 10 for the first customer and half of 10 + 20 for the second
+        assertEquals(25.0, lowerBound.degreeBound, 1e-9);
+        assertEquals(20.0, lowerBound.spanningTreeBound, 1e-9);
+        // The only sensible solution is the round trip of length 40
+        assertEquals(0.6, lowerBound.gap(40.0), 1e-9);
+    }
+
+    @Test
+    public void boundIsBelowTheSolutionOfTheSolver() {
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.populationSize = 100;
+        configParser.maxGeneration = 50;
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.traceInterval = 0;
+        configParser.verbose = false;
+        configParser.seed = 1;
+        configParser.threadCount = 1;
+        configParser.lowerBound = true;
+        configParser.stopGap = 0.0;
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+        Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+        solver.printProgress = false;
+        solver.runGA();
+
+        assertTrue(solver.lowerBound.value() > 0);
+        assertTrue(solver.lowerBound.gap(solver.bestFitness()) > 0);
+    }
+}
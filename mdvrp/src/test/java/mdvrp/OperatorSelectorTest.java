@@ -0,0 +1,43 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class OperatorSelectorTest {
+
+    private static int[] countSelections(OperatorSelector selector, int draws) {
+        SplittableRandom random = new SplittableRandom(3);
+        int[] counts = new int[OperatorSelector.NAMES.length];
+        for (int i = 0; i < draws; i++) {
+            counts[selector.select(random)]++;
+        }
+        return counts;
+    }
+
+    @Test
+    public void weightMovesTowardsRewardedOperator() {
+        OperatorSelector selector = new OperatorSelector();
+        int[] before = countSelections(selector, 10000);
+
+        for (int generation = 0; generation < 5; generation++) {
+            for (int operator = 0; operator < OperatorSelector.NAMES.length; operator++) {
+                double gain = operator == OperatorSelector.SWAPPING ? 10.0 : 0.0;
+                selector.record(operator, gain, 1000);
+            }
+            selector.update();
+        }
+        int[] after = countSelections(selector, 10000);
+
+        assertTrue(after[OperatorSelector.SWAPPING] > 2 * before[OperatorSelector.SWAPPING]);
+        for (int operator = 0; operator < OperatorSelector.NAMES.length; operator++) {
+            if (operator != OperatorSelector.SWAPPING) {
+                assertTrue(after[operator] < before[operator]);
+                // The minimum probability keeps every operator explored
+                assertTrue(after[operator] > 500);
+            }
+        }
+    }
+}
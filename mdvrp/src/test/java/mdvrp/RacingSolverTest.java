@@ -0,0 +1,52 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RacingSolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Without the early stop, the racers would run for a million generations
+    @Test(timeout = 120000)
+    public void firstRacerAtThresholdStopsEveryRacer() {
+        ConfigParser configParser = SolverTest.createConfig(9, 2);
+        configParser.maxGeneration = 1000000;
+        configParser.racers = 3;
+        ProblemParser problemParser = SolverTest.parseProblem("p01");
+        RacingSolver solver = new RacingSolver(configParser, problemParser, 1000.0);
+        solver.convergencePath = folder.getRoot().toPath().resolve("convergence.csv");
+        solver.solve();
+
+        assertTrue(solver.bestFitness() <= 1000.0);
+    }
+
+    @Test
+    public void traceOfTheWinnerIsKept() throws Exception {
+        ConfigParser configParser = SolverTest.createConfig(9, 2);
+        configParser.maxGeneration = 20;
+        configParser.racers = 3;
+        configParser.traceInterval = 5;
+        ProblemParser problemParser = SolverTest.parseProblem("p01");
+        RacingSolver solver = new RacingSolver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+        Path directory = folder.getRoot().toPath();
+        solver.traceDirectory = directory;
+        solver.convergencePath = directory.resolve("convergence.csv");
+        solver.solve();
+
+        Path generations = folder.newFolder("generations").toPath();
+        assertEquals(4, GenerationTrace.export(directory.resolve("trace.bin"), generations));
+        assertTrue(Files.exists(generations.resolve("15.res")));
+        for (int i = 0; i < configParser.racers; i++) {
+            assertFalse(Files.exists(directory.resolve("trace-" + i + ".bin")));
+        }
+        assertEquals("seed,generation,seconds,fitness", Files.readAllLines(directory.resolve("convergence.csv")).get(0));
+    }
+}
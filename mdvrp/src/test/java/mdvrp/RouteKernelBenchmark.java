@@ -0,0 +1,119 @@
+package mdvrp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+/**
+ * Times the route kernels on the routes of the depot with the most customers in
+ * p21 to p23. Run after building with the vector profile:
+ *
+ * java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes:... mdvrp.RouteKernelBenchmark
+ */
+public class RouteKernelBenchmark {
+    private static final int ROUNDS = 5;
+    private static final long ROUND_NANOS = 1_000_000_000L;
+
+    // Keeps the JIT from removing the timed calls
+    private static double sink;
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        RouteKernel scalar = new ScalarRouteKernel();
+        RouteKernel vector = (RouteKernel) Class.forName("mdvrp.VectorRouteKernel").getDeclaredConstructor()
+                .newInstance();
+        System.out.println("Vector kernel: " + vector.name());
+
+        for (String file : new String[] { "p21", "p22", "p23" }) {
+            Depot depot = largestDepot(file);
+            int customerCount = depot.routes.stream().mapToInt(Route::size).sum();
+            System.out.println(file + ": depot " + depot.getId() + ", " + customerCount + " customers in "
+                    + depot.routes.size() + " routes");
+            double scalarLength = time(() -> routeLengths(scalar, depot));
+            double vectorLength = time(() -> routeLengths(vector, depot));
+            System.out.println("  route lengths:    scalar " + Helper.roundDouble(scalarLength) + " ns, vector "
+                    + Helper.roundDouble(vectorLength) + " ns, speed-up "
+                    + Helper.roundDouble(scalarLength / vectorLength));
+            double scalarDeltas = time(() -> insertionDeltas(scalar, depot));
+            double vectorDeltas = time(() -> insertionDeltas(vector, depot));
+            System.out.println("  insertion deltas: scalar " + Helper.roundDouble(scalarDeltas) + " ns, vector "
+                    + Helper.roundDouble(vectorDeltas) + " ns, speed-up "
+                    + Helper.roundDouble(scalarDeltas / vectorDeltas));
+        }
+    }
+
+    /**
+     * The depot with the most customers, with routes from route scheduling of a
+     * random customer order.
+     */
+    private static Depot largestDepot(String file) {
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile(file);
+        Solver.initDepotAssignment(problemParser.depots, problemParser.customers, 2.0);
+        Depot largest = null;
+        int largestCount = 0;
+        for (Depot problemDepot : problemParser.depots) {
+            Depot depot = new Depot(problemDepot);
+            depot.shuffleCustomers(new SplittableRandom(1));
+            depot.routeSchedulingFirstPart();
+            depot.routeSchedulingSecondPart();
+            int count = depot.routes.stream().mapToInt(Route::size).sum();
+            if (count > largestCount) {
+                largest = depot;
+                largestCount = count;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * @return the median time of one round in nanoseconds per kernel call.
+     */
+    private static double time(IntSupplier round) {
+        double[] nanosPerCall = new double[ROUNDS];
+        for (int r = -1; r < ROUNDS; r++) {
+            long calls = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                calls += round.getAsInt();
+            } while ((elapsed = System.nanoTime() - start) < ROUND_NANOS);
+            // Round -1 is the warm-up
+            if (r >= 0) {
+                nanosPerCall[r] = (double) elapsed / calls;
+            }
+        }
+        Arrays.sort(nanosPerCall);
+        return nanosPerCall[ROUNDS / 2];
+    }
+
+    private static int routeLengths(RouteKernel kernel, Depot depot) {
+        ProblemModel model = depot.model;
+        List<Route> routes = depot.routes;
+        double x = model.depotX[depot.getIndex()];
+        double y = model.depotY[depot.getIndex()];
+        for (Route route : routes) {
+            sink += kernel.routeLength(model.customerX, model.customerY, route.customers, route.size(), x, y);
+        }
+        return routes.size();
+    }
+
+    private static int insertionDeltas(RouteKernel kernel, Depot depot) {
+        ProblemModel model = depot.model;
+        double x = model.depotX[depot.getIndex()];
+        double y = model.depotY[depot.getIndex()];
+        double[] deltas = new double[model.customerCount + 2];
+        int calls = 0;
+        for (Route from : depot.routes) {
+            for (int i = 0; i < from.size(); i++) {
+                for (Route route : depot.routes) {
+                    kernel.insertionDeltas(model.customerX, model.customerY, route.customers, route.size(), x, y,
+                            from.get(i), deltas);
+                    sink += deltas[0];
+                    calls++;
+                }
+            }
+        }
+        return calls;
+    }
+}
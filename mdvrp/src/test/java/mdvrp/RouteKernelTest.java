@@ -0,0 +1,40 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class RouteKernelTest {
+
+    // Compares the kernel picked at start-up, which is the vector kernel when the
+    // tests run with the vector profile, with the scalar one
+    @Test
+    public void kernelsAgree() {
+        SplittableRandom random = new SplittableRandom(3);
+        double[] x = new double[500];
+        double[] y = new double[500];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextInt(200) - 100;
+            y[i] = random.nextInt(200) - 100;
+        }
+        RouteKernel scalar = new ScalarRouteKernel();
+        for (int size = 0; size < 200; size += 7) {
+            int[] customers = new int[size];
+            for (int i = 0; i < size; i++) {
+                customers[i] = random.nextInt(x.length);
+            }
+            double expectedLength = scalar.routeLength(x, y, customers, size, 5, -7);
+            assertEquals(expectedLength, RouteKernel.INSTANCE.routeLength(x, y, customers, size, 5, -7), 1e-9);
+
+            double[] expected = new double[size + 2];
+            double[] actual = new double[size + 2];
+            scalar.insertionDeltas(x, y, customers, size, 5, -7, 42, expected);
+            RouteKernel.INSTANCE.insertionDeltas(x, y, customers, size, 5, -7, 42, actual);
+            for (int k = 0; k <= size; k++) {
+                assertEquals(expected[k], actual[k], 1e-9);
+            }
+        }
+    }
+}
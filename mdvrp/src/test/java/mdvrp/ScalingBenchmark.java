@@ -0,0 +1,123 @@
+package mdvrp;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs the GA on generated instances of growing size and reports the time to
+ * create the initial population, the time per generation, the number of
+ * offsprings per second and the peak heap and direct memory. The other settings
+ * come from config.yaml, so off_heap_population and thread_count can be
+ * compared. The results are also written to solutions/scaling.csv. Run from
+ * the mdvrp directory with the customer counts as arguments:
+ *
+ * java -Xmx8g -cp target/classes:target/test-classes:... mdvrp.ScalingBenchmark 1000 10000 50000
+ *
+ * The population size, generation count and layout can be set with
+ * -Dpopulation=, -Dgenerations= and -Dlayout=.
+ */
+public class ScalingBenchmark {
+    private static final int[] DEFAULT_SIZES = { 1000, 10000, 50000 };
+    private static final long SAMPLE_MILLIS = 10;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.populationSize = Integer.getInteger("population", 100);
+        configParser.maxGeneration = Integer.getInteger("generations", 20);
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.verbose = false;
+        configParser.seed = 1;
+
+        Path file = Paths.get("solutions", "scaling.csv");
+        Files.createDirectories(file.getParent());
+        FileWriter writer = new FileWriter(file.toString());
+        writer.write("customers,depots,population,generations,threads,off_heap,init_seconds,"
+                + "milliseconds_per_generation,offsprings_per_second,peak_heap_mib,peak_direct_mib,best_fitness\n");
+        for (int customers : sizes) {
+            InstanceGenerator generator = new InstanceGenerator();
+            generator.customerCount = customers;
+            generator.depotCount = Math.max(4, customers / 1000);
+            generator.layout = System.getProperty("layout", "uniform");
+            Path instance = Files.createTempFile("mdvrp", ".txt");
+            generator.write(instance);
+            ProblemParser problemParser = new ProblemParser();
+            problemParser.parseFile(instance);
+            Files.delete(instance);
+
+            System.gc();
+            MemorySampler sampler = new MemorySampler();
+            sampler.start();
+            long start = System.nanoTime();
+            Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+            solver.printProgress = false;
+            long initialized = System.nanoTime();
+            solver.runGA();
+            long finished = System.nanoTime();
+            sampler.interrupt();
+            sampler.join();
+
+            double initSeconds = (initialized - start) / 1e9;
+            double millisPerGeneration = (finished - initialized) / 1e6 / configParser.maxGeneration;
+            double offspringsPerSecond = configParser.populationSize * 1000.0 / millisPerGeneration;
+            double peakHeap = sampler.peakHeap / (double) (1 << 20);
+            double peakDirect = sampler.peakDirect / (double) (1 << 20);
+            System.out.println(customers + " customers, " + generator.depotCount + " depots: init "
+                    + Helper.roundDouble(initSeconds) + " s, " + Helper.roundDouble(millisPerGeneration)
+                    + " ms per generation, " + Math.round(offspringsPerSecond) + " offsprings per second, peak heap "
+                    + Helper.roundDouble(peakHeap) + " MiB, peak direct " + Helper.roundDouble(peakDirect)
+                    + " MiB, best fitness " + Helper.roundDouble(solver.bestFitness()));
+            writer.write(customers + "," + generator.depotCount + "," + configParser.populationSize + ","
+                    + configParser.maxGeneration + "," + solver.threadCount + "," + configParser.offHeapPopulation
+                    + "," + initSeconds + "," + millisPerGeneration + "," + offspringsPerSecond + "," + peakHeap + ","
+                    + peakDirect + "," + solver.bestFitness() + "\n");
+            writer.flush();
+        }
+        writer.close();
+    }
+
+    /**
+     * Samples the used heap and direct memory until it is interrupted. The heap
+     * peak includes garbage that has not been collected yet.
+     */
+    private static class MemorySampler extends Thread {
+        volatile long peakHeap;
+        volatile long peakDirect;
+
+        MemorySampler() {
+            this.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!this.isInterrupted()) {
+                long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+                long direct = 0;
+                for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+                    if (pool.getName().equals("direct")) {
+                        direct += pool.getMemoryUsed();
+                    }
+                }
+                this.peakHeap = Math.max(this.peakHeap, heap);
+                this.peakDirect = Math.max(this.peakDirect, direct);
+                try {
+                    Thread.sleep(SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
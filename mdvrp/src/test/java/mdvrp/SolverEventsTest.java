@@ -0,0 +1,130 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class SolverEventsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ConfigParser eventConfig() {
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.populationSize = 100;
+        configParser.maxGeneration = 5;
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.traceInterval = 0;
+        configParser.verbose = false;
+        configParser.steadyState = false;
+        configParser.seed = 1;
+        configParser.threadCount = 1;
+        configParser.jfrEvents = true;
+        return configParser;
+    }
+
+    /**
+     * Runs the solve with the MDVRP events enabled.
+     *
+     * @return the events that were recorded.
+     */
+    private List<RecordedEvent> record(Runnable solve) throws Exception {
+        Path file = folder.getRoot().toPath().resolve("solver.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("mdvrp.Generation");
+            recording.enable("mdvrp.Operator");
+            recording.enable("mdvrp.SolutionWrite");
+            recording.start();
+            solve.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static int count(List<RecordedEvent> events, String name) {
+        return (int) events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+    }
+
+    @Test
+    public void recordingContainsTheSolverEvents() throws Exception {
+        ConfigParser configParser = eventConfig();
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+
+        List<RecordedEvent> events = record(() -> {
+            Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+            solver.printProgress = false;
+            solver.runGA();
+            Solver.writeSolution(solver.bestChromosome().depots, folder.getRoot().toPath().resolve("solution.res"));
+        });
+
+        int generations = 0;
+        int crossovers = 0;
+        int writes = 0;
+        for (RecordedEvent event : events) {
+            switch (event.getEventType().getName()) {
+            case "mdvrp.Generation":
+                assertTrue(event.getDouble("bestFitness") <= event.getDouble("averageFitness"));
+                generations++;
+                break;
+            case "mdvrp.Operator":
+                crossovers += event.getString("operator").equals("crossover") ? 1 : 0;
+                break;
+            case "mdvrp.SolutionWrite":
+                assertTrue(event.getDouble("distance") > 0);
+                assertTrue(event.getInt("routes") > 0);
+                writes++;
+                break;
+            default:
+            }
+        }
+        assertEquals(5, generations);
+        assertTrue(crossovers > 0);
+        assertEquals(1, writes);
+    }
+
+    @Test
+    public void steadyStateRecordsGenerationPerPopulationOfOffsprings() throws Exception {
+        ConfigParser configParser = eventConfig();
+        configParser.steadyState = true;
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+
+        List<RecordedEvent> events = record(() -> {
+            Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+            solver.printProgress = false;
+            solver.runGA();
+        });
+        assertEquals(5, count(events, "mdvrp.Generation"));
+    }
+
+    @Test
+    public void alnsRecordsDestroyAndRepairOperators() throws Exception {
+        ConfigParser configParser = eventConfig();
+        configParser.alnsIterations = 50;
+        configParser.alnsRuns = 1;
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile("p01");
+
+        List<RecordedEvent> events = record(() -> {
+            ALNSSolver solver = new ALNSSolver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+            solver.printProgress = false;
+            solver.solve();
+        });
+        long removals = events.stream().filter(event -> event.getEventType().getName().equals("mdvrp.Operator")
+                && event.getString("operator").endsWith(" removal")).count();
+        assertEquals(50, removals);
+        assertEquals(100, count(events, "mdvrp.Operator"));
+    }
+}
@@ -0,0 +1,191 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SolverTest {
+
+    static ConfigParser createConfig(long seed, int threadCount) {
+        ConfigParser configParser = new ConfigParser();
+        configParser.parseConfig();
+        configParser.populationSize = 100;
+        configParser.maxGeneration = 50;
+        configParser.saveInterval = Integer.MAX_VALUE;
+        configParser.verbose = false;
+        configParser.steadyState = false;
+        configParser.seed = seed;
+        configParser.threadCount = threadCount;
+        return configParser;
+    }
+
+    static ProblemParser parseProblem(String name) {
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.parseFile(name);
+        return problemParser;
+    }
+
+    /**
+     * @return a problem with one depot at the origin with one vehicle of the
+     *         given load, and one customer next to it per demand.
+     */
+    private static ProblemParser singleVehicleProblem(int maxVehicleLoad, int... demands) {
+        ProblemParser problemParser = new ProblemParser();
+        problemParser.maxVehicesPerDepot = 1;
+        Depot depot = new Depot(0, maxVehicleLoad);
+        depot.initDepotSecond(1, 0, 0);
+        problemParser.depots.add(depot);
+        for (int i = 0; i < demands.length; i++) {
+            problemParser.customers.add(new Customer(i + 1, i + 1, 1, demands[i]));
+        }
+        problemParser.model = new ProblemModel(problemParser.depots, problemParser.customers);
+        return problemParser;
+    }
+
+    private static String routesOfDepots(Chromosome chromosome) {
+        StringBuilder routes = new StringBuilder();
+        for (Depot depot : chromosome.depots) {
+            // Sorted, since the order of the routes in a depot does not matter
+            routes.append(Arrays.toString(depot.routes.stream().map(route -> Arrays.toString(route.toArray()))
+                    .sorted().toArray()));
+        }
+        return routes.toString();
+    }
+
+    private Solver createSolver(long seed, int threadCount) {
+        return new Solver(createConfig(seed, threadCount), parseProblem("p01"), Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Asserts that the chromosome has no depot with too many routes and visits
+     * every customer exactly once.
+     */
+    static void assertLegal(Chromosome chromosome, int customerCount) {
+        assertNotNull(chromosome);
+        assertEquals(0, chromosome.tooManyRoutes);
+        int[] visits = new int[customerCount];
+        for (Depot depot : chromosome.depots) {
+            for (Route route : depot.routes) {
+                for (int i = 0; i < route.size(); i++) {
+                    visits[route.get(i)]++;
+                }
+            }
+        }
+        for (int customer = 0; customer < customerCount; customer++) {
+            assertEquals("Visits of customer " + customer, 1, visits[customer]);
+        }
+    }
+
+    private static int[][] routesOf(Chromosome chromosome) {
+        return chromosome.depots.stream().flatMap(x -> x.routes.stream()).map(Route::toArray)
+                .toArray(int[][]::new);
+    }
+
+    @Test
+    public void sameSeedGivesSameResult() {
+        Solver first = createSolver(42, 1);
+        first.runGA();
+        Solver second = createSolver(42, 3);
+        second.runGA();
+
+        Chromosome firstBest = first.bestChromosome();
+        Chromosome secondBest = second.bestChromosome();
+        assertEquals(Double.doubleToLongBits(firstBest.fitness), Double.doubleToLongBits(secondBest.fitness));
+        assertArrayEquals(routesOf(firstBest), routesOf(secondBest));
+    }
+
+    @Test
+    public void reusedPopulationBuffersGiveSameResult() {
+        Chromosome[] best = new Chromosome[2];
+        for (int i = 0; i < 2; i++) {
+            ConfigParser configParser = createConfig(3, 2);
+            configParser.reusePopulationBuffers = i == 0;
+            Solver solver = new Solver(configParser, parseProblem("p01"), Double.NEGATIVE_INFINITY);
+            solver.runGA();
+            best[i] = solver.bestChromosome();
+        }
+
+        assertEquals(Double.doubleToLongBits(best[0].fitness), Double.doubleToLongBits(best[1].fitness));
+        assertArrayEquals(routesOf(best[0]), routesOf(best[1]));
+    }
+
+    @Test
+    public void steadyStateGivesLegalResult() {
+        ConfigParser configParser = createConfig(5, 2);
+        configParser.steadyState = true;
+        ProblemParser problemParser = parseProblem("p01");
+        Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+        solver.runGA();
+
+        assertLegal(solver.bestLegalChromosome(), problemParser.customers.size());
+    }
+
+    // Adaptive mutation evaluates the offsprings itself, which must give the same
+    // fitness as evaluating them again
+    @Test
+    public void adaptiveOperatorsKeepFitnessUpToDate() {
+        for (boolean steadyState : new boolean[] { false, true }) {
+            ConfigParser configParser = createConfig(11, 2);
+            configParser.adaptiveOperators = true;
+            configParser.feasibilityRepair = true;
+            configParser.steadyState = steadyState;
+            ProblemParser problemParser = parseProblem("p01");
+            Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+            solver.runGA();
+
+            Chromosome best = solver.bestChromosome();
+            Chromosome evaluated = new Chromosome(best);
+            evaluated.getLegality(problemParser.maxVehicesPerDepot);
+            evaluated.updateFitnessByTotalDistanceWithPenalty(configParser.maxGeneration);
+            assertEquals(evaluated.tooManyRoutes, best.tooManyRoutes);
+            assertEquals(evaluated.fitness, best.fitness, 1e-9);
+        }
+    }
+
+    @Test
+    public void customerOnTopOfDepotIsSwappableThere() {
+        Depot first = new Depot(0, 100);
+        first.initDepotSecond(1, 0, 0);
+        Depot second = new Depot(0, 100);
+        second.initDepotSecond(2, 20, 0);
+        List<Depot> depots = Arrays.asList(first, second);
+        List<Customer> customers = Arrays.asList(new Customer(1, 0, 0, 10), new Customer(2, 18, 2, 10));
+        Solver.initDepotAssignment(depots, customers, 2.0);
+
+        assertTrue(first.getSwappableCustomers().contains(customers.get(0)));
+        assertFalse(second.getSwappableCustomers().contains(customers.get(0)));
+    }
+
+    @Test
+    public void feasibilityRepairDissolvesRouteOverTheLimit() {
+        ConfigParser configParser = createConfig(1, 1);
+        configParser.populationSize = 2;
+        ProblemParser problemParser = singleVehicleProblem(10, 5, 2, 3);
+        Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+
+        Chromosome chromosome = Chromosome.fromRoutes(problemParser.depots, new int[][][] { { { 0 }, { 1, 2 } } });
+        assertTrue(solver.repairRouteCount(chromosome));
+        chromosome.getLegality(problemParser.maxVehicesPerDepot);
+        assertLegal(chromosome, problemParser.customers.size());
+    }
+
+    @Test
+    public void feasibilityRepairRestoresRoutesWhenCustomerFitsNowhere() {
+        ConfigParser configParser = createConfig(1, 1);
+        configParser.populationSize = 2;
+        // The route with the least load is { 1, 2 }. Customer 1 fits into the other
+        // route, but customer 2 does not fit anymore after that.
+        ProblemParser problemParser = singleVehicleProblem(10, 7, 2, 4);
+        Solver solver = new Solver(configParser, problemParser, Double.NEGATIVE_INFINITY);
+
+        Chromosome chromosome = Chromosome.fromRoutes(problemParser.depots, new int[][][] { { { 0 }, { 1, 2 } } });
+        String before = routesOfDepots(chromosome);
+        assertFalse(solver.repairRouteCount(chromosome));
+        assertEquals(before, routesOfDepots(chromosome));
+        chromosome.getLegality(problemParser.maxVehicesPerDepot);
+        assertEquals(1, chromosome.tooManyRoutes);
+    }
+}
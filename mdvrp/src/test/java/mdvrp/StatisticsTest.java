@@ -0,0 +1,50 @@
+package mdvrp;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StatisticsTest {
+
+    @Test
+    public void mannWhitneyDetectsSlowerSample() {
+        double[] baseline = { 1, 2, 3, 4, 5 };
+        double[] slower = { 6, 7, 8, 9, Double.POSITIVE_INFINITY };
+        // U = 25, z = 12 / sqrt(25 * 11 / 12), the same p-value as the asymptotic
+        // test in SciPy with continuity correction
+        assertEquals(0.00609, Statistics.mannWhitneyGreater(baseline, slower), 1e-4);
+        assertTrue(Statistics.mannWhitneyGreater(slower, baseline) > 0.99);
+        assertEquals(1.0, Statistics.mannWhitneyGreater(new double[] { 2, 2 }, new double[] { 2, 2 }), 0.0);
+    }
+
+    @Test
+    public void percentilesUseTheNearestRank() {
+        double[] sample = { 5, 1, 4, 2, 3, Double.POSITIVE_INFINITY };
+        assertEquals(3.0, Statistics.median(sample), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, Statistics.percentile(sample, 0.9), 0.0);
+        assertArrayEquals(new double[] { 1.5, 1.5, 3 }, Statistics.ranks(new double[] { 7, 7, 9 }), 0.0);
+    }
+
+    @Test
+    public void friedmanDropsConsistentlyWorseTreatments() {
+        double[][] agreeing = { { 1, 2, 3 }, { 1, 2, 3 }, { 1, 2, 3 }, { 1, 2, 3 } };
+        // Rank sums 4, 8 and 12 give a statistic of 8 with 2 degrees of freedom,
+        // so the p-value is exp(-4)
+        assertEquals(Math.exp(-4), Statistics.friedman(agreeing), 1e-9);
+        assertArrayEquals(new double[] { 1, 0, 0 }, Statistics.friedmanVersusBest(agreeing), 0.0);
+
+        double[][] blocks = { { 1, 2, 3 }, { 2, 1, 3 }, { 1, 3, 2 }, { 1, 2, 3 }, { 2, 1, 3 }, { 1, 2, 3 } };
+        double[] pValues = Statistics.friedmanVersusBest(blocks);
+        assertEquals(1.0, pValues[0], 0.0);
+        assertTrue(pValues[1] > 0.05);
+        assertTrue(pValues[2] < 0.05);
+        assertEquals(1.0, Statistics.friedman(new double[][] { { 5, 5 }, { 5, 5 } }), 0.0);
+    }
+
+    @Test
+    public void tailProbabilitiesMatchTables() {
+        assertEquals(0.05, Statistics.upperChiSquaredTail(3.841459, 1), 1e-6);
+        assertEquals(0.025, Statistics.upperStudentTTail(2.228139, 10), 1e-6);
+        assertEquals(0.5, Statistics.upperStudentTTail(0.0, 5), 1e-12);
+    }
+}
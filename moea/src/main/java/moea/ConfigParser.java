@@ -22,6 +22,7 @@ public class ConfigParser {
     boolean verbose;
     int lowerSegmentationCountLimit;
     int upperSegmentationCountLimit;
+    boolean mstEdgeCutting;
 
     Yaml yaml = new Yaml();
 
@@ -55,6 +56,7 @@ public class ConfigParser {
             this.verbose = (boolean) obj.get("verbose");
             this.lowerSegmentationCountLimit = (int) obj.get("lower_segmentation_count_limit");
             this.upperSegmentationCountLimit = (int) obj.get("upper_segmentation_count_limit");
+            this.mstEdgeCutting = (boolean) obj.get("mst_edge_cutting");
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
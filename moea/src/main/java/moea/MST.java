@@ -1,37 +1,32 @@
 package moea;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.PriorityQueue;
-import java.util.Set;
 
 import moea.App.PixelDirection;
 
 public class MST {
-    class Pixel implements Comparable<Pixel> {
-        final int index;
-        Pixel parent;
-        double key;
-
-        Pixel(int index) {
-            this.index = index;
-            this.key = Double.POSITIVE_INFINITY;
-        }
-
-        @Override
-        public int compareTo(Pixel other) {
-            return Double.compare(this.key, other.key);
-        }
-    }
-
     final double[][] edgeValues;
     final int[][] neighborArrays;
     final int V;
 
+    // The tree built by kruskalMST(), as adjacency lists: the tree neighbors of
+    // pixel i are treeNeighbors[treeNeighborStart[i]..treeNeighborStart[i + 1]).
+    // For each of them, treeBackDirections holds the direction that points from
+    // the neighbor back to i, and treeEdgeRanks the rank of the edge by weight,
+    // where 0 is the lightest edge of the tree.
+    int[] treeNeighborStart;
+    int[] treeNeighbors;
+    PixelDirection[] treeBackDirections;
+    int[] treeEdgeRanks;
+
     /**
-     * Used to compute a minimum spanning tree with Prim's algorithm.
+     * Used to compute a minimum spanning tree with Prim's algorithm from a given
+     * root, or once with Kruskal's algorithm and then re-rooted.
      * 
-     * @param adjacencyMatrix which is
+     * @param edgeValues     the edge value to each neighbor, see
+     *                       Utils.constructEdgeValues
+     * @param neighborArrays the index of each neighbor, see
+     *                       Utils.constructNeighborArray
      */
     public MST(double[][] edgeValues, int[][] neighborArrays) {
         this.edgeValues = edgeValues;
@@ -39,87 +34,231 @@ public class MST {
         this.V = edgeValues.length;
     }
 
-    private Pixel[] primMST(int startingNode) {
-        Pixel[] pixels = new Pixel[this.V];
-        for (int i = 0; i < this.V; i++) {
-            pixels[i] = new Pixel(i);
-        }
-
-        Set<Pixel> visitedNodes = new HashSet<>();
-        // TODO find out if we can use a Fibonacci heap here istead, as the removing
-        // TODO and re-insertion is pretty expensive on the heap which PriorityQueue
-        // TODO uses.
-        PriorityQueue<Pixel> unvisitedNodes = new PriorityQueue<>(Arrays.asList(pixels));
+    /**
+     * Prim's algorithm over primitive arrays. The unvisited pixels that have been
+     * reached are kept in an indexed binary heap on their key, which is the
+     * cheapest edge to the tree so far. The heap knows the position of every
+     * pixel, so a decrease-key is a sift up in O(log V) instead of a linear
+     * PriorityQueue.remove, and the whole tree takes O(E log V).
+     * 
+     * @return the parent of every pixel in the tree, -1 for the starting node.
+     */
+    int[] primMST(int startingNode) {
+        int[] parents = new int[this.V];
+        double[] keys = new double[this.V];
+        boolean[] visited = new boolean[this.V];
+        // heap[0..heapSize) holds pixels, and positions[pixel] is the index of the
+        // pixel in heap, or -1 if it is not in it
+        int[] heap = new int[this.V];
+        int[] positions = new int[this.V];
+        int heapSize = 0;
+        Arrays.fill(parents, -1);
+        Arrays.fill(keys, Double.POSITIVE_INFINITY);
+        Arrays.fill(positions, -1);
 
-        pixels[startingNode].key = 0.0;
-        // We need to remove and re-insert to update the PriorityQueue
-        unvisitedNodes.remove(pixels[startingNode]);
-        unvisitedNodes.add(pixels[startingNode]);
+        keys[startingNode] = 0.0;
+        heap[heapSize] = startingNode;
+        positions[startingNode] = heapSize++;
 
-        while (!unvisitedNodes.isEmpty()) {
-            Pixel nextNode = unvisitedNodes.remove();
-            visitedNodes.add(nextNode);
+        while (heapSize > 0) {
+            int nextNode = heap[0];
+            positions[nextNode] = -1;
+            heapSize--;
+            if (heapSize > 0) {
+                heap[0] = heap[heapSize];
+                positions[heap[0]] = 0;
+                siftDown(heap, positions, keys, heapSize, 0);
+            }
+            visited[nextNode] = true;
 
-            for (int n = 0; n < this.neighborArrays[nextNode.index].length; n++) {
-                int neighborNodeIndex = this.neighborArrays[nextNode.index][n];
-                if (neighborNodeIndex == -1) {
+            for (int n = 0; n < this.neighborArrays[nextNode].length; n++) {
+                int neighborNodeIndex = this.neighborArrays[nextNode][n];
+                if (neighborNodeIndex == -1 || visited[neighborNodeIndex]) {
                     continue;
                 }
-                Pixel neighborNode = pixels[neighborNodeIndex];
-                // We use a set here because .contains is O(1) on sets, which results in a
-                // massive speedup
-                if (!visitedNodes.contains(neighborNode)) {
-                    double edgeWeight = edgeValues[nextNode.index][n];
-                    if (edgeWeight < neighborNode.key) {
-                        neighborNode.parent = nextNode;
-                        neighborNode.key = edgeWeight;
-
-                        // We need to remove and re-insert to update the PriorityQueue
-                        unvisitedNodes.remove(neighborNode);
-                        unvisitedNodes.add(neighborNode);
+                double edgeWeight = this.edgeValues[nextNode][n];
+                if (edgeWeight < keys[neighborNodeIndex]) {
+                    parents[neighborNodeIndex] = nextNode;
+                    keys[neighborNodeIndex] = edgeWeight;
+                    if (positions[neighborNodeIndex] == -1) {
+                        heap[heapSize] = neighborNodeIndex;
+                        positions[neighborNodeIndex] = heapSize++;
                     }
+                    // The key only decreases, so the pixel can only move up
+                    siftUp(heap, positions, keys, positions[neighborNodeIndex]);
                 }
             }
+        }
+        return parents;
+    }
 
+    private static void siftUp(int[] heap, int[] positions, double[] keys, int i) {
+        int node = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (keys[heap[parent]] <= keys[node]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            positions[heap[i]] = i;
+            i = parent;
         }
+        heap[i] = node;
+        positions[node] = i;
+    }
 
-        // System.out.println("Started from node " + startingNode);
-        // System.out.println("From - to \tWeight");
-        // for (int i = 0; i < 10; i++) {
-        // int toIndex = visitedNodes.get(i);
-        // int fromIndex = parents[toIndex];
-        // if (fromIndex != -1) {
-        // System.out.println(fromIndex + " - " + toIndex + "\t\t" +
-        // edgeValues.get(fromIndex).get(toIndex));
-        // }
-        // }
-        // return parents;
-        return pixels;
+    private static void siftDown(int[] heap, int[] positions, double[] keys, int heapSize, int i) {
+        int node = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++;
+            }
+            if (keys[node] <= keys[heap[child]]) {
+                break;
+            }
+            heap[i] = heap[child];
+            positions[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        positions[node] = i;
     }
 
+    /**
+     * Builds the minimum spanning tree with Kruskal's algorithm. The tree is the
+     * same whatever the root, so it only has to be built once per image, after
+     * which reRoot() derives the directions from any root in O(V).
+     */
+    void kruskalMST() {
+        // Every edge once, from a pixel to its right, bottom, top-right and
+        // bottom-right neighbor
+        final int[] directions = { PixelDirection.RIGHT.ordinal(), PixelDirection.DOWN.ordinal(),
+                PixelDirection.TOP_RIGHT.ordinal(), PixelDirection.BOTTOM_RIGHT.ordinal() };
+        final int directionCount = PixelDirection.values().length;
+        long[] edges = new long[this.V * directions.length];
+        int edgeCount = 0;
+        for (int i = 0; i < this.V; i++) {
+            for (int n : directions) {
+                if (this.neighborArrays[i][n] != -1) {
+                    // Sorting the edges as longs, with the weight as a float in the high
+                    // bits, is much faster than sorting boxed edges. The float bits of a
+                    // non-negative weight sort like the weight, and RGB distances are far
+                    // enough apart to stay distinct as floats.
+                    long weightBits = Float.floatToIntBits((float) this.edgeValues[i][n]);
+                    edges[edgeCount++] = weightBits << 32 | (i * directionCount + n);
+                }
+            }
+        }
+        Arrays.sort(edges, 0, edgeCount);
+
+        int[] from = new int[this.V - 1];
+        int[] to = new int[this.V - 1];
+        int[] fromDirections = new int[this.V - 1];
+        int treeEdgeCount = 0;
+        DisjointSets disjointSets = new DisjointSets(this.V);
+        for (int e = 0; e < edgeCount && treeEdgeCount < this.V - 1; e++) {
+            int edge = (int) edges[e];
+            int i = edge / directionCount;
+            int n = edge % directionCount;
+            int j = this.neighborArrays[i][n];
+            if (disjointSets.find(i) != disjointSets.find(j)) {
+                disjointSets.union(i, j);
+                from[treeEdgeCount] = i;
+                to[treeEdgeCount] = j;
+                fromDirections[treeEdgeCount] = n;
+                treeEdgeCount++;
+            }
+        }
+
+        int[] treeNeighborStart = new int[this.V + 1];
+        for (int e = 0; e < treeEdgeCount; e++) {
+            treeNeighborStart[from[e] + 1]++;
+            treeNeighborStart[to[e] + 1]++;
+        }
+        for (int i = 0; i < this.V; i++) {
+            treeNeighborStart[i + 1] += treeNeighborStart[i];
+        }
+        int[] next = Arrays.copyOf(treeNeighborStart, this.V);
+        int[] treeNeighbors = new int[2 * treeEdgeCount];
+        PixelDirection[] treeBackDirections = new PixelDirection[2 * treeEdgeCount];
+        int[] treeEdgeRanks = new int[2 * treeEdgeCount];
+        for (int e = 0; e < treeEdgeCount; e++) {
+            int i = from[e];
+            int j = to[e];
+            // j is the neighbor of i in fromDirections[e], so i points to j in that
+            // direction, and j points back to i in the opposite one
+            treeNeighbors[next[i]] = j;
+            treeBackDirections[next[i]] = this.directionTo(j, i);
+            treeEdgeRanks[next[i]++] = e;
+            treeNeighbors[next[j]] = i;
+            treeBackDirections[next[j]] = PixelDirection.values()[fromDirections[e]];
+            treeEdgeRanks[next[j]++] = e;
+        }
+        this.treeNeighborStart = treeNeighborStart;
+        this.treeNeighbors = treeNeighbors;
+        this.treeBackDirections = treeBackDirections;
+        this.treeEdgeRanks = treeEdgeRanks;
+    }
+
+    /**
+     * Lets every pixel point to its parent in the tree from kruskalMST() rooted at
+     * the starting node, with a depth-first traversal in O(V). The cutEdges
+     * heaviest edges of the tree are left out, which splits the image into
+     * cutEdges + 1 segments, each with its own root.
+     */
+    PixelDirection[] reRoot(int startingNode, int cutEdges) {
+        final int firstCutRank = this.V - 1 - cutEdges;
+        PixelDirection[] directions = new PixelDirection[this.V];
+        boolean[] visited = new boolean[this.V];
+        int[] stack = new int[this.V];
+        int stackSize = 0;
+        directions[startingNode] = PixelDirection.NONE;
+        visited[startingNode] = true;
+        stack[stackSize++] = startingNode;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            for (int k = this.treeNeighborStart[node]; k < this.treeNeighborStart[node + 1]; k++) {
+                int child = this.treeNeighbors[k];
+                if (visited[child]) {
+                    continue;
+                }
+                visited[child] = true;
+                directions[child] = this.treeEdgeRanks[k] >= firstCutRank ? PixelDirection.NONE
+                        : this.treeBackDirections[k];
+                stack[stackSize++] = child;
+            }
+        }
+        return directions;
+    }
+
+    private PixelDirection directionTo(int from, int to) {
+        for (int k = 0; k < this.neighborArrays[from].length; k++) {
+            if (this.neighborArrays[from][k] == to) {
+                return PixelDirection.values()[k];
+            }
+        }
+        throw new Error("Pixel " + to + " is not a neighbor of pixel " + from);
+    }
+
+    /**
+     * Lets every pixel point to its parent in the tree from primMST(). The initial
+     * population uses kruskalMST() and reRoot() instead, which give a tree of the
+     * same weight, but this is kept as the reference they are tested against.
+     */
     PixelDirection[] findDirections(int startingNode) {
-        Pixel[] pixels = primMST(startingNode);
+        int[] parents = primMST(startingNode);
 
         PixelDirection[] directions = new PixelDirection[this.V];
-        for (int i = 0; i < pixels.length; i++) {
-            Pixel parentNode = pixels[i].parent;
-            if (parentNode == null) {
+        for (int i = 0; i < parents.length; i++) {
+            if (parents[i] == -1) {
                 // Happens for the starting node
                 directions[i] = PixelDirection.NONE;
                 continue;
             }
 
-            // Dumb find index method, fix later
-            int directionIndex = -1;
-            for (int k = 0; k < this.neighborArrays[i].length; k++) {
-                if (this.neighborArrays[i][k] == parentNode.index) {
-                    directionIndex = k;
-                    break;
-                }
-            }
-
             // Make it such that each pixel points to its parent
-            directions[i] = PixelDirection.values()[directionIndex];
+            directions[i] = this.directionTo(i, parents[i]);
         }
         return directions;
     }
@@ -52,7 +52,9 @@ public class NSGA2 implements Runnable {
         this.feedbackStation = feedbackStation;
 
         this.population = Utils.initPopulationByMinimumSpanningTree(this.populationSize,
-                new MST(edgeValues, neighborArrays), this.N);
+                new MST(edgeValues, neighborArrays), this.N,
+                configParser.mstEdgeCutting ? this.lowerSegmentationCountLimit : 1,
+                configParser.mstEdgeCutting ? this.upperSegmentationCountLimit : 1);
 
         // Maybe thread this
         for (int i = 0; i < this.population.size(); i++) {
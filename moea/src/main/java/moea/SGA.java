@@ -49,7 +49,9 @@ public class SGA implements Runnable {
         this.feedbackStation = feedbackStation;
 
         this.population = Utils.initPopulationByMinimumSpanningTree(this.populationSize,
-                new MST(edgeValues, neighborArrays), this.N);
+                new MST(edgeValues, neighborArrays), this.N,
+                configParser.mstEdgeCutting ? this.lowerSegmentationCountLimit : 1,
+                configParser.mstEdgeCutting ? this.upperSegmentationCountLimit : 1);
 
         // Maybe thread this
         for (int i = 0; i < this.population.size(); i++) {
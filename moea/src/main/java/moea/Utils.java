@@ -19,8 +19,19 @@ import javax.imageio.ImageIO;
 import moea.App.PixelDirection;
 
 public class Utils {
-    public static List<Chromosome> initPopulationByMinimumSpanningTree(int populationSize, MST mst, int N) {
+    /**
+     * Builds the minimum spanning tree once and lets every individual be the tree
+     * rooted at a random pixel. To start from a spread of segment counts, each
+     * individual also leaves out the heaviest edges of the tree, as many as give
+     * it a random segment count between minimumSegments and maximumSegments.
+     */
+    public static List<Chromosome> initPopulationByMinimumSpanningTree(int populationSize, MST mst, int N,
+            int minimumSegments, int maximumSegments) {
         System.out.println("Initializing a population of size " + populationSize);
+        // A segment count of 1 means that no edges are cut
+        final int minimumCutEdges = Math.max(0, Math.min(minimumSegments, N) - 1);
+        final int maximumCutEdges = Math.max(minimumCutEdges, Math.min(maximumSegments, N) - 1);
+        mst.kruskalMST();
         List<Chromosome> populationSync = Collections.synchronizedList(new ArrayList<>());
         AtomicInteger createdIndividuals = new AtomicInteger(0);
         List<Thread> threads = new ArrayList<>();
@@ -31,7 +42,8 @@ public class Utils {
                 public void run() {
                     while (createdIndividuals.getAndIncrement() < populationSize) {
                         int startingNode = ThreadLocalRandom.current().nextInt(N);
-                        PixelDirection[] pixelDirections = mst.findDirections(startingNode);
+                        int cutEdges = ThreadLocalRandom.current().nextInt(minimumCutEdges, maximumCutEdges + 1);
+                        PixelDirection[] pixelDirections = mst.reRoot(startingNode, cutEdges);
                         Chromosome chromosome = new Chromosome(pixelDirections);
                         populationSync.add(chromosome);
                     }
@@ -0,0 +1,90 @@
+package moea;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+import moea.App.PixelDirection;
+
+public class MSTTest {
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 5;
+    private static final int N = WIDTH * HEIGHT;
+
+    private static MST createMST(long seed) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        for (int h = 0; h < HEIGHT; h++) {
+            for (int w = 0; w < WIDTH; w++) {
+                image.setRGB(w, h, random.nextInt(0x1000000));
+            }
+        }
+        return new MST(Utils.constructEdgeValues(image), Utils.constructNeighborArray(WIDTH, HEIGHT));
+    }
+
+    private static double weight(MST mst, PixelDirection[] directions) {
+        double weight = 0;
+        for (int i = 0; i < directions.length; i++) {
+            if (directions[i] != PixelDirection.NONE) {
+                weight += mst.edgeValues[i][directions[i].ordinal()];
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Follows the directions from every pixel and checks that each of them ends
+     * in a root, so the directions form a forest.
+     * 
+     * @return the number of roots.
+     */
+    private static int countRoots(MST mst, PixelDirection[] directions) {
+        int roots = 0;
+        for (int i = 0; i < directions.length; i++) {
+            if (directions[i] == PixelDirection.NONE) {
+                roots++;
+            }
+            int pixel = i;
+            for (int steps = 0; directions[pixel] != PixelDirection.NONE; steps++) {
+                assertTrue("Pixel " + i + " does not reach a root", steps < directions.length);
+                pixel = mst.neighborArrays[pixel][directions[pixel].ordinal()];
+            }
+        }
+        return roots;
+    }
+
+    @Test
+    public void kruskalAndPrimFindTheSameWeight() {
+        for (long seed = 0; seed < 5; seed++) {
+            MST mst = createMST(seed);
+            mst.kruskalMST();
+            for (int startingNode : new int[] { 0, N / 2, N - 1 }) {
+                PixelDirection[] prim = mst.findDirections(startingNode);
+                PixelDirection[] kruskal = mst.reRoot(startingNode, 0);
+                assertEquals(1, countRoots(mst, prim));
+                assertEquals(1, countRoots(mst, kruskal));
+                assertEquals(PixelDirection.NONE, kruskal[startingNode]);
+                assertEquals(weight(mst, prim), weight(mst, kruskal), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void cuttingEdgesGivesOneMoreRootEach() {
+        MST mst = createMST(1);
+        mst.kruskalMST();
+        double previousWeight = Double.POSITIVE_INFINITY;
+        for (int cutEdges = 0; cutEdges < N; cutEdges++) {
+            PixelDirection[] directions = mst.reRoot(3, cutEdges);
+            assertEquals(cutEdges + 1, countRoots(mst, directions));
+            // The heaviest edges are cut first
+            double weight = weight(mst, directions);
+            assertTrue(weight <= previousWeight);
+            previousWeight = weight;
+        }
+    }
+}